@@ -0,0 +1,134 @@
+package com.faeterjconnect.faeterjconnect.controller;
+
+import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
+import com.faeterjconnect.faeterjconnect.model.AttachmentEntity;
+import com.faeterjconnect.faeterjconnect.model.MessageEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
+import com.faeterjconnect.faeterjconnect.service.ChatAttachmentService;
+import com.faeterjconnect.faeterjconnect.service.ChatPublisher;
+import com.faeterjconnect.faeterjconnect.service.ChatService;
+import com.faeterjconnect.faeterjconnect.service.MediaStore;
+import com.faeterjconnect.faeterjconnect.service.TypingService;
+import com.faeterjconnect.faeterjconnect.util.RangeFileWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/chat")
+public class ChatAttachmentController {
+
+    // Conteúdo endereçado por hash nunca muda; "private" porque exige autenticação
+    private static final String CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    @Autowired
+    private ChatAttachmentService attachmentService;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private ChatPublisher chatPublisher;
+    @Autowired
+    private TypingService typingService;
+    @Autowired
+    private MediaStore mediaStore;
+
+    /**
+     * Envia um anexo (imagem ou arquivo) para a conversa e publica a mensagem como no /app/chat.send.
+     * POST /api/chat/conversations/{conversationId}/attachments (multipart: file, caption opcional)
+     */
+    @PostMapping(value = "/conversations/{conversationId}/attachments", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<MessageResponse> upload(
+            @PathVariable UUID conversationId,
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "caption", required = false) String caption,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) throws IOException {
+        // Antes de gravar: quem não participa não consegue deixar arquivo no disco
+        chatService.requireParticipant(conversationId, user.getUserId());
+        AttachmentEntity attachment = attachmentService.store(file);
+        MessageTypeEnum type = ChatAttachmentService.isImage(attachment.getContentType())
+                ? MessageTypeEnum.IMAGE : MessageTypeEnum.FILE;
+        String content = (caption == null || caption.isBlank()) ? file.getOriginalFilename() : caption;
+
+        MessageEntity saved = chatService.saveAttachmentMessage(user.getUserId(), conversationId, content, type,
+                ChatAttachmentService.urlFor(attachment.getHash()));
+
+        MessageResponse payload = ChatService.toResponse(saved);
+        typingService.onMessageSent(conversationId, user.getUserId());
+        chatPublisher.publish(conversationId, payload);
+        return ResponseEntity.ok(payload);
+    }
+
+    /**
+     * Download do anexo (com Range).
+     * GET /api/chat/attachments/{hash}
+     */
+    @GetMapping("/attachments/{hash}")
+    public void download(
+            @PathVariable String hash,
+            @AuthenticationPrincipal AuthenticatedUser user,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        serve(hash, false, user, request, response);
+    }
+
+    /**
+     * Miniatura (imagens). Enquanto não fica pronta, devolve o original.
+     * GET /api/chat/attachments/{hash}/thumbnail
+     */
+    @GetMapping("/attachments/{hash}/thumbnail")
+    public void thumbnail(
+            @PathVariable String hash,
+            @AuthenticationPrincipal AuthenticatedUser user,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        serve(hash, true, user, request, response);
+    }
+
+    private void serve(String hash, boolean thumbnail, AuthenticatedUser user,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        AttachmentEntity attachment = attachmentService.find(hash).orElse(null);
+        if (attachment == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!chatService.canAccessAttachment(user.getUserId(), ChatAttachmentService.urlFor(hash))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        String key = ChatAttachmentService.originalKey(hash);
+        String contentType = attachment.getContentType();
+        String etag = "\"" + hash + "\"";
+        if (thumbnail && attachment.isThumbnailReady()) {
+            key = ChatAttachmentService.thumbnailKey(hash);
+            contentType = MediaType.IMAGE_JPEG_VALUE;
+            etag = "\"" + hash + "-thumb\"";
+        }
+
+        // Só imagens abrem inline; o resto é baixado (evita HTML/JS rodando na origem da API)
+        if (!ChatAttachmentService.isImage(contentType)) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment");
+        }
+        // Thumbnail provisória (original) não pode ficar em cache como se fosse a definitiva
+        String cacheControl = (thumbnail && !attachment.isThumbnailReady()) ? "private, no-cache" : CACHE_CONTROL;
+        // Mesmo caminho do /media/avatars: arquivo local por sendfile, S3 em streaming
+        if (!RangeFileWriter.write(request, response, mediaStore, key, contentType, etag, cacheControl)
+                && !(attachmentService.migrateLegacy(attachment)
+                && RangeFileWriter.write(request, response, mediaStore, key, contentType, etag, cacheControl))) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+}
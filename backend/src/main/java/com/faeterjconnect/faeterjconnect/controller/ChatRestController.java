@@ -1,16 +1,26 @@
 package com.faeterjconnect.faeterjconnect.controller;
 
+import com.faeterjconnect.faeterjconnect.dto.CreateClassGroupDTO;
+import com.faeterjconnect.faeterjconnect.dto.InboxItemResponse;
 import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
 import com.faeterjconnect.faeterjconnect.dto.ConversationResponse;
-import com.faeterjconnect.faeterjconnect.model.ConversationEntity;
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
 import com.faeterjconnect.faeterjconnect.service.ChatService;
+import com.faeterjconnect.faeterjconnect.service.ChatSyncService;
+import com.faeterjconnect.faeterjconnect.service.PresenceService;
+import com.faeterjconnect.faeterjconnect.service.ReceiptService;
+import com.faeterjconnect.faeterjconnect.websocket.WebSocketSessionMetrics;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -21,6 +31,14 @@ public class ChatRestController {
 
     @Autowired
     private ChatService chatService;
+    @Autowired
+    private ReceiptService receiptService;
+    @Autowired
+    private ChatSyncService chatSyncService;
+    @Autowired
+    private WebSocketSessionMetrics sessionMetrics;
+    @Autowired
+    private PresenceService presenceService;
 
     /**
      * Abre (ou retorna) uma conversa 1:1 entre o usuário logado e otherUserId.
@@ -29,10 +47,37 @@ public class ChatRestController {
     @PostMapping("/conversations/{otherUserId}")
     public ResponseEntity<ConversationResponse> openConversation(
             @PathVariable UUID otherUserId,
-            @AuthenticationPrincipal UserEntity user // <- pega o usuário logado direto do token
+            @AuthenticationPrincipal AuthenticatedUser user // <- pega o usuário logado direto do token
     ) {
         var conversation = chatService.findOrCreateOneToOne(user.getUserId(), otherUserId);
-        return ResponseEntity.ok(toResponse(conversation));
+        return ResponseEntity.ok(chatService.toConversationResponse(conversation));
+    }
+
+    /**
+     * Cria o grupo da turma (professor + todos os alunos do turno).
+     * POST /api/chat/groups
+     */
+    @PostMapping("/groups")
+    public ResponseEntity<ConversationResponse> createClassGroup(
+            @RequestBody @Valid CreateClassGroupDTO dto,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        var group = chatService.createClassGroup(user.getUserId(), dto.title(), dto.turno());
+        return ResponseEntity.ok(chatService.toConversationResponse(group));
+    }
+
+    /**
+     * Membros de uma conversa (paginado).
+     * GET /api/chat/conversations/{conversationId}/participants?page=0&size=50
+     */
+    @GetMapping("/conversations/{conversationId}/participants")
+    public ResponseEntity<Page<ConversationResponse.ParticipantResponse>> getParticipants(
+            @PathVariable UUID conversationId,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "50") @Min(1) int size,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        return ResponseEntity.ok(chatService.getParticipants(user.getUserId(), conversationId, page, size));
     }
 
     /**
@@ -41,10 +86,77 @@ public class ChatRestController {
      */
     @GetMapping("/conversations")
     public ResponseEntity<List<ConversationResponse>> myConversations(
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         var list = chatService.listUserConversations(user.getUserId());
-        return ResponseEntity.ok(list.stream().map(this::toResponse).toList());
+        return ResponseEntity.ok(chatService.toConversationResponses(list));
+    }
+
+    /**
+     * Inbox: conversas com última mensagem e não lidas, por atividade mais recente.
+     * GET /api/chat/inbox
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<List<InboxItemResponse>> inbox(
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        return ResponseEntity.ok(chatService.getInbox(user.getUserId()));
+    }
+
+    /**
+     * Tudo que mudou desde o token (conversas, recibos, mensagens) + novo token, em streaming.
+     * Sem token: sincronização completa.
+     * GET /api/chat/sync?since=<token>
+     */
+    @GetMapping("/sync")
+    public ResponseEntity<StreamingResponseBody> sync(
+            @RequestParam(required = false) String since,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        UUID userId = user.getUserId();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> chatSyncService.writeSync(userId, since, out));
+    }
+
+    /**
+     * Marca a conversa como lida até a mensagem informada.
+     * POST /api/chat/conversations/{conversationId}/read/{messageId}
+     */
+    @PostMapping("/conversations/{conversationId}/read/{messageId}")
+    public ResponseEntity<Void> markRead(
+            @PathVariable UUID conversationId,
+            @PathVariable UUID messageId,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        receiptService.ackRead(user.getUserId(), conversationId, messageId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Parceiros de conversa do usuário logado que estão online agora.
+     * Mudanças posteriores chegam em /user/queue/presence.
+     * GET /api/chat/presence
+     */
+    @GetMapping("/presence")
+    public ResponseEntity<List<UUID>> onlinePartners(
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        return ResponseEntity.ok(presenceService.onlinePartners(user.getUserId()));
+    }
+
+    /**
+     * Fila de saída por sessão WebSocket (clientes lentos, descartes). Só ADMIN.
+     * GET /api/chat/ws-metrics
+     */
+    @GetMapping("/ws-metrics")
+    public ResponseEntity<WebSocketSessionMetrics.Snapshot> wsMetrics(
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        if (user.getRoleEnum() != RoleEnum.ADMIN) {
+            throw new AccessDeniedException("Acesso negado: requer ADMIN");
+        }
+        return ResponseEntity.ok(sessionMetrics.snapshot());
     }
 
     /**
@@ -56,25 +168,9 @@ public class ChatRestController {
             @PathVariable UUID conversationId,
             @RequestParam(defaultValue = "0") @Min(0) int page,
             @RequestParam(defaultValue = "20") @Min(1) int size,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         Page<MessageResponse> msgs = chatService.getMessages(user.getUserId(), conversationId, page, size);
         return ResponseEntity.ok(msgs);
     }
-
-    // ---- mapeador simples p/ DTO de conversa ----
-    private ConversationResponse toResponse(ConversationEntity c) {
-        var participants = c.getParticipants().stream()
-                .map(u -> new ConversationResponse.ParticipantResponse(
-                        u.getUserId(), u.getUsername(), u.getEmail()
-                ))
-                .toList();
-
-        return new ConversationResponse(
-                c.getIdConversation(), // se seu ConversationEntity usa getId(), troque aqui
-                c.isGroup(),
-                c.getTitle(),
-                participants
-        );
-    }
 }
\ No newline at end of file
@@ -1,14 +1,17 @@
 package com.faeterjconnect.faeterjconnect.controller;
 
 import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
+import com.faeterjconnect.faeterjconnect.dto.ReceiptAckDTO;
 import com.faeterjconnect.faeterjconnect.dto.SendMessageDTO;
 import com.faeterjconnect.faeterjconnect.model.MessageEntity;
 import com.faeterjconnect.faeterjconnect.security.JwtStompChannelInterceptor.StompPrincipal;
+import com.faeterjconnect.faeterjconnect.service.ChatPublisher;
 import com.faeterjconnect.faeterjconnect.service.ChatService;
+import com.faeterjconnect.faeterjconnect.service.ReceiptService;
+import com.faeterjconnect.faeterjconnect.service.TypingService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.*;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
@@ -18,7 +21,9 @@ import java.util.UUID;
 public class ChatWsController {
 
     @Autowired ChatService chatService;
-    @Autowired SimpMessagingTemplate messagingTemplate;
+    @Autowired ChatPublisher chatPublisher;
+    @Autowired ReceiptService receiptService;
+    @Autowired TypingService typingService;
 
     /** Cliente envia para /app/chat.send */
     @MessageMapping("/chat.send")
@@ -28,19 +33,33 @@ public class ChatWsController {
         MessageEntity saved = chatService.saveTextMessage(senderId, dto.conversationId(), dto.content(), dto.type());
 
         MessageResponse payload = ChatService.toResponse(saved);
+        typingService.onMessageSent(dto.conversationId(), senderId);
 
-        // Publica no tópico da conversa. Todos participantes inscritos recebem.
-        String destination = "/topic/conversations/" + dto.conversationId();
-        messagingTemplate.convertAndSend(destination, payload);
+        // Tópico da conversa ou fila de cada participante, conforme app.chat.delivery-mode
+        chatPublisher.publish(dto.conversationId(), payload);
     }
 
-    /** Evento "digitando..." -> /app/chat.typing -> /topic/conversations/{id} */
+    /**
+     * Evento "digitando..." -> /app/chat.typing -> /topic/conversations/{id}
+     * Pode chegar a cada tecla; o TypingService transforma em começou/parou com throttle.
+     */
     @MessageMapping("/chat.typing")
     public void typing(@Header("conversationId") String conversationId, Principal principal) {
         UUID senderId = UUID.fromString(((StompPrincipal) principal).getUserId());
-        var event = new TypingEvent(UUID.fromString(conversationId), senderId);
-        messagingTemplate.convertAndSend("/topic/conversations/" + conversationId, event);
+        typingService.onTyping(UUID.fromString(conversationId), senderId);
     }
 
-    public record TypingEvent(UUID conversationId, UUID typingUserId) {}
+    /** "Li até a mensagem X": /app/chat.read -> recibo agregado em /topic/conversations/{id} */
+    @MessageMapping("/chat.read")
+    public void read(@Valid @Payload ReceiptAckDTO dto, Principal principal) {
+        UUID userId = UUID.fromString(((StompPrincipal) principal).getUserId());
+        receiptService.ackRead(userId, dto.conversationId(), dto.messageId());
+    }
+
+    /** "Recebi até a mensagem X": /app/chat.delivered */
+    @MessageMapping("/chat.delivered")
+    public void delivered(@Valid @Payload ReceiptAckDTO dto, Principal principal) {
+        UUID userId = UUID.fromString(((StompPrincipal) principal).getUserId());
+        receiptService.ackDelivered(userId, dto.conversationId(), dto.messageId());
+    }
 }
@@ -3,7 +3,7 @@ package com.faeterjconnect.faeterjconnect.controller;
 import com.faeterjconnect.faeterjconnect.dto.CommentViewDTO;
 import com.faeterjconnect.faeterjconnect.dto.CommentedDTO;
 import com.faeterjconnect.faeterjconnect.dto.PageResponse;
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
 import com.faeterjconnect.faeterjconnect.service.CommentedService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,7 +28,7 @@ public class CommentedController {
     public ResponseEntity<CommentViewDTO> create(
             @PathVariable UUID postId,
             @RequestBody @Valid CommentedDTO commentedDTO,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         CommentViewDTO created = commentedService.createCommented(postId, commentedDTO, user);
         return ResponseEntity.status(201).body(created);
@@ -54,7 +54,7 @@ public class CommentedController {
     @DeleteMapping("/{commentId}")
     public ResponseEntity<Void> delete(
             @PathVariable UUID commentId,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         commentedService.deleteComment(commentId, user);
         return ResponseEntity.noContent().build();
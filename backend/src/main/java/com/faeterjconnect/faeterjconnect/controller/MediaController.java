@@ -0,0 +1,55 @@
+package com.faeterjconnect.faeterjconnect.controller;
+
+import com.faeterjconnect.faeterjconnect.service.MediaStore;
+import com.faeterjconnect.faeterjconnect.service.UserAvatarService;
+import com.faeterjconnect.faeterjconnect.util.RangeFileWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Variantes de avatar endereçadas por conteúdo: /media/avatars/{sha256}/{lado}.jpg.
+ * A URL muda quando a imagem muda, então a resposta é imutável (cache de 1 ano + ETag forte):
+ * o navegador não volta a pedir e, se pedir, recebe 304. Range e o envio ficam no RangeFileWriter:
+ * no disco local, sendfile do Tomcat; no S3, streaming do bucket.
+ *
+ * Avatares no formato antigo (/media/<userId>/avatar_<millis>.jpg) continuam no resource handler do WebConfig.
+ */
+@RestController
+@RequestMapping("/media/avatars")
+public class MediaController {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    @Autowired
+    private UserAvatarService userAvatarService;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @GetMapping("/{hash}/{size}.jpg")
+    public void avatar(
+            @PathVariable String hash,
+            @PathVariable int size,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        String key = userAvatarService.variantKey(hash, size);
+        if (key == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + hash + "-" + size + "\"";
+
+        if (!RangeFileWriter.write(request, response, mediaStore, key, MediaType.IMAGE_JPEG_VALUE, etag, CACHE_CONTROL)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+}
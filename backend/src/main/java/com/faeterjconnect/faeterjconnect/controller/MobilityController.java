@@ -11,6 +11,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -25,6 +26,13 @@ public class MobilityController {
     private static final double CAMPUS_LAT = -22.892172;
     private static final double CAMPUS_LNG = -43.3238892;
 
+    // Um cliente para a aplicação toda (cada HttpClient novo abre seu próprio seletor/threads).
+    // Com timeouts: uma API externa travada não prende a thread do request para sempre.
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private static final Duration UPSTREAM_TIMEOUT = Duration.ofSeconds(20);
+
     @GetMapping("/sppo/near")
     public ResponseEntity<List<NearbyVehicleDTO>> getSppoNear(
             @RequestParam(required = false) Integer windowSeconds,
@@ -56,9 +64,10 @@ public class MobilityController {
                     URLEncoder.encode(df, StandardCharsets.UTF_8)
             );
 
-            HttpClient client = HttpClient.newBuilder().build();
+            HttpClient client = HTTP;
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
+                    .timeout(UPSTREAM_TIMEOUT)
                     .header("Accept", "application/json")
                     .GET()
                     .build();
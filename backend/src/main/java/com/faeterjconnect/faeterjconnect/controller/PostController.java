@@ -4,7 +4,7 @@ package com.faeterjconnect.faeterjconnect.controller;
 import com.faeterjconnect.faeterjconnect.dto.CursorPage;
 import com.faeterjconnect.faeterjconnect.dto.PostDTO;
 import com.faeterjconnect.faeterjconnect.dto.PostViewDTO;
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
 import com.faeterjconnect.faeterjconnect.service.LikeService;
 import com.faeterjconnect.faeterjconnect.service.PostService;
 import jakarta.validation.Valid;
@@ -26,13 +26,13 @@ public class PostController {
 
     @PostMapping("/create")
     public PostViewDTO create(@RequestBody @Valid PostDTO dto,
-                              @AuthenticationPrincipal UserEntity user) {
+                              @AuthenticationPrincipal AuthenticatedUser user) {
         return postService.createPost(dto, user);
     }
 
     @DeleteMapping("/delete/{postId}")
     public void delete(@PathVariable UUID postId,
-                       @AuthenticationPrincipal UserEntity user) {
+                       @AuthenticationPrincipal AuthenticatedUser user) {
         postService.deletePost(postId, user);
     }
 
@@ -41,7 +41,7 @@ public class PostController {
             @RequestParam(required = false) Integer limit,
             @RequestParam(required = false) String cursor,
             @RequestParam(required = false) UUID authorId,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         if (authorId != null) {
             // ✅ Lista posts de UM usuário específico (perfil)
@@ -55,13 +55,13 @@ public class PostController {
 
     @PostMapping("/{postId}/likes")
     public LikeService.LikeView like(@PathVariable UUID postId,
-                                     @AuthenticationPrincipal UserEntity user) {
+                                     @AuthenticationPrincipal AuthenticatedUser user) {
         return likeService.likePost(postId, user);
     }
 
     @DeleteMapping("/{postId}/likes")
     public LikeService.LikeView unlike(@PathVariable UUID postId,
-                                       @AuthenticationPrincipal UserEntity user) {
+                                       @AuthenticationPrincipal AuthenticatedUser user) {
         return likeService.unlikePost(postId, user);
     }
 }
@@ -3,9 +3,14 @@ package com.faeterjconnect.faeterjconnect.controller;
 import com.faeterjconnect.faeterjconnect.dto.*;
 import com.faeterjconnect.faeterjconnect.model.UserEntity;
 import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
+import com.faeterjconnect.faeterjconnect.security.RateLimiter;
 import com.faeterjconnect.faeterjconnect.security.TokenService;
 import com.faeterjconnect.faeterjconnect.service.UserAvatarService;
+import com.faeterjconnect.faeterjconnect.service.UserImportService;
 import com.faeterjconnect.faeterjconnect.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -16,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -28,9 +34,36 @@ public class UserController {
     private TokenService tokenService;
     @Autowired
     private UserAvatarService userAvatarService;
+    @Autowired
+    private UserImportService userImportService;
+    @Autowired
+    private RateLimiter rateLimiter;
 
     // --------- Auth ---------
 
+    /**
+     * Logout: o token desta requisição deixa de valer imediatamente.
+     * POST /api/user/logout
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@AuthenticationPrincipal AuthenticatedUser user) {
+        userServices.logout(user);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Encerra todas as sessões (todos os tokens já emitidos): o próprio ou ADMIN.
+     * POST /api/user/{id}/revoke-sessions
+     */
+    @PostMapping("/{id}/revoke-sessions")
+    public ResponseEntity<Void> revokeSessions(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        userServices.revokeAllSessions(user, id);
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/register")
     public ResponseEntity<TokenResponse> register(@RequestBody @Valid RegisterDTO registerDTO) {
         UserEntity newUser = userServices.register(registerDTO);
@@ -47,8 +80,25 @@ public class UserController {
         return ResponseEntity.status(201).body(body);
     }
 
+    /**
+     * Importação de alunos em lote (CSV username,email,password,turno): SECRETARIA ou ADMIN.
+     * POST /api/user/import (multipart "file") -> resultado por linha
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<UserImportResponse> importStudents(
+            @RequestPart("file") MultipartFile file,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) throws IOException {
+        return ResponseEntity.ok(userImportService.importStudents(user, file.getInputStream()));
+    }
+
     @PostMapping("/login")
-    public ResponseEntity<TokenResponse> login(@RequestBody @Valid LoginDTO loginDTO) {
+    public ResponseEntity<TokenResponse> login(@RequestBody @Valid LoginDTO loginDTO, HttpServletRequest request) {
+        // Tentativas por conta a partir do mesmo IP; o limite só por IP (RateLimitFilter) é mais folgado
+        // para não travar todos os alunos atrás do mesmo NAT
+        String email = loginDTO.email() == null ? "" : loginDTO.email().trim().toLowerCase();
+        rateLimiter.acquireOrThrow("LOGIN", request.getRequestURI(), request.getRemoteAddr() + "|" + email);
+
         UserEntity user = userServices.authenticate(loginDTO);
         String token = tokenService.generateToken(user);
 
@@ -74,20 +124,34 @@ public class UserController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) RoleEnum role,
             // Se seu principal for CustomUserDetails:
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
             // Se você preferir diretamente a entidade:
             // @AuthenticationPrincipal(expression = "user") UserEntity currentUser
     ) {
         return ResponseEntity.ok(userServices.listUsers(user, page, size, role));
     }
 
+    /**
+     * Autocomplete de usuários (ex.: iniciar conversa): nome ou palavra do nome começando com q.
+     * GET /api/user/search?q=ana&role=ALUNO&turno=NOITE&limit=10
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<UserViewDTO>> search(
+            @RequestParam("q") String q,
+            @RequestParam(required = false) RoleEnum role,
+            @RequestParam(required = false) TurnoEnum turno,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(userServices.search(q, role, turno, limit));
+    }
+
     /**
      * Busca usuário: ADMIN ou o próprio (regra no service).
      */
     @GetMapping("/{id}")
     public ResponseEntity<UserViewDTO> getById(
             @PathVariable UUID id,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         return ResponseEntity.ok(userServices.getById(user, id));
     }
@@ -101,7 +165,7 @@ public class UserController {
             @PathVariable UUID id,
             @RequestBody @Valid UpdateUserDTO dto,
             @RequestParam(required = false) RoleEnum newRole,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         var updated = userServices.updateUser(user, id, dto, newRole);
         return ResponseEntity.ok(updated);
@@ -113,26 +177,42 @@ public class UserController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(
             @PathVariable UUID id,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         userServices.deleteUser(user, id);
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Upload do avatar: responde 202 com status PROCESSING (ou READY, se a imagem já foi processada);
+     * as variantes ficam prontas em segundo plano (acompanhar pelo GET).
+     */
     @PostMapping(value = "/{id}/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<AvatarResponse> uploadAvatar(
             @PathVariable UUID id,
             @RequestPart("file") MultipartFile file,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) throws IOException {
         UserEntity updated = userAvatarService.uploadAvatar(id, file);
-        return ResponseEntity.ok(new AvatarResponse(updated.getProfileImageUrl()));
+        return ResponseEntity.accepted().body(userAvatarService.toResponse(updated));
+    }
+
+    /**
+     * Estado do avatar e URLs das variantes (48/128/512...).
+     * GET /api/user/{id}/avatar
+     */
+    @GetMapping("/{id}/avatar")
+    public ResponseEntity<AvatarResponse> getAvatar(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        return ResponseEntity.ok(userAvatarService.toResponse(userAvatarService.getAvatar(id)));
     }
 
     @DeleteMapping("/{id}/avatar")
     public ResponseEntity<Void> removeAvatar(
             @PathVariable UUID id,
-            @AuthenticationPrincipal UserEntity user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) throws IOException {
         UserEntity updated = userAvatarService.removeAvatar(id);
         return (ResponseEntity<Void>) ResponseEntity.ok();
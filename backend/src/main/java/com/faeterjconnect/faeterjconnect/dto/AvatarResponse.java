@@ -1,3 +1,8 @@
 package com.faeterjconnect.faeterjconnect.dto;
-public record AvatarResponse(String profileImageUrl) { }
 
+import com.faeterjconnect.faeterjconnect.model.enums.AvatarStatusEnum;
+
+import java.util.Map;
+
+// variants: lado em px -> URL (vazio enquanto PROCESSING); profileImageUrl é a maior variante
+public record AvatarResponse(String profileImageUrl, AvatarStatusEnum status, Map<Integer, String> variants) { }
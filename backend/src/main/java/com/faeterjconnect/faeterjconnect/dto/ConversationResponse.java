@@ -8,7 +8,8 @@ public record ConversationResponse(
         UUID id,
         boolean isGroup,
         String title,
-        List<ParticipantResponse> participants
+        long participantCount,
+        List<ParticipantResponse> participants // só em 1:1; grupos: GET .../participants (paginado)
 ) {
     public record ParticipantResponse(UUID userId, String username, String email) {}
 }
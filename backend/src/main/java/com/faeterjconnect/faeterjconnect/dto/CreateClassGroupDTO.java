@@ -0,0 +1,10 @@
+package com.faeterjconnect.faeterjconnect.dto;
+
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public record CreateClassGroupDTO(
+        @NotBlank String title,
+        @NotNull TurnoEnum turno // todos os alunos deste turno entram no grupo
+) {}
@@ -0,0 +1,19 @@
+package com.faeterjconnect.faeterjconnect.dto;
+
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record InboxItemResponse(
+        UUID conversationId,
+        boolean isGroup,
+        String title,
+        UUID otherUserId,         // só em 1:1
+        String otherUsername,     // só em 1:1
+        Instant lastActivityAt,
+        LastMessage lastMessage,  // null se a conversa ainda não tem mensagens
+        long unreadCount
+) {
+    public record LastMessage(UUID id, UUID senderId, String snippet, MessageTypeEnum type, Instant sentAt) {}
+}
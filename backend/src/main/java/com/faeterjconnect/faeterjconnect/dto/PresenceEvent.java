@@ -0,0 +1,5 @@
+package com.faeterjconnect.faeterjconnect.dto;
+
+import java.util.UUID;
+
+public record PresenceEvent(UUID userId, boolean online) {}
@@ -0,0 +1,10 @@
+package com.faeterjconnect.faeterjconnect.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+public record ReceiptAckDTO(
+        @NotNull UUID conversationId,
+        @NotNull UUID messageId // "até esta mensagem" (inclusive)
+) {}
@@ -0,0 +1,18 @@
+package com.faeterjconnect.faeterjconnect.dto;
+
+import com.faeterjconnect.faeterjconnect.model.enums.DeliveryStatusEnum;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * "userId recebeu/leu tudo até upToMessageId" em uma conversa.
+ * O cliente aplica o status a todas as mensagens com sentAt <= upToSentAt.
+ */
+public record ReceiptEvent(
+        UUID conversationId,
+        UUID userId,
+        DeliveryStatusEnum status, // DELIVERED ou READ
+        UUID upToMessageId,
+        Instant upToSentAt
+) {}
@@ -0,0 +1,6 @@
+package com.faeterjconnect.faeterjconnect.dto;
+
+import java.util.UUID;
+
+/** typing=true quando o usuário começa a digitar, false quando para (ou expira). */
+public record TypingEvent(UUID conversationId, UUID typingUserId, boolean typing) {}
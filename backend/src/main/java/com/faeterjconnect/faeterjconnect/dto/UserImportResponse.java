@@ -0,0 +1,15 @@
+package com.faeterjconnect.faeterjconnect.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record UserImportResponse(
+        int total,
+        int created,
+        int failed,
+        List<Row> rows // uma por linha de dados do CSV, na ordem do arquivo
+) {
+    public enum Status { CREATED, DUPLICATE, INVALID, FAILED }
+
+    public record Row(int line, String email, Status status, UUID userId, String message) {}
+}
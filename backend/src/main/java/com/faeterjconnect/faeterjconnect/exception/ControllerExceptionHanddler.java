@@ -1,6 +1,7 @@
 package com.faeterjconnect.faeterjconnect.exception;
 
 import com.faeterjconnect.faeterjconnect.dto.ExceptionDTO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -70,6 +71,14 @@ public class ControllerExceptionHanddler extends ExceptionCustom {
         return new ResponseEntity(exceptionDTO, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ExceptionDTO> TooManyRequestsException(TooManyRequestsException exception) {
+        ExceptionDTO exceptionDTO = new ExceptionDTO("Servidor ocupado, tente novamente em instantes.");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(exceptionDTO);
+    }
+
 //    @ExceptionHandler(IdUserAlreadyExistsException.class)
 //    public ResponseEntity handleIdUserAlreadyExists(IdUserAlreadyExistsException exception) {
 //        ExceptionDTO exceptionDTO = new ExceptionDTO("User id not found", "404");
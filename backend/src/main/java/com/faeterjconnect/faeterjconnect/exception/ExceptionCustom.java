@@ -62,5 +62,18 @@ public class ExceptionCustom {
         }
     }
 
+    // Servidor sem capacidade no momento (ex.: fila de hash de senha cheia) -> 429 + Retry-After
+    public static class TooManyRequestsException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public TooManyRequestsException(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
 }
 
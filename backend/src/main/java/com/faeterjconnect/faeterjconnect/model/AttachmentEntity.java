@@ -0,0 +1,38 @@
+package com.faeterjconnect.faeterjconnect.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Arquivo anexado a mensagens de chat, endereçado pelo conteúdo (SHA-256 em hex).
+ * O mesmo arquivo enviado várias vezes (ou em várias conversas) é gravado uma vez só.
+ */
+@Entity
+@Table(name = "tb_attachment")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "hash")
+public class AttachmentEntity {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    // miniatura gerada em segundo plano (só imagens)
+    @Column(name = "thumbnail_ready", nullable = false)
+    private boolean thumbnailReady;
+
+    @CreationTimestamp
+    private Instant createdAt;
+}
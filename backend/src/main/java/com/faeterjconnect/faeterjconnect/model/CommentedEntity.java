@@ -23,7 +23,7 @@ public class CommentedEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private UUID commentId;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY) // autor mapeado pelo UserSummaryCache
     @JoinColumn(name = "user_id")
     @JsonIgnoreProperties({"password", "role", "email",})
     private UserEntity user;
@@ -1,19 +1,20 @@
 package com.faeterjconnect.faeterjconnect.model;
 
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.Instant;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.UUID;
 
 @Entity
 @Table(name = "tb_conversation",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_conversation_pair_key", columnNames = "pair_key")
+        },
         indexes = {
-                @Index(name="idx_conversation_is_group", columnList = "is_group")
+                @Index(name="idx_conversation_is_group", columnList = "is_group"),
+                @Index(name="idx_conversation_last_activity", columnList = "last_activity_at DESC")
         })
 @Getter
 @Setter
@@ -32,25 +33,29 @@ public class ConversationEntity {
 
     private String title; // opcional (útil em grupos)
 
-    @ManyToMany
-    @JoinTable(
-            name = "tb_conversation_participants",
-            joinColumns = @JoinColumn(
-                    name = "conversation_id",              // FK nesta tabela de junção
-                    referencedColumnName = "id_conversation" // PK de ConversationEntity
-            ),
-            inverseJoinColumns = @JoinColumn(
-                    name = "user_id",                      // FK para usuário
-                    referencedColumnName = "user_id"       // PK de UserEntity
-            )
-    )
-    private Set<UserEntity> participants = new HashSet<>();
+    // 1:1: "<menorUUID>:<maiorUUID>" (ver pairKey). null em grupos. Único -> no máximo uma conversa por par.
+    @Column(name = "pair_key", length = 73)
+    private String pairKey;
+
+    // Participantes ficam em tb_conversation_participants (ConversationParticipantEntity).
+    // Sem coleção aqui: um grupo de turma tem centenas de membros e nunca é carregado inteiro.
 
     @CreationTimestamp
     private Instant createdAt;
 
-    // Conveniência para 1:1
-    public boolean isOneToOne() {
-        return !group && participants.size() == 2;
+    // Desnormalizado: atualizado a cada mensagem para o inbox não varrer tb_message
+    @Column(name = "last_message_id")
+    private UUID lastMessageId;
+
+    @Column(name = "last_activity_at")
+    private Instant lastActivityAt;
+
+    /**
+     * Chave canônica do par, independente de quem abriu a conversa.
+     * Ordena pelo texto do UUID (mesma ordem do tipo uuid no Postgres; UUID.compareTo é com sinal).
+     */
+    public static String pairKey(UUID a, UUID b) {
+        String sa = a.toString(), sb = b.toString();
+        return sa.compareTo(sb) <= 0 ? sa + ":" + sb : sb + ":" + sa;
     }
 }
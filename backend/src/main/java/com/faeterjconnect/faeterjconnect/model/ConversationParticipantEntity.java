@@ -0,0 +1,61 @@
+package com.faeterjconnect.faeterjconnect.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Linha de tb_conversation_participants vista como entidade.
+ * Guarda os "watermarks" de entrega e leitura de cada participante: tudo que foi enviado
+ * até lastDeliveredAt/lastReadAt conta como entregue/lido, sem tocar nas linhas de tb_message.
+ */
+@Entity
+@Table(name = "tb_conversation_participants",
+        indexes = {
+                @Index(name = "idx_participant_user", columnList = "user_id"),
+                @Index(name = "idx_participant_user_change_seq", columnList = "user_id, change_seq"),
+                @Index(name = "idx_participant_conversation_watermark", columnList = "conversation_id, watermark_seq")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class ConversationParticipantEntity {
+
+    @EmbeddedId
+    private ConversationParticipantId id;
+
+    @MapsId("conversationId")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "conversation_id", referencedColumnName = "id_conversation")
+    private ConversationEntity conversation;
+
+    @MapsId("userId")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", referencedColumnName = "user_id")
+    private UserEntity user;
+
+    // null = nunca leu nada (todas as mensagens dos outros contam como não lidas)
+    @Column(name = "last_read_at")
+    private Instant lastReadAt;
+
+    @Column(name = "last_read_message_id")
+    private UUID lastReadMessageId;
+
+    // sempre >= lastReadAt (ler implica ter recebido)
+    @Column(name = "last_delivered_at")
+    private Instant lastDeliveredAt;
+
+    // Última mudança na conversa que interessa a este participante (mensagem, entrada).
+    // Com (user_id, change_seq) o sync acha só as conversas que mudaram.
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    // Quando os watermarks DESTE participante mudaram (recibos para os outros membros, lidos
+    // por (conversation_id, watermark_seq) sem tocar nas linhas deles)
+    @Column(name = "watermark_seq")
+    private Long watermarkSeq;
+}
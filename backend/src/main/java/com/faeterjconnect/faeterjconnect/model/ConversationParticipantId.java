@@ -0,0 +1,23 @@
+package com.faeterjconnect.faeterjconnect.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class ConversationParticipantId implements Serializable {
+
+    @Column(name = "conversation_id")
+    private UUID conversationId;
+
+    @Column(name = "user_id")
+    private UUID userId;
+}
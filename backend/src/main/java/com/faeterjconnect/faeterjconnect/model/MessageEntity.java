@@ -12,7 +12,9 @@ import java.util.UUID;
 @Entity
 @Table(name = "tb_message",
         indexes = {
-                @Index(name="idx_message_conversation_time", columnList = "conversation_id, sentAt DESC")
+                @Index(name="idx_message_conversation_time", columnList = "conversation_id, sentAt DESC"),
+                @Index(name="idx_message_conversation_seq", columnList = "conversation_id, seq"),
+                @Index(name="idx_message_attachment", columnList = "attachmentUrl")
         })
 @Getter
 @Setter
@@ -54,4 +56,8 @@ public class MessageEntity {
 
     @Enumerated(EnumType.STRING)
     private DeliveryStatusEnum status = DeliveryStatusEnum.SENT;
+
+    // Posição no contador de mudanças do chat (monotônica, global); base do /api/chat/sync.
+    @Column(name = "seq")
+    private Long seq;
 }
@@ -24,7 +24,8 @@ public class PostEntity {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private UUID postId;
 
-    @ManyToOne
+    // LAZY: o feed só precisa do user_id; nome/papel/turno vêm do UserSummaryCache
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @JsonIgnoreProperties({"password", "role", "email",})
     private UserEntity user;
@@ -0,0 +1,40 @@
+package com.faeterjconnect.faeterjconnect.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Token revogado antes do vencimento (logout), identificado pelo claim "jti".
+ * A linha só precisa existir até o token expirar; depois disso é apagada.
+ *
+ * Usuário removido vira uma linha com token_id = user_id: derruba todo token dele até o maior
+ * vencimento possível de um token emitido antes da remoção.
+ */
+@Entity
+@Table(name = "tb_revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "tokenId")
+public class RevokedTokenEntity {
+
+    @Id
+    @Column(name = "token_id")
+    private UUID tokenId;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
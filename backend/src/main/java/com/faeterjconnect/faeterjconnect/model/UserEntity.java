@@ -1,5 +1,6 @@
 package com.faeterjconnect.faeterjconnect.model;
 
+import com.faeterjconnect.faeterjconnect.model.enums.AvatarStatusEnum;
 import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
 import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -39,6 +40,15 @@ public class UserEntity {
     // ➕ URL pública da foto (ou caminho relativo)
     @Column(name = "profile_image_url")
     private String profileImageUrl; // null = sem foto
+    // sha256 do último upload de avatar (pasta das variantes) e o estado do processamento
+    @Column(name = "avatar_hash", length = 64)
+    private String avatarHash;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "avatar_status", length = 20)
+    private AvatarStatusEnum avatarStatus;
+    // Sobe a cada mudança de papel/turno/email: tokens com versão antiga deixam de valer
+    @Column(name = "token_version")
+    private Integer tokenVersion;
 
 
 
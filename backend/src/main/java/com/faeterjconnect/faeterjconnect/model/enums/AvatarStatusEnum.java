@@ -0,0 +1,7 @@
+package com.faeterjconnect.faeterjconnect.model.enums;
+
+public enum AvatarStatusEnum {
+    PROCESSING, // upload recebido, variantes sendo geradas
+    READY,
+    FAILED
+}
@@ -0,0 +1,16 @@
+package com.faeterjconnect.faeterjconnect.repository;
+
+import com.faeterjconnect.faeterjconnect.model.AttachmentEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface AttachmentRepository extends JpaRepository<AttachmentEntity, String> {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AttachmentEntity a SET a.thumbnailReady = true WHERE a.hash = :hash")
+    int markThumbnailReady(@Param("hash") String hash);
+}
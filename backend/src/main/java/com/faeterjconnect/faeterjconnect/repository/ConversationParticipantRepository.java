@@ -0,0 +1,291 @@
+package com.faeterjconnect.faeterjconnect.repository;
+
+import com.faeterjconnect.faeterjconnect.dto.ConversationResponse;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantId;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ConversationParticipantRepository
+        extends JpaRepository<ConversationParticipantEntity, ConversationParticipantId> {
+
+    /**
+     * Inbox do usuário em UMA consulta: parte das linhas do próprio participante (idx_participant_user),
+     * junta a última mensagem pelo id desnormalizado e conta não lidas pelo índice
+     * (conversation_id, sentAt) a partir do watermark. Em 1:1 traz também o outro participante.
+     */
+    @Query("""
+        SELECT c.idConversation AS conversationId,
+               c.group AS group,
+               c.title AS title,
+               coalesce(c.lastActivityAt, c.createdAt) AS lastActivityAt,
+               ou.userId AS otherUserId,
+               ou.username AS otherUsername,
+               m.id AS lastMessageId,
+               m.sender.userId AS lastMessageSenderId,
+               substring(m.content, 1, :snippetLength) AS lastMessageSnippet,
+               m.type AS lastMessageType,
+               m.sentAt AS lastMessageSentAt,
+               (SELECT COUNT(u) FROM MessageEntity u
+                 WHERE u.conversation = c
+                   AND u.sender.userId <> :userId
+                   AND (p.lastReadAt IS NULL OR u.sentAt > p.lastReadAt)) AS unreadCount
+        FROM ConversationParticipantEntity p
+        JOIN p.conversation c
+        LEFT JOIN MessageEntity m ON m.id = c.lastMessageId
+        LEFT JOIN ConversationParticipantEntity o
+               ON o.conversation = c AND o.user.userId <> :userId AND c.group = false
+        LEFT JOIN o.user ou
+        WHERE p.user.userId = :userId
+        ORDER BY coalesce(c.lastActivityAt, c.createdAt) DESC, c.idConversation DESC
+    """)
+    List<InboxRow> findInbox(@Param("userId") UUID userId, @Param("snippetLength") int snippetLength);
+
+    /**
+     * Avança o watermark de leitura (e o de entrega junto). Nunca retrocede: um ACK atrasado
+     * (fora de ordem) não desfaz uma leitura mais recente. Uma única escrita, não importa quantas mensagens.
+     */
+    @Modifying
+    @Query("""
+        UPDATE ConversationParticipantEntity p
+           SET p.lastReadAt = :readAt,
+               p.lastReadMessageId = :messageId,
+               p.watermarkSeq = :seq,
+               p.lastDeliveredAt = CASE WHEN p.lastDeliveredAt IS NULL OR p.lastDeliveredAt < :readAt
+                                        THEN :readAt ELSE p.lastDeliveredAt END
+         WHERE p.id.conversationId = :conversationId
+           AND p.id.userId = :userId
+           AND (p.lastReadAt IS NULL OR p.lastReadAt < :readAt)
+    """)
+    int advanceReadWatermark(@Param("conversationId") UUID conversationId,
+                             @Param("userId") UUID userId,
+                             @Param("messageId") UUID messageId,
+                             @Param("readAt") Instant readAt,
+                             @Param("seq") long seq);
+
+    /** Avança o watermark de entrega; mesmas regras do de leitura. */
+    @Modifying
+    @Query("""
+        UPDATE ConversationParticipantEntity p
+           SET p.lastDeliveredAt = :deliveredAt,
+               p.watermarkSeq = :seq
+         WHERE p.id.conversationId = :conversationId
+           AND p.id.userId = :userId
+           AND (p.lastDeliveredAt IS NULL OR p.lastDeliveredAt < :deliveredAt)
+    """)
+    int advanceDeliveredWatermark(@Param("conversationId") UUID conversationId,
+                                  @Param("userId") UUID userId,
+                                  @Param("deliveredAt") Instant deliveredAt,
+                                  @Param("seq") long seq);
+
+    // O ACK só pega valor de sync (e escreve) se o watermark for mesmo andar
+    @Query("""
+        SELECT COUNT(p) > 0 FROM ConversationParticipantEntity p
+         WHERE p.id.conversationId = :conversationId
+           AND p.id.userId = :userId
+           AND (p.lastReadAt IS NULL OR p.lastReadAt < :readAt)
+    """)
+    boolean isReadBehind(@Param("conversationId") UUID conversationId,
+                         @Param("userId") UUID userId,
+                         @Param("readAt") Instant readAt);
+
+    @Query("""
+        SELECT COUNT(p) > 0 FROM ConversationParticipantEntity p
+         WHERE p.id.conversationId = :conversationId
+           AND p.id.userId = :userId
+           AND (p.lastDeliveredAt IS NULL OR p.lastDeliveredAt < :deliveredAt)
+    """)
+    boolean isDeliveredBehind(@Param("conversationId") UUID conversationId,
+                              @Param("userId") UUID userId,
+                              @Param("deliveredAt") Instant deliveredAt);
+
+    // ---------- sync (valores de ChatChangeClock) ----------
+
+    // Marca a conversa como alterada para todos os membros (um UPDATE; nunca retrocede)
+    @Modifying
+    @Query("""
+        UPDATE ConversationParticipantEntity p
+           SET p.changeSeq = :seq
+         WHERE p.id.conversationId = :conversationId
+           AND (p.changeSeq IS NULL OR p.changeSeq < :seq)
+    """)
+    int touchConversation(@Param("conversationId") UUID conversationId, @Param("seq") long seq);
+
+    // Conversas do usuário que mudaram depois de :since (range scan em idx_participant_user_change_seq)
+    @Query("""
+        SELECT p.id.conversationId AS conversationId, p.changeSeq AS changeSeq
+        FROM ConversationParticipantEntity p
+        WHERE p.id.userId = :userId AND p.changeSeq > :since
+    """)
+    List<ChangeRow> findChangedSince(@Param("userId") UUID userId, @Param("since") long since);
+
+    /**
+     * Recibos novos nas conversas do usuário. O ACK só grava a linha de quem confirmou
+     * (não marca change_seq dos outros 499 membros de um grupo): aqui cada conversa do usuário
+     * vira um range scan em idx_participant_conversation_watermark.
+     */
+    @Query("""
+        SELECT o.id.conversationId AS conversationId, o.id.userId AS userId,
+               o.lastDeliveredAt AS lastDeliveredAt, o.lastReadAt AS lastReadAt,
+               o.lastReadMessageId AS lastReadMessageId
+        FROM ConversationParticipantEntity p, ConversationParticipantEntity o
+        WHERE p.id.userId = :userId
+          AND o.id.conversationId = p.id.conversationId
+          AND o.watermarkSeq > :since
+    """)
+    List<WatermarkChangeRow> findWatermarksChangedSince(@Param("userId") UUID userId, @Param("since") long since);
+
+    // summarizeWatermarks de várias conversas de uma vez
+    @Query("""
+        SELECT p.id.conversationId AS conversationId,
+               MIN(p.lastDeliveredAt) AS minDeliveredAt,
+               MIN(p.lastReadAt) AS minReadAt,
+               COUNT(p) AS participantCount,
+               COUNT(p.lastDeliveredAt) AS deliveredCount,
+               COUNT(p.lastReadAt) AS readCount
+        FROM ConversationParticipantEntity p
+        WHERE p.id.conversationId IN :conversationIds
+        GROUP BY p.id.conversationId
+    """)
+    List<ConversationWatermarkSummary> summarizeWatermarks(@Param("conversationIds") Collection<UUID> conversationIds);
+
+    /**
+     * Menor watermark da conversa, para derivar o status das mensagens de uma página.
+     * Uma linha agregada, seja 1:1 ou grupo de 500: quem enviou já tem o próprio watermark
+     * >= sentAt (avançado no envio), então o mínimo de todos equivale ao mínimo "dos outros".
+     */
+    @Query("""
+        SELECT MIN(p.lastDeliveredAt) AS minDeliveredAt,
+               MIN(p.lastReadAt) AS minReadAt,
+               COUNT(p) AS participantCount,
+               COUNT(p.lastDeliveredAt) AS deliveredCount,
+               COUNT(p.lastReadAt) AS readCount
+        FROM ConversationParticipantEntity p
+        WHERE p.id.conversationId = :conversationId
+    """)
+    WatermarkSummary summarizeWatermarks(@Param("conversationId") UUID conversationId);
+
+    // Membros paginados (grupos de turma não são carregados inteiros)
+    @Query(value = """
+        SELECT new com.faeterjconnect.faeterjconnect.dto.ConversationResponse$ParticipantResponse(
+               u.userId, u.username, u.email)
+        FROM ConversationParticipantEntity p
+        JOIN p.user u
+        WHERE p.id.conversationId = :conversationId
+        ORDER BY u.username, u.userId
+    """, countQuery = """
+        SELECT COUNT(p) FROM ConversationParticipantEntity p
+        WHERE p.id.conversationId = :conversationId
+    """)
+    Page<ConversationResponse.ParticipantResponse> findParticipants(@Param("conversationId") UUID conversationId,
+                                                                    Pageable pageable);
+
+    // Participantes de várias conversas de uma vez (usado só para as 1:1 da listagem); só ids, sem JOIN
+    @Query("""
+        SELECT p.id.conversationId AS conversationId, p.id.userId AS userId
+        FROM ConversationParticipantEntity p
+        WHERE p.id.conversationId IN :conversationIds
+    """)
+    List<ParticipantRow> findParticipantRows(@Param("conversationIds") Collection<UUID> conversationIds);
+
+    @Query("""
+        SELECT p.id.conversationId AS conversationId, COUNT(p) AS participantCount
+        FROM ConversationParticipantEntity p
+        WHERE p.id.conversationId IN :conversationIds
+        GROUP BY p.id.conversationId
+    """)
+    List<ParticipantCountRow> countParticipants(@Param("conversationIds") Collection<UUID> conversationIds);
+
+    @Query("""
+        SELECT p.id.userId FROM ConversationParticipantEntity p
+        WHERE p.id.conversationId = :conversationId
+    """)
+    List<UUID> findParticipantIds(@Param("conversationId") UUID conversationId);
+
+    // Com quem o usuário conversa em 1:1 (grupos de turma ficam de fora da presença)
+    @Query("""
+        SELECT DISTINCT o.id.userId
+        FROM ConversationParticipantEntity p, ConversationParticipantEntity o
+        WHERE o.id.conversationId = p.id.conversationId
+          AND p.id.userId = :userId
+          AND o.id.userId <> :userId
+          AND p.conversation.group = false
+    """)
+    List<UUID> findPartnerIds(@Param("userId") UUID userId);
+
+    // Mesma coisa em lote: pares (usuário, parceiro) para vários usuários de uma vez
+    @Query("""
+        SELECT DISTINCT p.id.userId AS userId, o.id.userId AS partnerId
+        FROM ConversationParticipantEntity p, ConversationParticipantEntity o
+        WHERE o.id.conversationId = p.id.conversationId
+          AND p.id.userId IN :userIds
+          AND o.id.userId <> p.id.userId
+          AND p.conversation.group = false
+    """)
+    List<PartnerRow> findPartnerPairs(@Param("userIds") Collection<UUID> userIds);
+
+    interface PartnerRow {
+        UUID getUserId();
+        UUID getPartnerId();
+    }
+
+    interface WatermarkSummary {
+        Instant getMinDeliveredAt();
+        Instant getMinReadAt();
+        long getParticipantCount();
+        long getDeliveredCount();
+        long getReadCount();
+    }
+
+    interface ConversationWatermarkSummary extends WatermarkSummary {
+        UUID getConversationId();
+    }
+
+    interface ChangeRow {
+        UUID getConversationId();
+        long getChangeSeq();
+    }
+
+    interface WatermarkChangeRow {
+        UUID getConversationId();
+        UUID getUserId();
+        Instant getLastDeliveredAt();
+        Instant getLastReadAt();
+        UUID getLastReadMessageId();
+    }
+
+    interface ParticipantRow {
+        UUID getConversationId();
+        UUID getUserId();
+    }
+
+    interface ParticipantCountRow {
+        UUID getConversationId();
+        long getParticipantCount();
+    }
+
+    interface InboxRow {
+        UUID getConversationId();
+        boolean isGroup();
+        String getTitle();
+        Instant getLastActivityAt();
+        UUID getOtherUserId();
+        String getOtherUsername();
+        UUID getLastMessageId();
+        UUID getLastMessageSenderId();
+        String getLastMessageSnippet();
+        MessageTypeEnum getLastMessageType();
+        Instant getLastMessageSentAt();
+        long getUnreadCount();
+    }
+}
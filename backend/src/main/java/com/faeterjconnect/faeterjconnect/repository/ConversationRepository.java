@@ -3,37 +3,108 @@ package com.faeterjconnect.faeterjconnect.repository;
 import com.faeterjconnect.faeterjconnect.model.ConversationEntity;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.*;
 
 public interface ConversationRepository extends JpaRepository<ConversationEntity, UUID> {
 
-    @Query("""
-        SELECT c FROM ConversationEntity c 
-        JOIN c.participants p1 
-        JOIN c.participants p2
-        WHERE c.group = false AND p1.userId = :u1 AND p2.userId = :u2
-    """)
-    Optional<ConversationEntity> findOneToOne(@Param("u1") UUID u1, @Param("u2") UUID u2);
+    // 1:1 por chave canônica: uma sonda no índice único de pair_key
+    Optional<ConversationEntity> findByPairKey(String pairKey);
+
+    /**
+     * Cria a conversa 1:1 ou devolve a existente, atomicamente.
+     * Em corrida, o segundo INSERT esbarra no índice único, vira um UPDATE no-op e
+     * devolve o id da linha vencedora.
+     */
+    @Query(value = """
+        INSERT INTO tb_conversation (id_conversation, is_group, pair_key, created_at)
+        VALUES (:id, false, :pairKey, now())
+        ON CONFLICT (pair_key) DO UPDATE SET pair_key = EXCLUDED.pair_key
+        RETURNING id_conversation
+    """, nativeQuery = true)
+    UUID upsertOneToOne(@Param("id") UUID id, @Param("pairKey") String pairKey);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO tb_conversation_participants (conversation_id, user_id)
+        VALUES (:conversationId, :u1), (:conversationId, :u2)
+        ON CONFLICT DO NOTHING
+    """, nativeQuery = true)
+    int insertPairParticipants(@Param("conversationId") UUID conversationId,
+                               @Param("u1") UUID u1,
+                               @Param("u2") UUID u2);
+
+    /**
+     * Preenche pair_key das conversas 1:1 antigas. Se já existirem duplicadas,
+     * só a mais antiga de cada par recebe a chave (as outras continuam acessíveis pelo id).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE tb_conversation c
+           SET pair_key = k.pair_key
+          FROM (
+                SELECT DISTINCT ON (pk.pair_key) pk.conversation_id, pk.pair_key
+                FROM (
+                      SELECT p.conversation_id,
+                             string_agg(p.user_id::text, ':' ORDER BY p.user_id) AS pair_key
+                      FROM tb_conversation_participants p
+                      JOIN tb_conversation c2 ON c2.id_conversation = p.conversation_id
+                      WHERE c2.is_group = false
+                      GROUP BY p.conversation_id
+                      HAVING count(*) = 2
+                     ) pk
+                JOIN tb_conversation c3 ON c3.id_conversation = pk.conversation_id
+                WHERE NOT EXISTS (SELECT 1 FROM tb_conversation t WHERE t.pair_key = pk.pair_key)
+                ORDER BY pk.pair_key, c3.created_at, c3.id_conversation
+               ) k
+         WHERE c.id_conversation = k.conversation_id
+           AND c.pair_key IS NULL
+    """, nativeQuery = true)
+    int backfillPairKeys();
 
-    @EntityGraph(attributePaths = {"participants"})
     @Query("""
-        SELECT DISTINCT c FROM ConversationEntity c
-        JOIN c.participants p
-        WHERE p.userId = :userId
+        SELECT c FROM ConversationParticipantEntity p
+        JOIN p.conversation c
+        WHERE p.id.userId = :userId
         ORDER BY c.idConversation DESC
     """)
     List<ConversationEntity> findAllByParticipant(@Param("userId") UUID userId);
 
-    // ✅ NOVO: checagem sem carregar coleção (evita LazyInitializationException)
+    // Membros de um grupo de turma: todos os alunos do turno, num único INSERT ... SELECT
+    @Modifying
+    @Query(value = """
+        INSERT INTO tb_conversation_participants (conversation_id, user_id)
+        SELECT :conversationId, u.user_id
+        FROM tb_user u
+        WHERE u.role_enum = 'ALUNO' AND u.turno = :turno
+        ON CONFLICT DO NOTHING
+    """, nativeQuery = true)
+    int insertStudentsOfTurno(@Param("conversationId") UUID conversationId,
+                              @Param("turno") String turno);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO tb_conversation_participants (conversation_id, user_id)
+        VALUES (:conversationId, :userId)
+        ON CONFLICT DO NOTHING
+    """, nativeQuery = true)
+    int insertParticipant(@Param("conversationId") UUID conversationId,
+                          @Param("userId") UUID userId);
+
+    // Mantém as colunas desnormalizadas do inbox sem carregar a conversa
+    @Modifying
     @Query("""
-        SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END
-        FROM ConversationEntity c
-        JOIN c.participants p
-        WHERE c.idConversation = :conversationId AND p.userId = :userId
+        UPDATE ConversationEntity c
+           SET c.lastMessageId = :messageId, c.lastActivityAt = :sentAt
+         WHERE c.idConversation = :conversationId
+           AND (c.lastActivityAt IS NULL OR c.lastActivityAt <= :sentAt)
     """)
-    boolean existsByIdAndParticipant(@Param("conversationId") UUID conversationId,
-                                     @Param("userId") UUID userId);
+    int updateLastMessage(@Param("conversationId") UUID conversationId,
+                          @Param("messageId") UUID messageId,
+                          @Param("sentAt") Instant sentAt);
 
     // Optional<ConversationEntity> findById(UUID id); // <- já existe no JpaRepository; não precisa redeclarar
 }
\ No newline at end of file
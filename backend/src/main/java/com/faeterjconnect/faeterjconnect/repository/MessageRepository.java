@@ -2,12 +2,63 @@ package com.faeterjconnect.faeterjconnect.repository;
 
 import com.faeterjconnect.faeterjconnect.model.ConversationEntity;
 import com.faeterjconnect.faeterjconnect.model.MessageEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends JpaRepository<MessageEntity, UUID> {
     Page<MessageEntity> findByConversationOrderBySentAtDesc(ConversationEntity conversation, Pageable pageable);
+
+    /**
+     * Mensagens novas das conversas alteradas, em ordem de seq (idx_message_conversation_seq);
+     * as anteriores ao sync dividem um mesmo seq e saem por sentAt.
+     * Projeção + cursor do JDBC: linhas vão direto para a resposta, sem encher o contexto de persistência.
+     * Precisa de transação aberta e fechar o Stream.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT m.id AS id, m.conversation.idConversation AS conversationId, m.sender.userId AS senderId,
+               m.content AS content, m.type AS type, m.attachmentUrl AS attachmentUrl,
+               m.sentAt AS sentAt, m.seq AS seq
+        FROM MessageEntity m
+        WHERE m.conversation.idConversation IN :conversationIds AND m.seq > :since
+        ORDER BY m.seq, m.sentAt
+    """)
+    Stream<MessageSyncRow> streamSince(@Param("conversationIds") Collection<UUID> conversationIds,
+                                       @Param("since") long since);
+
+    // Download de anexo: o usuário participa de alguma conversa onde esse arquivo foi enviado?
+    @Query("""
+        SELECT CASE WHEN COUNT(m) > 0 THEN true ELSE false END
+        FROM MessageEntity m, ConversationParticipantEntity p
+        WHERE m.attachmentUrl = :attachmentUrl
+          AND p.id.conversationId = m.conversation.idConversation
+          AND p.id.userId = :userId
+    """)
+    boolean existsAttachmentVisibleTo(@Param("attachmentUrl") String attachmentUrl,
+                                      @Param("userId") UUID userId);
+
+    interface MessageSyncRow {
+        UUID getId();
+        UUID getConversationId();
+        UUID getSenderId();
+        String getContent();
+        MessageTypeEnum getType();
+        String getAttachmentUrl();
+        Instant getSentAt();
+        long getSeq();
+    }
 }
@@ -3,7 +3,6 @@ package com.faeterjconnect.faeterjconnect.repository;
 
 import com.faeterjconnect.faeterjconnect.model.PostEntity;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,8 +18,8 @@ public interface PostRepository extends JpaRepository<PostEntity, UUID> {
 
     /**
      * Primeira “página” do feed (sem cursor): ordena por createdAt DESC, postId DESC e limita por Pageable.
+     * Sem JOIN com o autor: só o user_id vem na linha (nome/papel/turno saem do UserSummaryCache).
      */
-    @EntityGraph(attributePaths = {"user"})
     @Query("""
             select p
             from PostEntity p
@@ -32,7 +31,6 @@ public interface PostRepository extends JpaRepository<PostEntity, UUID> {
      * Próximo “slice” usando keyset: (createdAt, postId) < (cursorCreatedAt, cursorPostId).
      * Usa a mesma ordenação e limite por Pageable.
      */
-    @EntityGraph(attributePaths = {"user"})
     @Query("""
             select p
             from PostEntity p
@@ -0,0 +1,36 @@
+package com.faeterjconnect.faeterjconnect.repository;
+
+import com.faeterjconnect.faeterjconnect.model.RevokedTokenEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokenEntity, UUID> {
+
+    // Carga inicial: só o que ainda não venceu
+    @Query("SELECT r.tokenId AS tokenId, r.userId AS userId, r.expiresAt AS expiresAt "
+            + "FROM RevokedTokenEntity r WHERE r.expiresAt > :now")
+    List<RevokedRow> findActive(@Param("now") Instant now);
+
+    // Sincronização entre nós: revogações feitas desde a última leitura
+    @Query("SELECT r.tokenId AS tokenId, r.userId AS userId, r.expiresAt AS expiresAt FROM RevokedTokenEntity r "
+            + "WHERE r.revokedAt >= :since AND r.expiresAt > :now")
+    List<RevokedRow> findRevokedSince(@Param("since") Instant since, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedTokenEntity r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    interface RevokedRow {
+        UUID getTokenId();
+        UUID getUserId();
+        Instant getExpiresAt();
+    }
+}
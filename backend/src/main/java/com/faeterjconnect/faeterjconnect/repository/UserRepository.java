@@ -1,12 +1,20 @@
 package com.faeterjconnect.faeterjconnect.repository;
 
 import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.AvatarStatusEnum;
 import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,5 +29,67 @@ public interface UserRepository extends JpaRepository<UserEntity, UUID> {
 
     boolean existsByEmail(String email);
 
+    // Importação em lote: quais destes emails já estão cadastrados (uma consulta por bloco)
+    @Query("select u.email from UserEntity u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     Page<UserEntity> findAllByRoleEnum(RoleEnum roleEnum, Pageable pageable);
+
+    // Só quem já teve os claims alterados (a grande maioria fica na versão 0/null)
+    @Query("select u.userId as userId, u.tokenVersion as tokenVersion from UserEntity u where u.tokenVersion > 0")
+    List<TokenVersionRow> findTokenVersions();
+
+    // Troca o hash só se ainda for o mesmo que foi conferido (senha não mudou no meio)
+    @Modifying
+    @Transactional
+    @Query("update UserEntity u set u.password = :newHash where u.userId = :userId and u.password = :oldHash")
+    int upgradePasswordHash(@Param("userId") UUID userId, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    // Fim do processamento do avatar: só vale se não chegou um upload mais novo no meio.
+    // Na falha, newHash volta ao hash anterior (o da url restaurada), senão a limpeza apagaria a foto antiga
+    @Modifying
+    @Transactional
+    @Query("update UserEntity u set u.profileImageUrl = :url, u.avatarHash = :newHash, u.avatarStatus = :status "
+            + "where u.userId = :userId and u.avatarHash = :hash")
+    int finishAvatar(@Param("userId") UUID userId, @Param("hash") String hash, @Param("newHash") String newHash,
+                     @Param("url") String url, @Param("status") AvatarStatusEnum status);
+
+    // Limpeza de avatares: o que ainda é referenciado
+    @Query("select distinct u.avatarHash from UserEntity u where u.avatarHash is not null")
+    List<String> findAvatarHashes();
+
+    @Query("select u.profileImageUrl from UserEntity u where u.profileImageUrl is not null")
+    List<String> findProfileImageUrls();
+
+    // Carga do UserDirectory: só as colunas exibidas (sem hash de senha)
+    @Query("select u.userId as userId, u.username as username, u.email as email, "
+            + "u.roleEnum as roleEnum, u.turno as turno from UserEntity u")
+    List<UserDirectoryRow> findDirectoryRows();
+
+    // Carga em lote do UserSummaryCache (só os ids que faltaram no cache)
+    @Query("select u.userId as userId, u.username as username, u.email as email, u.roleEnum as roleEnum, "
+            + "u.turno as turno, u.profileImageUrl as profileImageUrl from UserEntity u where u.userId in :ids")
+    List<UserSummaryRow> findSummaries(@Param("ids") Collection<UUID> ids);
+
+    interface UserDirectoryRow {
+        UUID getUserId();
+        String getUsername();
+        String getEmail();
+        RoleEnum getRoleEnum();
+        TurnoEnum getTurno();
+    }
+
+    interface UserSummaryRow {
+        UUID getUserId();
+        String getUsername();
+        String getEmail();
+        RoleEnum getRoleEnum();
+        TurnoEnum getTurno();
+        String getProfileImageUrl();
+    }
+
+    interface TokenVersionRow {
+        UUID getUserId();
+        Integer getTokenVersion();
+    }
 }
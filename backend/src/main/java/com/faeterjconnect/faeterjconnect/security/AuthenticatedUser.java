@@ -0,0 +1,40 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Usuário logado montado só com os claims do JWT (userId, email, role, turno, versão, jti/exp).
+ * Imutável e sem sessão JPA: o filtro não consulta o banco. Quando um service precisa
+ * da entidade, usa o id (ou userRepository.getReferenceById).
+ *
+ * Os getters têm o mesmo nome dos de UserEntity para os controllers continuarem iguais.
+ */
+@Getter
+@AllArgsConstructor
+public final class AuthenticatedUser implements Principal {
+
+    private final UUID userId;
+    private final String email;
+    private final RoleEnum roleEnum;
+    private final TurnoEnum turno;
+    private final int tokenVersion;
+    // identificação do próprio token (logout revoga por jti até o exp)
+    private final UUID tokenId;
+    private final Instant tokenExpiresAt;
+
+    public boolean isAdmin() {
+        return roleEnum == RoleEnum.ADMIN;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,8 +1,6 @@
 package com.faeterjconnect.faeterjconnect.security;
 
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
-import com.faeterjconnect.faeterjconnect.repository.ConversationRepository;
-import com.faeterjconnect.faeterjconnect.service.UserService;
+import com.faeterjconnect.faeterjconnect.service.MembershipCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -20,8 +18,7 @@ import java.util.UUID;
 public class JwtStompChannelInterceptor implements ChannelInterceptor {
 
     @Autowired TokenService tokenService;
-    @Autowired UserService userService;
-    @Autowired ConversationRepository conversationRepository;
+    @Autowired MembershipCache membershipCache;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -58,9 +55,8 @@ public class JwtStompChannelInterceptor implements ChannelInterceptor {
         }
         String token = auth.startsWith("Bearer ") ? auth.substring(7) : auth;
 
-        String userEmail = tokenService.validateAndGetSubject(token); // retorna email ou lança
-        UserEntity user = userService.findByEmail(userEmail)
-                .orElseThrow(() -> new AccessDeniedException("Usuário inválido"));
+        // Usuário vem dos claims (retorna ou lança); não consulta tb_user
+        AuthenticatedUser user = tokenService.validateAndGetPrincipal(token);
 
         // Define Principal (com userId e email)
         accessor.setUser(new StompPrincipal(user.getUserId().toString(), user.getEmail()));
@@ -87,8 +83,8 @@ public class JwtStompChannelInterceptor implements ChannelInterceptor {
                 throw new AccessDeniedException("Destino inválido: conversationId não é UUID");
             }
 
-            // ✅ NÃO carrega a conversa nem acessa coleção LAZY:
-            boolean allowed = conversationRepository.existsByIdAndParticipant(conversationId, userId);
+            // ✅ NÃO carrega a conversa nem acessa coleção LAZY (e reaproveita o cache de participantes):
+            boolean allowed = membershipCache.isParticipant(conversationId, userId);
             System.out.println("[WS][SUBSCRIBE] userId=" + userId + " convId=" + conversationId + " allowed=" + allowed);
 
             if (!allowed) {
@@ -97,11 +93,16 @@ public class JwtStompChannelInterceptor implements ChannelInterceptor {
         }
     }
 
+    /**
+     * getName() devolve o userId: é a chave que o Spring usa para resolver destinos
+     * /user/{name}/queue/..., então convertAndSendToUser(userId.toString(), ...) funciona direto.
+     */
     public static class StompPrincipal implements Principal {
         private final String userId;
-        private final String name;
-        public StompPrincipal(String userId, String name) { this.userId = userId; this.name = name; }
-        @Override public String getName() { return name; }
+        private final String email;
+        public StompPrincipal(String userId, String email) { this.userId = userId; this.email = email; }
+        @Override public String getName() { return userId; }
         public String getUserId() { return userId; }
+        public String getEmail() { return email; }
     }
 }
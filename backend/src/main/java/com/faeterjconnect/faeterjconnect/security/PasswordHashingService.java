@@ -0,0 +1,196 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.faeterjconnect.faeterjconnect.exception.ExceptionCustom;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt fora das threads do Tomcat, num pool limitado a poucos núcleos.
+ *
+ * Num pico de logins (início de semestre) o hash satura a CPU; com o pool limitado, feed e chat
+ * continuam com núcleos livres. A fila é curta de propósito: cheia, o pedido é recusado na hora
+ * com 429 + Retry-After (estimado pelo tempo médio de um hash) em vez de esperar e estourar timeout.
+ *
+ * Custo do BCrypt em app.security.bcrypt.strength; needsRehash() indica hashes com outro custo
+ * (o UserService refaz no login, em segundo plano).
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${app.security.bcrypt.strength:10}")
+    private int strength;
+
+    // 0 = metade dos núcleos (mínimo 1)
+    @Value("${app.security.bcrypt.threads:0}")
+    private int threads;
+
+    @Value("${app.security.bcrypt.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${app.security.bcrypt.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    // média móvel do tempo de um hash (ns), usada no Retry-After
+    private final AtomicLong avgHashNanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(80));
+
+    @PostConstruct
+    void init() {
+        int n = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        threads = n;
+        executor = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        System.out.println("[AUTH] bcrypt: custo=" + strength + " threads=" + n + " fila=" + queueCapacity);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Vários hashes em paralelo (importação em lote), na ordem da lista. O lote nunca ocupa mais
+     * que os threads do pool ao mesmo tempo, deixando a fila para os logins; se ela estiver cheia,
+     * espera um hash do próprio lote terminar em vez de recusar com 429.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        try {
+            for (CharSequence raw : rawPasswords) {
+                while (futures.size() - hashes.size() >= threads) {
+                    hashes.add(await(futures.get(hashes.size())));
+                }
+                for (;;) {
+                    try {
+                        futures.add(executor.submit(() -> timed(() -> passwordEncoder.encode(raw))));
+                        break;
+                    } catch (RejectedExecutionException e) {
+                        if (hashes.size() < futures.size()) {
+                            hashes.add(await(futures.get(hashes.size())));
+                        } else {
+                            pause(); // fila tomada por logins: deixa andar
+                        }
+                    }
+                }
+            }
+            while (hashes.size() < futures.size()) {
+                hashes.add(await(futures.get(hashes.size())));
+            }
+            return hashes;
+        } catch (RuntimeException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+    }
+
+    /** Hash gravado com custo diferente do configurado (ou em outro formato). */
+    public boolean needsRehash(String encodedPassword) {
+        // $2a$10$... -> custo nas posições 4-5
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') return false;
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Refaz o hash em segundo plano, se houver folga no pool; senão fica para o próximo login.
+     * O callback recebe o hash novo (gravar no banco).
+     */
+    public void rehashInBackground(CharSequence rawPassword, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onHashed.accept(timed(() -> passwordEncoder.encode(rawPassword)));
+                } catch (Exception e) {
+                    System.err.println("[AUTH][ERR] falha ao atualizar hash de senha: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // pool cheio: não disputa lugar com logins
+        }
+    }
+
+    private <T> T submit(Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            throw new ExceptionCustom.TooManyRequestsException(retryAfterSeconds());
+        }
+        return await(future);
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ExceptionCustom.TooManyRequestsException(retryAfterSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrompido aguardando hash de senha", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando hash de senha", e);
+        }
+    }
+
+    private <T> T timed(Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            long took = System.nanoTime() - start;
+            avgHashNanos.updateAndGet(avg -> avg + (took - avg) / 8); // EWMA 1/8
+        }
+    }
+
+    // Tempo para esvaziar a fila atual com os threads disponíveis (mínimo 1s)
+    private long retryAfterSeconds() {
+        long queued = executor.getQueue().size() + executor.getActiveCount();
+        long nanos = queued * avgHashNanos.get() / Math.max(1, threads);
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos) + 1);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,52 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica o RateLimiter nas rotas HTTP configuradas. Roda depois do SecurityFilter:
+ * logado conta por userId, anônimo (login/registro) conta por IP.
+ *
+ * O IP é o do cliente mesmo atrás do balanceador: server.forward-headers-strategy faz o
+ * getRemoteAddr() usar o X-Forwarded-For de proxies confiáveis.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    RateLimiter rateLimiter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RateLimiter.Rule rule = rateLimiter.match(request.getMethod(), request.getRequestURI());
+        if (rule != null) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            Object key = (auth != null && auth.getPrincipal() instanceof AuthenticatedUser user)
+                    ? user.getUserId()
+                    : request.getRemoteAddr();
+
+            long waitNanos = rateLimiter.tryAcquire(rule, key);
+            if (waitNanos > 0) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+                response.setStatus(429);
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+                response.setContentType("application/json");
+                response.setCharacterEncoding("UTF-8");
+                response.getWriter().write("{\"message\":\"Muitas requisições, tente novamente em instantes.\"}");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,184 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.faeterjconnect.faeterjconnect.exception.ExceptionCustom;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limite de taxa em memória (token bucket) por regra + chave (userId, ou IP em rota anônima).
+ *
+ * Cada balde é um único AtomicLong com o "instante teórico de chegada" (GCRA): equivale a um
+ * token bucket de capacidade N que enche N fichas por período, mas a checagem é um CAS só,
+ * sem lock e sem alocar nada quando a chave já existe.
+ *
+ * Regras em app.ratelimit.rules, uma por item: "nome=MÉTODO /caminho N/segundos"
+ * (N fichas de rajada, repostas ao longo de "segundos"). MÉTODO é o verbo HTTP, "*" (qualquer um),
+ * SEND (destino STOMP) ou LOGIN (conferido no login por IP + email, ver acquireOrThrow);
+ * um segmento "*" no caminho casa qualquer valor.
+ *
+ * Mapa por regra limitado a app.ratelimit.max-keys-per-rule. Balde cheio de novo (ocioso) é igual
+ * a um balde novo, então a limpeza remove sem perder estado. Se mesmo assim não couber, chaves
+ * novas dividem um balde de transbordo da regra até a próxima limpeza.
+ */
+@Component
+public class RateLimiter {
+
+    @Value("${app.ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ratelimit.rules:}")
+    private List<String> ruleSpecs;
+
+    @Value("${app.ratelimit.max-keys-per-rule:100000}")
+    private int maxKeysPerRule;
+
+    private Rule[] rules = new Rule[0];
+
+    @PostConstruct
+    void init() {
+        List<Rule> parsed = new ArrayList<>();
+        for (String spec : ruleSpecs) {
+            if (spec == null || spec.isBlank()) continue;
+            parsed.add(Rule.parse(spec.trim()));
+        }
+        rules = parsed.toArray(new Rule[0]);
+        System.out.println("[RATE] " + rules.length + " regras" + (enabled ? "" : " (desligado)"));
+    }
+
+    /** Regra que vale para o método/caminho (a primeira que casa) ou null. Não aloca. */
+    public Rule match(String method, String path) {
+        if (!enabled || method == null || path == null) return null;
+        for (Rule r : rules) {
+            if (r.matches(method, path)) return r;
+        }
+        return null;
+    }
+
+    /**
+     * Consome uma ficha do balde da chave.
+     * @return 0 se liberado; senão, nanos até a próxima ficha (Retry-After)
+     */
+    public long tryAcquire(Rule rule, Object key) {
+        long now = System.nanoTime();
+        AtomicLong tat = rule.buckets.get(key);
+        if (tat == null) tat = newBucket(rule, key, now);
+
+        for (;;) {
+            long current = tat.get();
+            long start = (current - now > 0) ? current : now; // balde nunca acumula além de cheio
+            long wait = start - now - rule.toleranceNanos;
+            if (wait > 0) return wait;
+            if (tat.compareAndSet(current, start + rule.intervalNanos)) return 0;
+        }
+    }
+
+    /**
+     * Para chaves que só o controller conhece (ex.: IP + email no login): consome uma ficha da regra
+     * que casa com método/caminho, se houver.
+     * @throws ExceptionCustom.TooManyRequestsException acima do limite (429 + Retry-After)
+     */
+    public void acquireOrThrow(String method, String path, Object key) {
+        Rule rule = match(method, path);
+        if (rule == null) return;
+        long waitNanos = tryAcquire(rule, key);
+        if (waitNanos > 0) {
+            throw new ExceptionCustom.TooManyRequestsException(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+        }
+    }
+
+    private AtomicLong newBucket(Rule rule, Object key, long now) {
+        if (rule.buckets.size() >= maxKeysPerRule) {
+            // no máximo uma varredura por segundo, mesmo sob enxurrada de chaves novas
+            long last = rule.lastSweep.get();
+            if (now - last > TimeUnit.SECONDS.toNanos(1) && rule.lastSweep.compareAndSet(last, now)) {
+                sweep(rule, now);
+            }
+            if (rule.buckets.size() >= maxKeysPerRule) return rule.overflow;
+        }
+        AtomicLong fresh = new AtomicLong(now);
+        AtomicLong existing = rule.buckets.putIfAbsent(key, fresh);
+        return existing != null ? existing : fresh;
+    }
+
+    @Scheduled(fixedDelayString = "${app.ratelimit.sweep-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Rule r : rules) sweep(r, now);
+    }
+
+    private static void sweep(Rule rule, long now) {
+        rule.buckets.values().removeIf(tat -> tat.get() - now <= 0);
+    }
+
+    public static final class Rule {
+        final String name;
+        final String method;
+        final String[] segments;
+        final long intervalNanos;   // tempo para repor uma ficha
+        final long toleranceNanos;  // rajada: (capacidade - 1) fichas adiantadas
+        final Map<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicLong overflow = new AtomicLong(System.nanoTime());
+        final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+        private Rule(String name, String method, String[] segments, int capacity, long periodSeconds) {
+            this.name = name;
+            this.method = method;
+            this.segments = segments;
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(periodSeconds) / capacity;
+            this.toleranceNanos = intervalNanos * (capacity - 1);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // "post-create=POST /api/posts/create 10/60"
+        static Rule parse(String spec) {
+            int eq = spec.indexOf('=');
+            String[] parts = spec.substring(eq + 1).trim().split("\\s+");
+            if (eq <= 0 || parts.length != 3 || !parts[1].startsWith("/") || parts[2].indexOf('/') <= 0) {
+                throw new IllegalArgumentException("Regra de rate limit inválida: " + spec);
+            }
+            String[] budget = parts[2].split("/");
+            int capacity = Integer.parseInt(budget[0]);
+            long period = Long.parseLong(budget[1]);
+            if (capacity <= 0 || period <= 0) {
+                throw new IllegalArgumentException("Regra de rate limit inválida: " + spec);
+            }
+            return new Rule(spec.substring(0, eq).trim(), parts[0].toUpperCase(),
+                    parts[1].substring(1).split("/"), capacity, period);
+        }
+
+        boolean matches(String requestMethod, String path) {
+            if (method.equals("*")) {
+                if (requestMethod.equals("OPTIONS")) return false; // preflight não conta
+            } else if (!method.equals(requestMethod)) {
+                return false;
+            }
+            // compara segmento a segmento sem quebrar a string
+            int pos = 0, len = path.length();
+            for (String seg : segments) {
+                if (pos >= len || path.charAt(pos) != '/') return false;
+                pos++;
+                int end = path.indexOf('/', pos);
+                if (end < 0) end = len;
+                if (seg.equals("*")) {
+                    if (end == pos) return false;
+                } else if (end - pos != seg.length() || !path.regionMatches(pos, seg, 0, seg.length())) {
+                    return false;
+                }
+                pos = end;
+            }
+            return pos == len || (pos == len - 1 && path.charAt(pos) == '/');
+        }
+    }
+}
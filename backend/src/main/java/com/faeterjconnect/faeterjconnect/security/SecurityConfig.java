@@ -2,6 +2,7 @@ package com.faeterjconnect.faeterjconnect.security;
 
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -35,6 +36,9 @@ public class SecurityConfig {
     @Autowired
     SecurityFilter securityFilter;
 
+    @Autowired
+    RateLimitFilter rateLimitFilter;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -59,7 +63,9 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 )
                 // Filtro de token antes do UsernamePasswordAuthenticationFilter
-                .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class)
+                // Limite de taxa depois do token (já sabe o userId)
+                .addFilterAfter(rateLimitFilter, SecurityFilter.class);
 
         return http.build();
     }
@@ -77,9 +83,10 @@ public class SecurityConfig {
         return source;
     }
 
+    // Custo do BCrypt configurável; hashes com custo diferente são refeitos no próximo login
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -1,7 +1,5 @@
 package com.faeterjconnect.faeterjconnect.security;
 
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
-import com.faeterjconnect.faeterjconnect.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,22 +20,16 @@ public class SecurityFilter extends OncePerRequestFilter {
     @Autowired
     TokenService tokenService;
 
-    @Autowired
-    UserRepository userRepository;
-
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         var token = this.recoverToken(request);
-        var login = tokenService.validateToken(token);
-
-        if (login != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserEntity user = userRepository.findByEmail(login).orElse(null);
+        // Principal vem dos claims do token: nenhuma consulta a tb_user por requisição
+        AuthenticatedUser user = tokenService.authenticate(token);
 
-            if (user != null) {
-                var autorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRoleEnum().toString()));
-                var authentication = new UsernamePasswordAuthenticationToken(user, null, autorities);
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            }
+        if (user != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            var autorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRoleEnum().toString()));
+            var authentication = new UsernamePasswordAuthenticationToken(user, null, autorities);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
         }
         filterChain.doFilter(request, response);
     }
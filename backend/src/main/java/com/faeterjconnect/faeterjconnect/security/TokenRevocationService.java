@@ -0,0 +1,165 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.faeterjconnect.faeterjconnect.model.RevokedTokenEntity;
+import com.faeterjconnect.faeterjconnect.repository.RevokedTokenRepository;
+import com.faeterjconnect.faeterjconnect.util.UuidBloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokens revogados (logout) por "jti", persistidos em tb_revoked_token e espelhados em memória:
+ * um filtro de Bloom na frente de um conjunto exato. Quase todo token não está revogado e
+ * sai no primeiro bit zerado do filtro; só um "talvez" consulta o conjunto. Nada vai ao banco
+ * no caminho da requisição.
+ *
+ * O filtro não remove elementos: ele é reconstruído a partir do conjunto quando enche e na
+ * limpeza periódica (que também apaga do banco o que já venceu). Outros nós veem uma revogação
+ * nova no próximo sync (api.security.revocation.sync-ms).
+ *
+ * Usuário removido entra como linha com token_id = user_id (ver RevokedTokenEntity) e fica num mapa
+ * à parte, consultado pelo userId do token; assim vale depois de restart e em todos os nós.
+ *
+ * "Encerrar todas as sessões" não passa por aqui: sobe o token_version do usuário (TokenVersionRegistry).
+ */
+@Component
+public class TokenRevocationService {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${api.security.token.expiration-hours}")
+    private long expirationHours;
+
+    @Value("${api.security.revocation.expected-entries:10000}")
+    private int expectedEntries;
+
+    @Value("${api.security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Janela extra relida a cada sync: cobre commits atrasados e diferença de relógio entre nós
+    @Value("${api.security.revocation.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    private final Map<UUID, Long> revoked = new ConcurrentHashMap<>(); // jti -> exp (epoch ms)
+    private final Map<UUID, Long> revokedUsers = new ConcurrentHashMap<>(); // userId -> até quando (epoch ms)
+    private volatile UuidBloomFilter filter;
+    private int filterCapacity;
+    private volatile Instant lastSync;
+
+    @PostConstruct
+    void load() {
+        Instant now = Instant.now();
+        try {
+            for (RevokedTokenRepository.RevokedRow row : revokedTokenRepository.findActive(now)) {
+                if (isUserRow(row)) {
+                    revokedUsers.put(row.getUserId(), row.getExpiresAt().toEpochMilli());
+                } else {
+                    revoked.put(row.getTokenId(), row.getExpiresAt().toEpochMilli());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[AUTH][ERR] falha ao carregar tokens revogados: " + e.getMessage());
+        }
+        rebuild();
+        lastSync = now;
+        System.out.println("[AUTH] tokens revogados carregados: " + revoked.size()
+                + ", usuários removidos: " + revokedUsers.size()
+                + " (filtro com " + filter.bitCount() + " bits)");
+    }
+
+    public boolean isRevoked(UUID tokenId) {
+        if (tokenId == null) return false;
+        if (!filter.mightContain(tokenId)) return false; // caminho de quase todos
+        return revoked.containsKey(tokenId);
+    }
+
+    /** Usuário removido há menos tempo que a validade de um token? */
+    public boolean isUserRevoked(UUID userId) {
+        if (userId == null || revokedUsers.isEmpty()) return false;
+        Long until = revokedUsers.get(userId);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    /** Usuário removido: todo token emitido antes de agora deixa de valer, em todos os nós. Idempotente. */
+    public void revokeUser(UUID userId) {
+        if (userId == null) return;
+        Instant now = Instant.now();
+        Instant until = now.plusSeconds(expirationHours * 3600);
+        revokedTokenRepository.save(new RevokedTokenEntity(userId, userId, until, now));
+        revokedUsers.merge(userId, until.toEpochMilli(), Math::max);
+    }
+
+    /** Revoga um token até o vencimento dele. Idempotente. */
+    public void revoke(UUID tokenId, UUID userId, Instant expiresAt) {
+        if (tokenId == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) return;
+        if (!revokedTokenRepository.existsById(tokenId)) {
+            revokedTokenRepository.save(new RevokedTokenEntity(tokenId, userId, expiresAt, Instant.now()));
+        }
+        remember(tokenId, expiresAt.toEpochMilli());
+    }
+
+    @Scheduled(fixedDelayString = "${api.security.revocation.sync-ms:10000}",
+            initialDelayString = "${api.security.revocation.sync-ms:10000}")
+    public void sync() {
+        Instant now = Instant.now();
+        try {
+            for (RevokedTokenRepository.RevokedRow row
+                    : revokedTokenRepository.findRevokedSince(lastSync.minusMillis(syncOverlapMs), now)) {
+                if (isUserRow(row)) {
+                    revokedUsers.merge(row.getUserId(), row.getExpiresAt().toEpochMilli(), Math::max);
+                } else {
+                    remember(row.getTokenId(), row.getExpiresAt().toEpochMilli());
+                }
+            }
+            lastSync = now;
+        } catch (Exception e) {
+            System.err.println("[AUTH][ERR] falha ao sincronizar tokens revogados: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${api.security.revocation.prune-ms:600000}")
+    public void prune() {
+        Instant now = Instant.now();
+        try {
+            revokedTokenRepository.deleteExpired(now);
+        } catch (Exception e) {
+            System.err.println("[AUTH][ERR] falha ao limpar tokens revogados: " + e.getMessage());
+        }
+        synchronized (this) {
+            long nowMs = now.toEpochMilli();
+            revoked.values().removeIf(exp -> exp <= nowMs);
+            rebuild();
+        }
+        revokedUsers.values().removeIf(until -> until <= now.toEpochMilli());
+    }
+
+    private static boolean isUserRow(RevokedTokenRepository.RevokedRow row) {
+        return row.getTokenId().equals(row.getUserId());
+    }
+
+    private synchronized void remember(UUID tokenId, long expiresAtMillis) {
+        if (revoked.put(tokenId, expiresAtMillis) != null) return;
+        if (revoked.size() > filterCapacity) {
+            rebuild(); // passou do tamanho planejado: a taxa de falso positivo subiria
+        } else {
+            filter.add(tokenId);
+        }
+    }
+
+    // Sempre sob o lock: um remember() concorrente nunca fica fora do filtro novo
+    private synchronized void rebuild() {
+        int capacity = Math.max(expectedEntries, revoked.size() * 2);
+        UuidBloomFilter fresh = new UuidBloomFilter(capacity, falsePositiveRate);
+        revoked.keySet().forEach(fresh::add);
+        filterCapacity = capacity;
+        filter = fresh;
+    }
+}
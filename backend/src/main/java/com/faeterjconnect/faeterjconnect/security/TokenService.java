@@ -4,17 +4,40 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
 import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import com.faeterjconnect.faeterjconnect.util.CacheEviction;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class TokenService {
 
+    // Claims do usuário: o filtro monta o AuthenticatedUser só com eles (sem consultar tb_user)
+    static final String CLAIM_USER_ID = "userId";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_TURNO = "turno";
+    static final String CLAIM_VERSION = "ver";
+
+    @Autowired
+    private TokenVersionRegistry tokenVersions;
+    @Autowired
+    private TokenRevocationService revocations;
+
     @Value("${api.security.token.secret}")
     private String secret;
 
@@ -24,12 +47,44 @@ public class TokenService {
     @Value("${api.security.token.expiration-hours}")
     private long expirationHours;
 
+    @Value("${api.security.token.cache-max-entries:100000}")
+    private int cacheMaxEntries;
+
+    // Algorithm/JWTVerifier são imutáveis e thread-safe: montados uma vez só
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+
+    /**
+     * Tokens já verificados -> usuário/expiração. A chave é o próprio token (lookup por hash +
+     * equals do texto inteiro), então um token só acerta o cache se for idêntico ao que passou
+     * pela verificação do HMAC. Só tokens válidos entram; inválidos sempre vão ao verifier.
+     * Cheio, abre espaço pelo CacheEviction em vez de recusar o token novo.
+     */
+    private final Map<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+    private final CacheEviction eviction = new CacheEviction(1000);
+
+    private record VerifiedToken(AuthenticatedUser user, long expiresAtMillis) {}
+
+    @PostConstruct
+    void init() {
+        algorithm = Algorithm.HMAC256(secret);
+        verifier = JWT.require(algorithm)
+                .withIssuer(issuer)
+                // .acceptLeeway(2) // opcional: tolerância de clock em segundos
+                .build();
+    }
+
     public String generateToken(UserEntity user) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
             return JWT.create()
                     .withIssuer(issuer)
                     .withSubject(user.getEmail()) // subject = email
+                    .withJWTId(UUID.randomUUID().toString())
+                    .withClaim(CLAIM_USER_ID, user.getUserId().toString())
+                    .withClaim(CLAIM_ROLE, user.getRoleEnum() != null ? user.getRoleEnum().name() : null)
+                    .withClaim(CLAIM_TURNO, user.getTurno() != null ? user.getTurno().name() : null)
+                    .withClaim(CLAIM_VERSION, user.getTokenVersion() != null ? user.getTokenVersion() : 0)
                     .withExpiresAt(generateExpireDate())
                     .sign(algorithm);
         } catch (JWTCreationException exception) {
@@ -44,14 +99,17 @@ public class TokenService {
     public String validateToken(String token) {
         if (token == null || token.isBlank()) return null;
         try {
-            token = stripBearer(token);
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            return JWT.require(algorithm)
-                    .withIssuer(issuer)
-                    // .acceptLeeway(2) // opcional: tolerância de clock em segundos
-                    .build()
-                    .verify(token)
-                    .getSubject();
+            return verify(stripBearer(token)).getEmail();
+        } catch (JWTVerificationException exception) {
+            return null;
+        }
+    }
+
+    /** Valida e devolve o usuário dos claims, ou null se inválido/expirado/desatualizado. */
+    public AuthenticatedUser authenticate(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            return verify(stripBearer(token));
         } catch (JWTVerificationException exception) {
             return null;
         }
@@ -63,22 +121,16 @@ public class TokenService {
      * Ideal para fluxos onde você quer falhar explicitamente (ex.: WebSocket CONNECT).
      */
     public String validateAndGetSubject(String token) {
+        return validateAndGetPrincipal(token).getEmail(); // <- email
+    }
+
+    /** Como validateAndGetSubject, mas devolve o usuário inteiro dos claims. */
+    public AuthenticatedUser validateAndGetPrincipal(String token) {
         if (token == null || token.isBlank()) {
             throw new JWTVerificationException("Token ausente ou vazio");
         }
         try {
-            token = stripBearer(token);
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            var verifier = JWT.require(algorithm)
-                    .withIssuer(issuer)
-                    // .acceptLeeway(2) // opcional: tolerância de 2s
-                    .build();
-            var decoded = verifier.verify(token); // verifica assinatura, issuer e expiração
-            String subject = decoded.getSubject();
-            if (subject == null || subject.isBlank()) {
-                throw new JWTVerificationException("Subject ausente no token");
-            }
-            return subject; // <- email
+            return verify(stripBearer(token));
         } catch (JWTVerificationException e) {
             // Repassa a exceção para o chamador lidar (ex.: 401/403)
             throw e;
@@ -88,6 +140,80 @@ public class TokenService {
         }
     }
 
+    /**
+     * Cache primeiro; se não tem (ou expirou), verifica assinatura, issuer e expiração
+     * e guarda o resultado até o "exp" do token. A versão dos claims é conferida sempre
+     * (também no acerto de cache): papel/turno trocado -> o cliente precisa logar de novo.
+     */
+    private AuthenticatedUser verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(token);
+        if (cached != null) {
+            // Mesma regra do verifier (sem leeway): válido enquanto agora < "exp"
+            if (now < cached.expiresAtMillis()) return requireNotRevoked(cached.user());
+            verified.remove(token);
+            throw new TokenExpiredException("The Token has expired on " + Instant.ofEpochMilli(cached.expiresAtMillis()) + ".",
+                    Instant.ofEpochMilli(cached.expiresAtMillis()));
+        }
+
+        DecodedJWT decoded = verifier.verify(token);
+        AuthenticatedUser user = toPrincipal(decoded);
+        Instant exp = decoded.getExpiresAtAsInstant();
+        if (exp != null && cacheMaxEntries > 0) {
+            if (verified.size() >= cacheMaxEntries) eviction.makeRoom(verified, cacheMaxEntries, this::evictExpired);
+            verified.put(token, new VerifiedToken(user, exp.toEpochMilli()));
+        }
+        return requireNotRevoked(user);
+    }
+
+    private AuthenticatedUser toPrincipal(DecodedJWT decoded) {
+        String subject = decoded.getSubject();
+        if (subject == null || subject.isBlank()) {
+            throw new JWTVerificationException("Subject ausente no token");
+        }
+        String userId = decoded.getClaim(CLAIM_USER_ID).asString();
+        String role = decoded.getClaim(CLAIM_ROLE).asString();
+        if (userId == null || role == null) {
+            // Token emitido antes dos claims de usuário: exige novo login
+            throw new JWTVerificationException("Token sem claims de usuário; faça login novamente");
+        }
+        String turno = decoded.getClaim(CLAIM_TURNO).asString();
+        Integer version = decoded.getClaim(CLAIM_VERSION).asInt();
+        String jti = decoded.getId();
+        try {
+            return new AuthenticatedUser(
+                    UUID.fromString(userId),
+                    subject,
+                    RoleEnum.valueOf(role),
+                    turno != null ? TurnoEnum.valueOf(turno) : null,
+                    version != null ? version : 0,
+                    jti != null ? UUID.fromString(jti) : null,
+                    decoded.getExpiresAtAsInstant());
+        } catch (IllegalArgumentException e) {
+            throw new JWTVerificationException("Claims inválidos no token");
+        }
+    }
+
+    // Só memória: versão dos claims (sessões encerradas/papel trocado), usuário removido e jti revogado (logout)
+    private AuthenticatedUser requireNotRevoked(AuthenticatedUser user) {
+        if (!tokenVersions.isCurrent(user.getUserId(), user.getTokenVersion())) {
+            throw new JWTVerificationException("Token desatualizado; faça login novamente");
+        }
+        if (revocations.isUserRevoked(user.getUserId())) {
+            throw new JWTVerificationException("Usuário removido");
+        }
+        if (revocations.isRevoked(user.getTokenId())) {
+            throw new JWTVerificationException("Token revogado");
+        }
+        return user;
+    }
+
+    @Scheduled(fixedDelayString = "${api.security.token.cache-evict-ms:300000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(t -> t.expiresAtMillis() <= now);
+    }
+
     private String stripBearer(String token) {
         return token.startsWith("Bearer ") ? token.substring(7) : token;
     }
@@ -0,0 +1,54 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versão atual dos claims de cada usuário (tb_user.token_version), em memória.
+ *
+ * Só entram usuários com versão > 0, então o mapa é pequeno. A troca local (UserService) vale na hora;
+ * outros nós enxergam no próximo refresh (api.security.token.version-refresh-ms).
+ * Versões só crescem, por isso o refresh junta com max e nunca desfaz um bump local.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<UUID, Integer> versions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${api.security.token.version-refresh-ms:10000}",
+            initialDelayString = "${api.security.token.version-refresh-ms:10000}")
+    public void refresh() {
+        try {
+            for (UserRepository.TokenVersionRow row : userRepository.findTokenVersions()) {
+                versions.merge(row.getUserId(), row.getTokenVersion(), Math::max);
+            }
+        } catch (Exception e) {
+            System.err.println("[AUTH][ERR] falha ao recarregar versões de token: " + e.getMessage());
+        }
+    }
+
+    public int current(UUID userId) {
+        return versions.getOrDefault(userId, 0);
+    }
+
+    /** O token ainda reflete os claims atuais do usuário? */
+    public boolean isCurrent(UUID userId, int tokenVersion) {
+        return tokenVersion >= current(userId);
+    }
+
+    /** Chamado depois de gravar a nova versão no banco. */
+    public void bump(UUID userId, int newVersion) {
+        versions.merge(userId, newVersion, Math::max);
+    }
+}
@@ -0,0 +1,233 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.model.AttachmentEntity;
+import com.faeterjconnect.faeterjconnect.repository.AttachmentRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Anexos de chat gravados por conteúdo no MediaStore: "attachments/<sha256>/original" e
+ * "attachments/<sha256>/thumb.jpg". Com o S3 qualquer nó serve o anexo enviado por outro.
+ *
+ * Upload: o multipart já chega em arquivo temporário (file-size-threshold=0); daqui ele é
+ * copiado em blocos passando por um DigestInputStream, então a memória por upload é constante.
+ * Se o hash já existe, o arquivo novo é descartado (deduplicação).
+ *
+ * Miniaturas de imagens são geradas num pool pequeno e limitado, fora da thread do request.
+ * Fila cheia -> a miniatura é pulada e o download da miniatura cai no original.
+ */
+@Service
+public class ChatAttachmentService {
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+    @Autowired
+    private ImageProcessingService imageProcessing;
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Value("${app.media.local-path}")
+    private String mediaLocalPath;
+
+    @Value("${app.chat.attachments.max-bytes:26214400}")
+    private long maxBytes;
+
+    @Value("${app.chat.attachments.thumbnail-size:320}")
+    private int thumbnailSize;
+
+    public static final String URL_PREFIX = "/api/chat/attachments/";
+
+    static final String NAMESPACE = "attachments";
+
+    private static final Set<String> ALLOWED = Set.of(
+            "image/jpeg", "image/png", "image/webp", "image/gif",
+            "application/pdf", "text/plain", "application/zip",
+            "application/msword",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation"
+    );
+
+    private final ExecutorService thumbnailExecutor = new ThreadPoolExecutor(
+            1, 2, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(100),
+            r -> {
+                Thread t = new Thread(r, "chat-thumbnail");
+                t.setDaemon(true);
+                return t;
+            },
+            (r, ex) -> System.err.println("[CHAT][ATT] fila de miniaturas cheia; miniatura ignorada"));
+
+    public AttachmentEntity store(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Arquivo é obrigatório.");
+        }
+        if (!ALLOWED.contains(file.getContentType())) {
+            throw new IllegalArgumentException("Tipo de arquivo não permitido.");
+        }
+        if (file.getSize() > maxBytes) {
+            throw new IllegalArgumentException("Arquivo muito grande (máximo " + (maxBytes / (1024 * 1024)) + "MB).");
+        }
+
+        Path tmp = Files.createTempFile(stagingDir(), "up-", ".part");
+
+        String hash;
+        long size;
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+
+            String key = originalKey(hash);
+            if (mediaStore.exists(key)) {
+                Files.deleteIfExists(tmp); // mesmo conteúdo já está guardado
+            } else {
+                // upload idêntico ao mesmo tempo só regrava os mesmos bytes
+                mediaStore.put(key, tmp, file.getContentType());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        AttachmentEntity attachment = attachmentRepository.findById(hash).orElse(null);
+        if (attachment == null) {
+            try {
+                attachment = attachmentRepository.saveAndFlush(
+                        new AttachmentEntity(hash, file.getContentType(), size, false, null));
+            } catch (DataIntegrityViolationException e) {
+                attachment = attachmentRepository.findById(hash).orElseThrow(() -> e);
+            }
+        }
+
+        if (isImage(attachment.getContentType()) && !attachment.isThumbnailReady()) {
+            String h = hash;
+            thumbnailExecutor.execute(() -> generateThumbnail(h));
+        }
+        return attachment;
+    }
+
+    public Optional<AttachmentEntity> find(String hash) {
+        if (!isValidHash(hash)) return Optional.empty();
+        return attachmentRepository.findById(hash);
+    }
+
+    public static String originalKey(String hash) {
+        return MediaStore.key(NAMESPACE, hash, "original");
+    }
+
+    public static String thumbnailKey(String hash) {
+        return MediaStore.key(NAMESPACE, hash, "thumb.jpg");
+    }
+
+    /**
+     * Anexo gravado antes do MediaStore (<local-path>/attachments/ab/<sha256>, miniatura com
+     * sufixo _thumb.jpg): vai para as chaves novas no primeiro acesso pelo nó que tem o arquivo.
+     * @return true se havia algo para migrar
+     */
+    public boolean migrateLegacy(AttachmentEntity attachment) throws IOException {
+        String hash = attachment.getHash();
+        Path dir = Paths.get(mediaLocalPath, NAMESPACE, hash.substring(0, 2));
+        Path original = dir.resolve(hash);
+        if (!Files.isRegularFile(original)) return false;
+
+        Path thumbnail = dir.resolve(hash + "_thumb.jpg");
+        if (Files.isRegularFile(thumbnail)) mediaStore.put(thumbnailKey(hash), thumbnail, "image/jpeg");
+        mediaStore.put(originalKey(hash), original, attachment.getContentType());
+        System.out.println("[CHAT][ATT] anexo " + hash + " migrado para o MediaStore");
+        return true;
+    }
+
+    public static String urlFor(String hash) {
+        return URL_PREFIX + hash;
+    }
+
+    public static boolean isImage(String contentType) {
+        return contentType != null && contentType.startsWith("image/");
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && hash.length() == 64 && hash.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+    }
+
+    private void generateThumbnail(String hash) {
+        Path download = null;
+        try {
+            // O decoder precisa de arquivo: no S3 o original vem para um temporário
+            Path source = mediaStore.localFile(originalKey(hash));
+            if (source == null) {
+                MediaStore.StoredObject obj = mediaStore.read(originalKey(hash), null);
+                if (obj == null) return;
+                download = Files.createTempFile(stagingDir(), "or-", ".part");
+                try (InputStream in = obj.body()) {
+                    Files.copy(in, download, StandardCopyOption.REPLACE_EXISTING);
+                }
+                source = download;
+            }
+
+            BufferedImage out = imageProcessing.readScaled(source, thumbnailSize);
+            if (out == null) {
+                System.err.println("[CHAT][ATT] imagem não decodificável: " + hash);
+                return;
+            }
+
+            Path tmp = Files.createTempFile(stagingDir(), "th-", ".part");
+            try {
+                try (OutputStream os = Files.newOutputStream(tmp)) {
+                    ImageIO.write(out, "jpg", os);
+                }
+                mediaStore.put(thumbnailKey(hash), tmp, "image/jpeg");
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            attachmentRepository.markThumbnailReady(hash);
+        } catch (Exception e) {
+            System.err.println("[CHAT][ATT][ERR] miniatura de " + hash + " falhou: " + e.getMessage());
+        } finally {
+            if (download != null) {
+                try {
+                    Files.deleteIfExists(download);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Mesmo disco do LocalMediaStore: o put vira um rename
+    private Path stagingDir() throws IOException {
+        return Files.createDirectories(Paths.get(mediaLocalPath, NAMESPACE, "tmp"));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        thumbnailExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,78 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relógio de mudanças do chat: o valor que cada escrita grava (seq, change_seq, watermark_seq)
+ * e o token que o sync pode entregar sem pular nenhuma escrita ainda em curso.
+ *
+ * PostgreSQL: o valor é o id da própria transação (pg_current_xact_id, xid8 de 64 bits, sempre
+ * crescente). Não há lock nenhum: escritas de chat em conversas diferentes, em qualquer nó,
+ * não esperam umas pelas outras. O token é pg_snapshot_xmin - 1: toda transação com id abaixo
+ * do xmin já terminou e qualquer uma ainda aberta tem id >= xmin, então o que ela confirmar
+ * depois continua acima do token. O que já confirmou acima do xmin volta no sync seguinte
+ * (o cliente deduplica por id).
+ *
+ * Outros bancos (H2 dos testes) não expõem ids de transação: contador numa linha só,
+ * incrementado como primeiro lock da escrita. Serializa as escritas, mas os valores
+ * confirmados ficam sempre 1..N e o último confirmado é um token seguro.
+ */
+@Component
+public class ChatChangeClock {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private boolean postgres;
+
+    @PostConstruct
+    void init() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        postgres = "PostgreSQL".equalsIgnoreCase(product);
+        System.out.println("[CHAT] relógio de sync: " + (postgres ? "id de transação (xid8)" : "contador em tabela"));
+        if (postgres) return;
+
+        // ddl-auto não cria tabelas sem entidade: contador a partir do maior seq já gravado
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS tb_chat_change_counter (id INT PRIMARY KEY, last_seq BIGINT NOT NULL)");
+        try {
+            jdbcTemplate.update("""
+                INSERT INTO tb_chat_change_counter (id, last_seq)
+                SELECT 1, GREATEST(
+                    COALESCE((SELECT MAX(seq) FROM tb_message), 0),
+                    COALESCE((SELECT MAX(change_seq) FROM tb_conversation_participants), 0),
+                    COALESCE((SELECT MAX(watermark_seq) FROM tb_conversation_participants), 0))
+                WHERE NOT EXISTS (SELECT 1 FROM tb_chat_change_counter WHERE id = 1)
+            """);
+        } catch (DuplicateKeyException e) {
+            // outro nó criou ao mesmo tempo
+        }
+    }
+
+    /**
+     * Valor desta escrita. Chamar dentro da transação que grava, antes das outras escritas
+     * (no contador, é o primeiro lock da transação: sem deadlock).
+     */
+    public long stamp() {
+        if (postgres) {
+            return jdbcTemplate.queryForObject("SELECT pg_current_xact_id()::text::bigint", Long.class);
+        }
+        jdbcTemplate.update("UPDATE tb_chat_change_counter SET last_seq = last_seq + 1 WHERE id = 1");
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM tb_chat_change_counter WHERE id = 1", Long.class);
+    }
+
+    /**
+     * Maior valor abaixo do qual nada mais pode ser confirmado. Ler antes das linhas do sync:
+     * o que confirmar depois disso vem de novo no próximo, nunca some.
+     */
+    public long safeToken() {
+        if (postgres) {
+            return jdbcTemplate.queryForObject("SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint - 1", Long.class);
+        }
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM tb_chat_change_counter WHERE id = 1", Long.class);
+    }
+}
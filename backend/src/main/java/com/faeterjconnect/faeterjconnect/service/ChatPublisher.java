@@ -0,0 +1,112 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
+import com.faeterjconnect.faeterjconnect.dto.ReceiptEvent;
+import com.faeterjconnect.faeterjconnect.dto.TypingEvent;
+import com.faeterjconnect.faeterjconnect.websocket.BinaryPayloadNegotiation;
+import com.faeterjconnect.faeterjconnect.websocket.PgNotifyClusterRelay;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.UUID;
+
+/**
+ * Ponto único de saída dos eventos de conversa (mensagens, digitando, recibos).
+ *
+ * app.chat.delivery-mode:
+ *  - topic (padrão): publica em /topic/conversations/{id}; o cliente assina uma vez por conversa.
+ *  - user: envia para /user/queue/messages de cada participante (lista em cache); o cliente
+ *    assina um único destino por sessão que carrega todas as conversas, grupos grandes inclusive.
+ *
+ * O payload é serializado uma vez só e o mesmo byte[] é compartilhado por todas as sessões
+ * destinatárias (o broker só copia os headers). Se alguma sessão pediu CBOR, o evento também é
+ * codificado uma vez em CBOR e segue junto num header (ver BinaryPayloadNegotiation).
+ * Com o relay de cluster ligado, o mesmo JSON
+ * também segue para os outros nós (PgNotifyClusterRelay), que entregam localmente.
+ */
+@Component
+public class ChatPublisher {
+
+    public static final String USER_QUEUE = "/queue/messages";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private MembershipCache membershipCache;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ObjectProvider<PgNotifyClusterRelay> clusterRelay;
+    @Autowired
+    private BinaryPayloadNegotiation binaryPayload;
+
+    @Value("${app.chat.delivery-mode:topic}")
+    private String deliveryMode;
+
+    public void publish(UUID conversationId, Object payload) {
+        byte[] body = encode(payload);
+        byte[] cbor = binaryPayload.hasBinarySessions() ? binaryPayload.encode(payload) : null;
+        deliverLocal(conversationId, body, cbor);
+
+        PgNotifyClusterRelay relay = clusterRelay.getIfAvailable();
+        if (relay != null) {
+            UUID messageId = (payload instanceof MessageResponse m) ? m.id() : null;
+            relay.relay(conversationId, compactionKey(payload), messageId, body);
+        }
+    }
+
+    /** Entrega só nas sessões deste nó (também usado pelo relay ao receber de outro nó). */
+    public void deliverLocal(UUID conversationId, byte[] body) {
+        deliverLocal(conversationId, body, null);
+    }
+
+    private void deliverLocal(UUID conversationId, byte[] body, byte[] cbor) {
+        if ("user".equalsIgnoreCase(deliveryMode)) {
+            // mesma Message (mesmo byte[]) para todos os membros; só o destino muda
+            Message<byte[]> message = toMessage(body, cbor);
+            for (UUID participant : membershipCache.participantsOf(conversationId)) {
+                messagingTemplate.send("/user/" + participant + USER_QUEUE, message);
+            }
+            return;
+        }
+        messagingTemplate.send("/topic/conversations/" + conversationId, toMessage(body, cbor));
+    }
+
+    private byte[] encode(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar evento de chat", e);
+        }
+    }
+
+    // Mensagem já serializada: o broker não converte de novo, só repassa os bytes
+    private static Message<byte[]> toMessage(byte[] body, byte[] cbor) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (cbor != null) accessor.setHeader(BinaryPayloadNegotiation.CBOR_PAYLOAD_HEADER, cbor);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+    }
+
+    // Eventos de "estado" (digitando, recibo): num mesmo lote só o último de cada chave importa
+    private static String compactionKey(Object payload) {
+        if (payload instanceof TypingEvent t) {
+            return "t:" + t.conversationId() + ":" + t.typingUserId();
+        }
+        if (payload instanceof ReceiptEvent r) {
+            return "r:" + r.conversationId() + ":" + r.userId() + ":" + r.status();
+        }
+        return null; // mensagens nunca são descartadas
+    }
+}
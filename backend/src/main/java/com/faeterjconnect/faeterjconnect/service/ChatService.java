@@ -1,24 +1,32 @@
 package com.faeterjconnect.faeterjconnect.service;
 
+import com.faeterjconnect.faeterjconnect.dto.ConversationResponse;
+import com.faeterjconnect.faeterjconnect.dto.InboxItemResponse;
 import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
+import com.faeterjconnect.faeterjconnect.dto.ReceiptEvent;
 import com.faeterjconnect.faeterjconnect.model.ConversationEntity;
 import com.faeterjconnect.faeterjconnect.model.MessageEntity;
 import com.faeterjconnect.faeterjconnect.model.UserEntity;
 import com.faeterjconnect.faeterjconnect.model.enums.DeliveryStatusEnum;
 import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
 import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import com.faeterjconnect.faeterjconnect.repository.ConversationParticipantRepository;
 import com.faeterjconnect.faeterjconnect.repository.ConversationRepository;
 import com.faeterjconnect.faeterjconnect.repository.MessageRepository;
 import com.faeterjconnect.faeterjconnect.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // <- use o Transactional do Spring
 
-import java.util.List;
-import java.util.UUID;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 public class ChatService {
@@ -29,6 +37,16 @@ public class ChatService {
     private MessageRepository messageRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private ConversationParticipantRepository participantRepository;
+    @Autowired
+    private MembershipCache membershipCache;
+    @Autowired
+    private UserSummaryCache userSummaryCache;
+    @Autowired
+    private ChatChangeClock changeClock;
+
+    private static final int SNIPPET_LENGTH = 120;
 
     @Transactional
     public ConversationEntity findOrCreateOneToOne(UUID requesterId, UUID otherId) {
@@ -50,16 +68,115 @@ public class ChatService {
             throw new SecurityException("Somente aluno <-> professor podem iniciar conversa.");
         }
 
-        return conversationRepository.findOneToOne(u1.getUserId(), u2.getUserId())
+        String pairKey = ConversationEntity.pairKey(u1.getUserId(), u2.getUserId());
+        return conversationRepository.findByPairKey(pairKey)
                 .orElseGet(() -> {
-                    ConversationEntity c = new ConversationEntity();
-                    c.setGroup(false);
-                    c.getParticipants().add(u1);
-                    c.getParticipants().add(u2);
-                    return conversationRepository.save(c);
+                    long seq = changeClock.stamp();
+                    // INSERT ... ON CONFLICT: dois cliques simultâneos caem na mesma conversa
+                    UUID id = conversationRepository.upsertOneToOne(UUID.randomUUID(), pairKey);
+                    conversationRepository.insertPairParticipants(id, u1.getUserId(), u2.getUserId());
+                    participantRepository.touchConversation(id, seq);
+                    return conversationRepository.findById(id)
+                            .orElseThrow(() -> new EntityNotFoundException("Conversa não encontrada."));
                 });
     }
 
+    /**
+     * Grupo da turma: o professor (ou admin) que cria + todos os alunos do turno.
+     * Os membros entram por INSERT ... SELECT no banco; nenhum UserEntity é carregado.
+     */
+    @Transactional
+    public ConversationEntity createClassGroup(UUID requesterId, String title, TurnoEnum turno) {
+        UserEntity owner = userRepository.findById(requesterId)
+                .orElseThrow(() -> new EntityNotFoundException("Usuário não encontrado."));
+        if (owner.getRoleEnum() != RoleEnum.PROFESSOR && owner.getRoleEnum() != RoleEnum.ADMIN) {
+            throw new SecurityException("Somente professor ou admin podem criar grupo de turma.");
+        }
+
+        long seq = changeClock.stamp();
+        ConversationEntity group = new ConversationEntity();
+        group.setGroup(true);
+        group.setTitle(title);
+        group = conversationRepository.saveAndFlush(group);
+
+        UUID id = group.getIdConversation();
+        conversationRepository.insertParticipant(id, requesterId);
+        int students = conversationRepository.insertStudentsOfTurno(id, turno.name());
+        participantRepository.touchConversation(id, seq);
+        System.out.println("[CHAT] grupo " + id + " criado com " + students + " alunos do turno " + turno);
+        return group;
+    }
+
+    /** Membros de uma conversa, paginados. Só para quem participa dela. */
+    @Transactional(readOnly = true)
+    public Page<ConversationResponse.ParticipantResponse> getParticipants(UUID requesterId, UUID conversationId,
+                                                                          int page, int size) {
+        requireParticipant(conversationId, requesterId);
+        return participantRepository.findParticipants(conversationId, PageRequest.of(page, size));
+    }
+
+    public ConversationResponse toConversationResponse(ConversationEntity c) {
+        return toConversationResponses(List.of(c)).get(0);
+    }
+
+    /**
+     * Monta os DTOs de conversa com 2 consultas no total (não uma por conversa):
+     * participantes só das 1:1 e contagem de membros de todas. Nome/email dos participantes
+     * vêm do UserSummaryCache (a consulta traz só os ids).
+     */
+    @Transactional(readOnly = true)
+    public List<ConversationResponse> toConversationResponses(List<ConversationEntity> conversations) {
+        if (conversations.isEmpty()) return List.of();
+
+        List<UUID> ids = conversations.stream().map(ConversationEntity::getIdConversation).toList();
+        List<UUID> oneToOneIds = conversations.stream()
+                .filter(c -> !c.isGroup())
+                .map(ConversationEntity::getIdConversation)
+                .toList();
+
+        Map<UUID, Long> counts = participantRepository.countParticipants(ids).stream()
+                .collect(Collectors.toMap(
+                        ConversationParticipantRepository.ParticipantCountRow::getConversationId,
+                        ConversationParticipantRepository.ParticipantCountRow::getParticipantCount));
+
+        List<ConversationParticipantRepository.ParticipantRow> rows = oneToOneIds.isEmpty()
+                ? List.of()
+                : participantRepository.findParticipantRows(oneToOneIds);
+        Map<UUID, UserSummaryCache.UserSummary> users = userSummaryCache.getAll(
+                rows.stream().map(ConversationParticipantRepository.ParticipantRow::getUserId).toList());
+
+        Map<UUID, List<ConversationResponse.ParticipantResponse>> participants = rows.stream()
+                .collect(Collectors.groupingBy(
+                        ConversationParticipantRepository.ParticipantRow::getConversationId,
+                        Collectors.mapping(r -> {
+                            UserSummaryCache.UserSummary u = users.get(r.getUserId());
+                            return new ConversationResponse.ParticipantResponse(r.getUserId(),
+                                    u != null ? u.username() : null, u != null ? u.email() : null);
+                        }, Collectors.toList())));
+
+        return conversations.stream()
+                .map(c -> new ConversationResponse(
+                        c.getIdConversation(),
+                        c.isGroup(),
+                        c.getTitle(),
+                        counts.getOrDefault(c.getIdConversation(), 0L),
+                        participants.getOrDefault(c.getIdConversation(), List.of())
+                ))
+                .toList();
+    }
+
+    // Conversas 1:1 criadas antes do pair_key
+    // (sem @Transactional aqui: uma falha não pode marcar rollback-only uma transação externa)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPairKeys() {
+        try {
+            int n = conversationRepository.backfillPairKeys();
+            if (n > 0) System.out.println("[CHAT] pair_key preenchido em " + n + " conversas 1:1");
+        } catch (Exception e) {
+            System.err.println("[CHAT][ERR] backfill de pair_key falhou: " + e.getMessage());
+        }
+    }
+
     @Transactional(readOnly = true)
     public List<ConversationEntity> listUserConversations(UUID userId) {
         return conversationRepository.findAllByParticipant(userId);
@@ -67,29 +184,134 @@ public class ChatService {
 
     @Transactional
     public MessageEntity saveTextMessage(UUID senderId, UUID conversationId, String content, MessageTypeEnum type) {
-        ConversationEntity conv = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new EntityNotFoundException("Conversa não encontrada."));
-        UserEntity sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new EntityNotFoundException("Usuário não encontrado."));
+        return saveMessage(senderId, conversationId, content, type == null ? MessageTypeEnum.TEXT : type, null);
+    }
 
-        // valida participante
-        boolean isParticipant = conv.getParticipants().stream()
-                .anyMatch(u -> u.getUserId().equals(senderId));
-        if (!isParticipant) {
-            throw new SecurityException("Você não participa desta conversa.");
-        }
+    /** Mensagem com anexo já gravado (ChatAttachmentService); content é a legenda, pode ser null. */
+    @Transactional
+    public MessageEntity saveAttachmentMessage(UUID senderId, UUID conversationId, String caption,
+                                               MessageTypeEnum type, String attachmentUrl) {
+        return saveMessage(senderId, conversationId, caption, type, attachmentUrl);
+    }
 
+    private MessageEntity saveMessage(UUID senderId, UUID conversationId, String content,
+                                      MessageTypeEnum type, String attachmentUrl) {
+        // valida participante (cache em memória; custo igual em 1:1 ou grupo de 500)
+        requireParticipant(conversationId, senderId);
+
+        // Só referências: participante implica conversa e usuário existentes
+        ConversationEntity conv = conversationRepository.getReferenceById(conversationId);
+        UserEntity sender = userRepository.getReferenceById(senderId);
+
+        long seq = changeClock.stamp();
         MessageEntity msg = new MessageEntity();
         msg.setConversation(conv);
         msg.setSender(sender);
-        msg.setType(type == null ? MessageTypeEnum.TEXT : type);
+        msg.setType(type);
         msg.setContent(content);
+        msg.setAttachmentUrl(attachmentUrl);
         msg.setStatus(DeliveryStatusEnum.SENT);
+        msg.setSeq(seq);
+
+        // flush para o @CreationTimestamp preencher sentAt antes de desnormalizar
+        MessageEntity saved = messageRepository.saveAndFlush(msg);
 
-        return messageRepository.save(msg);
+        // Desnormaliza para o inbox e marca como lido para quem enviou
+        conversationRepository.updateLastMessage(conversationId, saved.getId(), saved.getSentAt());
+        participantRepository.advanceReadWatermark(conversationId, senderId, saved.getId(), saved.getSentAt(), seq);
+        participantRepository.touchConversation(conversationId, seq);
+
+        return saved;
+    }
+
+    // Anexos só para quem participa de alguma conversa em que o arquivo foi enviado
+    @Transactional(readOnly = true)
+    public boolean canAccessAttachment(UUID userId, String attachmentUrl) {
+        return messageRepository.existsAttachmentVisibleTo(attachmentUrl, userId);
+    }
+
+    @Transactional(readOnly = true)
+    public MessageResponse getMessageResponse(UUID messageId) {
+        return messageRepository.findById(messageId)
+                .map(ChatService::toResponse)
+                .orElseThrow(() -> new EntityNotFoundException("Mensagem não encontrada."));
+    }
+
+    /**
+     * Inbox: conversas do usuário com prévia da última mensagem e contagem de não lidas,
+     * ordenadas pela última atividade. Uma consulta, independente do tamanho do histórico.
+     */
+    @Transactional(readOnly = true)
+    public List<InboxItemResponse> getInbox(UUID userId) {
+        return participantRepository.findInbox(userId, SNIPPET_LENGTH).stream()
+                .map(r -> new InboxItemResponse(
+                        r.getConversationId(),
+                        r.isGroup(),
+                        r.getTitle(),
+                        r.getOtherUserId(),
+                        r.getOtherUsername(),
+                        r.getLastActivityAt(),
+                        r.getLastMessageId() == null ? null : new InboxItemResponse.LastMessage(
+                                r.getLastMessageId(),
+                                r.getLastMessageSenderId(),
+                                r.getLastMessageSnippet(),
+                                r.getLastMessageType(),
+                                r.getLastMessageSentAt()
+                        ),
+                        r.getUnreadCount()
+                ))
+                .toList();
+    }
+
+    /**
+     * Marca como lida a conversa até a mensagem informada (inclusive).
+     * Só move o watermark do participante: uma escrita (só na linha dele) para qualquer quantidade
+     * de mensagens. Retorna o evento de recibo, ou null se o watermark já estava à frente; nesse
+     * caso nada é escrito.
+     */
+    @Transactional
+    public ReceiptEvent markRead(UUID userId, UUID conversationId, UUID upToMessageId) {
+        MessageEntity upTo = findAckTarget(userId, conversationId, upToMessageId);
+        if (!participantRepository.isReadBehind(conversationId, userId, upTo.getSentAt())) return null;
+        int updated = participantRepository.advanceReadWatermark(
+                conversationId, userId, upTo.getId(), upTo.getSentAt(), changeClock.stamp());
+        return updated == 0 ? null
+                : new ReceiptEvent(conversationId, userId, DeliveryStatusEnum.READ, upTo.getId(), upTo.getSentAt());
+    }
+
+    /** Igual ao markRead, mas para o watermark de entrega (mensagem chegou no aparelho). */
+    @Transactional
+    public ReceiptEvent markDelivered(UUID userId, UUID conversationId, UUID upToMessageId) {
+        MessageEntity upTo = findAckTarget(userId, conversationId, upToMessageId);
+        if (!participantRepository.isDeliveredBehind(conversationId, userId, upTo.getSentAt())) return null;
+        int updated = participantRepository.advanceDeliveredWatermark(
+                conversationId, userId, upTo.getSentAt(), changeClock.stamp());
+        return updated == 0 ? null
+                : new ReceiptEvent(conversationId, userId, DeliveryStatusEnum.DELIVERED, upTo.getId(), upTo.getSentAt());
+    }
+
+    private MessageEntity findAckTarget(UUID userId, UUID conversationId, UUID upToMessageId) {
+        MessageEntity upTo = messageRepository.findById(upToMessageId)
+                .orElseThrow(() -> new EntityNotFoundException("Mensagem não encontrada."));
+        if (!upTo.getConversation().getIdConversation().equals(conversationId)) {
+            throw new IllegalArgumentException("Mensagem não pertence a esta conversa.");
+        }
+        requireParticipant(conversationId, userId);
+        return upTo;
+    }
+
+    /** Lança SecurityException se o usuário não participa da conversa (cache em memória, sem banco). */
+    public void requireParticipant(UUID conversationId, UUID userId) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
+            throw new SecurityException("Você não participa desta conversa.");
+        }
     }
 
     public static MessageResponse toResponse(MessageEntity m) {
+        return toResponse(m, m.getStatus());
+    }
+
+    public static MessageResponse toResponse(MessageEntity m, DeliveryStatusEnum status) {
         return new MessageResponse(
                 m.getId(),
                 // Se sua ConversationEntity usa getId() ao invés de getIdConversation(), ajuste aqui.
@@ -98,27 +320,37 @@ public class ChatService {
                 m.getContent(),
                 m.getType(),
                 m.getAttachmentUrl(),
-                m.getStatus(),
+                status,
                 m.getSentAt()
         );
     }
 
     @Transactional(readOnly = true)
     public Page<MessageResponse> getMessages(UUID requesterId, UUID conversationId, int page, int size) {
-        ConversationEntity conv = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new EntityNotFoundException("Conversa não encontrada."));
-
-        boolean isParticipant = conv.getParticipants().stream()
-                .anyMatch(u -> u.getUserId().equals(requesterId));
-        if (!isParticipant) {
-            throw new SecurityException("Você não participa desta conversa.");
-        }
+        requireParticipant(conversationId, requesterId);
+        ConversationEntity conv = conversationRepository.getReferenceById(conversationId);
 
         Page<MessageEntity> p = messageRepository.findByConversationOrderBySentAtDesc(
                 conv, PageRequest.of(page, size));
 
-        return p.map(ChatService::toResponse);
+        // Status derivado dos watermarks (tb_message.status fica sempre SENT)
+        var watermarks = participantRepository.summarizeWatermarks(conversationId);
+        return p.map(m -> toResponse(m, deriveStatus(m.getSentAt(), watermarks)));
         // Alternativa com lambda, se preferir:
         // return p.map(this::toResponse); // se não for static
     }
+
+    /**
+     * READ se todos os outros participantes leram até sentAt, DELIVERED se todos receberam,
+     * senão SENT. Usa o menor watermark da conversa (ver summarizeWatermarks):
+     * um participante que nunca leu/recebeu (null) segura o mínimo.
+     */
+    static DeliveryStatusEnum deriveStatus(Instant sentAt, ConversationParticipantRepository.WatermarkSummary w) {
+        if (w == null || w.getParticipantCount() < 2) return DeliveryStatusEnum.SENT;
+        Instant minRead = w.getReadCount() < w.getParticipantCount() ? null : w.getMinReadAt();
+        Instant minDelivered = w.getDeliveredCount() < w.getParticipantCount() ? null : w.getMinDeliveredAt();
+        if (minRead != null && !minRead.isBefore(sentAt)) return DeliveryStatusEnum.READ;
+        if (minDelivered != null && !minDelivered.isBefore(sentAt)) return DeliveryStatusEnum.DELIVERED;
+        return DeliveryStatusEnum.SENT;
+    }
 }
@@ -0,0 +1,184 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
+import com.faeterjconnect.faeterjconnect.dto.ReceiptEvent;
+import com.faeterjconnect.faeterjconnect.model.enums.DeliveryStatusEnum;
+import com.faeterjconnect.faeterjconnect.repository.ConversationParticipantRepository;
+import com.faeterjconnect.faeterjconnect.repository.ConversationRepository;
+import com.faeterjconnect.faeterjconnect.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Sincronização pós-reconexão: tudo que mudou para o usuário desde o token, numa resposta só.
+ *
+ * Cada escrita de chat (mensagem, entrada em conversa) pega um valor de ChatChangeClock e marca
+ * change_seq nas linhas de participante da conversa. O sync parte do índice (user_id, change_seq):
+ * o custo depende do que mudou, não de quantas conversas o usuário tem. Recibos só gravam
+ * watermark_seq na linha de quem confirmou.
+ *
+ * Formato (escrito em streaming):
+ * { "conversations": [...], "receipts": [...], "messages": [...], "token": "..." }
+ *
+ * O token é o ChatChangeClock.safeToken() lido antes das linhas, não o maior valor visto:
+ * uma transação ainda aberta pode confirmar depois um valor menor que o maior já visível, e
+ * esse valor tem de ficar acima do token. Linhas lidas num sync podem vir de novo no seguinte:
+ * o cliente deduplica por id.
+ */
+@Service
+public class ChatSyncService {
+
+    @Autowired
+    private ConversationParticipantRepository participantRepository;
+    @Autowired
+    private ConversationRepository conversationRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ChatChangeClock changeClock;
+
+    /**
+     * Dá um seq novo às linhas de antes do sync, que têm seq nulo e não apareceriam em sync
+     * nenhum. Com seq novo elas vão uma vez para todos os clientes, inclusive quem já tem token.
+     */
+    @PostConstruct
+    void init() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            boolean pending = !jdbcTemplate.queryForList(
+                    "SELECT 1 FROM tb_message WHERE seq IS NULL FETCH FIRST 1 ROWS ONLY", Integer.class).isEmpty()
+                    || !jdbcTemplate.queryForList(
+                    "SELECT 1 FROM tb_conversation_participants WHERE change_seq IS NULL FETCH FIRST 1 ROWS ONLY", Integer.class).isEmpty();
+            if (!pending) return;
+
+            long seq = changeClock.stamp();
+            int messages = jdbcTemplate.update("UPDATE tb_message SET seq = ? WHERE seq IS NULL", seq);
+            // conversa com mensagem antiga precisa aparecer no findChangedSince de todos os membros
+            int participants = jdbcTemplate.update("""
+                UPDATE tb_conversation_participants SET change_seq = ?
+                WHERE change_seq IS NULL
+                   OR conversation_id IN (SELECT conversation_id FROM tb_message WHERE seq = ?)
+            """, seq, seq);
+            jdbcTemplate.update("""
+                UPDATE tb_conversation_participants SET watermark_seq = ?
+                WHERE watermark_seq IS NULL AND (last_read_at IS NOT NULL OR last_delivered_at IS NOT NULL)
+            """, seq);
+            System.out.println("[CHAT] sync: seq " + seq + " dado a " + messages + " mensagens e "
+                    + participants + " participantes antigos");
+        });
+    }
+
+    /**
+     * Escreve o sync em out. Roda fora da thread do request (StreamingResponseBody),
+     * por isso abre a própria transação somente-leitura.
+     */
+    public void writeSync(UUID userId, String token, OutputStream out) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.executeWithoutResult(status -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                writeSync(userId, decodeToken(token), gen);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeSync(UUID userId, long since, JsonGenerator gen) throws IOException {
+        // antes das linhas: o que confirmar durante o sync fica acima do token e vem no próximo
+        long newSeq = Math.max(since, changeClock.safeToken());
+        var changed = participantRepository.findChangedSince(userId, since);
+        List<UUID> ids = changed.stream().map(ConversationParticipantRepository.ChangeRow::getConversationId).toList();
+
+        gen.writeStartObject();
+
+        // Conversas alteradas (inclui as novas): o cliente faz upsert
+        gen.writeArrayFieldStart("conversations");
+        if (!ids.isEmpty()) {
+            for (var c : chatService.toConversationResponses(conversationRepository.findAllById(ids))) {
+                gen.writeObject(c);
+            }
+        }
+        gen.writeEndArray();
+
+        // Recibos não marcam a conversa como alterada: vêm de todas as conversas do usuário
+        gen.writeArrayFieldStart("receipts");
+        for (var w : participantRepository.findWatermarksChangedSince(userId, since)) {
+            if (w.getLastDeliveredAt() != null) {
+                gen.writeObject(new ReceiptEvent(w.getConversationId(), w.getUserId(),
+                        DeliveryStatusEnum.DELIVERED, null, w.getLastDeliveredAt()));
+            }
+            if (w.getLastReadAt() != null) {
+                gen.writeObject(new ReceiptEvent(w.getConversationId(), w.getUserId(),
+                        DeliveryStatusEnum.READ, w.getLastReadMessageId(), w.getLastReadAt()));
+            }
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("messages");
+        if (!ids.isEmpty()) {
+            Map<UUID, ConversationParticipantRepository.ConversationWatermarkSummary> summaries =
+                    participantRepository.summarizeWatermarks(ids).stream()
+                            .collect(Collectors.toMap(
+                                    ConversationParticipantRepository.ConversationWatermarkSummary::getConversationId,
+                                    s -> s));
+            try (var rows = messageRepository.streamSince(ids, since)) {
+                for (var it = rows.iterator(); it.hasNext(); ) {
+                    var m = it.next();
+                    gen.writeObject(new MessageResponse(
+                            m.getId(),
+                            m.getConversationId(),
+                            m.getSenderId(),
+                            m.getContent(),
+                            m.getType(),
+                            m.getAttachmentUrl(),
+                            ChatService.deriveStatus(m.getSentAt(), summaries.get(m.getConversationId())),
+                            m.getSentAt()
+                    ));
+                }
+            }
+        }
+        gen.writeEndArray();
+
+        gen.writeStringField("token", encodeToken(newSeq));
+        gen.writeEndObject();
+    }
+
+    // ---------- token (opaco para o cliente) ----------
+
+    private static String encodeToken(long seq) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(seq).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Sem token ou token inválido -> sync completo (desde o início)
+    private static long decodeToken(String token) {
+        if (token == null || token.isBlank()) return 0L;
+        try {
+            byte[] raw = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.UTF_8));
+            return Math.max(0L, Long.parseLong(new String(raw, StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            return 0L;
+        }
+    }
+}
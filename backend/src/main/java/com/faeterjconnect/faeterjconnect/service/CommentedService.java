@@ -6,10 +6,11 @@ import com.faeterjconnect.faeterjconnect.dto.PageResponse;
 import com.faeterjconnect.faeterjconnect.exception.ExceptionCustom;
 import com.faeterjconnect.faeterjconnect.model.CommentedEntity;
 import com.faeterjconnect.faeterjconnect.model.PostEntity;
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
 import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
 import com.faeterjconnect.faeterjconnect.repository.CommentedRepository;
 import com.faeterjconnect.faeterjconnect.repository.PostRepository;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -20,6 +21,8 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
@@ -29,9 +32,13 @@ public class CommentedService {
     private CommentedRepository commentedRepository;
     @Autowired
     private PostRepository postRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserSummaryCache userSummaryCache;
 
     @Transactional
-    public CommentViewDTO createCommented(UUID postId, CommentedDTO comment, UserEntity user) {
+    public CommentViewDTO createCommented(UUID postId, CommentedDTO comment, AuthenticatedUser user) {
 
         PostEntity post = postRepository.findById(postId)
                 .orElseThrow(() -> new ExceptionCustom.PostNotExistsException());
@@ -39,7 +46,7 @@ public class CommentedService {
         String text = comment.comment();
         CommentedEntity commented = new CommentedEntity();
         commented.setPost(post);
-        commented.setUser(user);
+        commented.setUser(userRepository.getReferenceById(user.getUserId()));
         commented.setComment(text);
         // commentTime: @CreationTimestamp cuida
 
@@ -49,10 +56,10 @@ public class CommentedService {
             post.getCommented().add(saved);
         }
 
-        return toViewDTO(saved);
+        return toViewDTO(saved, userSummaryCache.getAll(List.of(user.getUserId())));
     }
 
-    public void deleteComment(UUID commentId, UserEntity user) {
+    public void deleteComment(UUID commentId, AuthenticatedUser user) {
         CommentedEntity comment = commentedRepository.findById(commentId)
                 .orElseThrow(() -> new ExceptionCustom.CommentNotExistsException());
 
@@ -79,9 +86,12 @@ public class CommentedService {
 
         Page<CommentedEntity> cPage = commentedRepository.findNewestFirst(postId, pageable);
 
+        Map<UUID, UserSummaryCache.UserSummary> authors = userSummaryCache.getAll(
+                cPage.getContent().stream().map(CommentedService::authorId).filter(Objects::nonNull).toList());
+
         List<CommentViewDTO> items = cPage.getContent()
                 .stream()
-                .map(this::toViewDTO)
+                .map(c -> toViewDTO(c, authors))
                 .toList();
 
         return new PageResponse<>(
@@ -95,18 +105,25 @@ public class CommentedService {
         );
     }
 
-    private CommentViewDTO toViewDTO(CommentedEntity c) {
+    private CommentViewDTO toViewDTO(CommentedEntity c, Map<UUID, UserSummaryCache.UserSummary> authors) {
+        UUID authorId = authorId(c);
+        UserSummaryCache.UserSummary author = authorId != null ? authors.get(authorId) : null;
         return new CommentViewDTO(
                 c.getCommentId(),
                 c.getPost() != null ? c.getPost().getPostId() : null,
-                c.getUser() != null ? c.getUser().getUserId() : null,
-                c.getUser() != null ? c.getUser().getUsername() : null,
+                authorId,
+                author != null ? author.username() : null,
                 c.getComment(),
                 c.getCommentTime(),
-                c.getUser().getRoleEnum(),
-                c.getUser().getTurno()
+                author != null ? author.roleEnum() : null,
+                author != null ? author.turno() : null
         );
     }
 
+    // Id do proxy LAZY: lido da FK, sem carregar o usuário
+    private static UUID authorId(CommentedEntity c) {
+        return c.getUser() != null ? c.getUser().getUserId() : null;
+    }
+
 
 }
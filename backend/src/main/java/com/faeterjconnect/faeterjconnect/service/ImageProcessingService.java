@@ -0,0 +1,137 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificação de imagens com memória limitada (avatares e miniaturas do chat).
+ *
+ * 1. Lê só o cabeçalho para saber largura/altura (rejeita imagens gigantes antes de decodificar).
+ * 2. Decodifica com subamostragem na fonte (ImageReadParam): uma foto de 4000px que vai virar 512px
+ *    é lida já com 1/3 dos pixels por eixo, em vez de inteira.
+ * 3. Reduz em passos de metade com bilinear até o tamanho final (qualidade próxima do SCALE_SMOOTH,
+ *    bem mais rápido que getScaledInstance).
+ *
+ * Cada decodificação reserva a memória estimada dos pixels num semáforo
+ * (app.media.image.memory-budget-mb): uploads simultâneos esperam a vez em vez de estourar o heap.
+ */
+@Service
+public class ImageProcessingService {
+
+    @Value("${app.media.image.memory-budget-mb:64}")
+    private int memoryBudgetMb;
+
+    // Teto de pixels declarado no cabeçalho (proteção contra "bomba" de descompressão)
+    @Value("${app.media.image.max-pixels:50000000}")
+    private long maxPixels;
+
+    @Value("${app.media.image.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    private Semaphore budget; // permits em KB
+
+    @PostConstruct
+    void init() {
+        budget = new Semaphore(memoryBudgetKb(), true);
+    }
+
+    /**
+     * Lê a imagem já reduzida para caber em maxSide x maxSide (nunca amplia).
+     * @return null se nenhum leitor do ImageIO reconhece o formato
+     */
+    public BufferedImage readScaled(Path file, int maxSide) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file.toFile())) {
+            if (iis == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int w = reader.getWidth(0), h = reader.getHeight(0); // só o cabeçalho
+                if ((long) w * h > maxPixels) {
+                    throw new IllegalArgumentException("Imagem muito grande (" + w + "x" + h + ").");
+                }
+
+                // Subamostragem deixa ao menos 2x o tamanho final: o resto sai na redução bilinear
+                int sub = Math.max(1, Math.max(w, h) / (2 * maxSide));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sub, sub, 0, 0);
+
+                long decodedBytes = (long) ceilDiv(w, sub) * ceilDiv(h, sub) * 4;
+                int permits = (int) Math.min(memoryBudgetKb(), Math.max(1, decodedBytes / 1024));
+                acquire(permits);
+                try {
+                    return downscale(reader.read(0, param), maxSide);
+                } finally {
+                    budget.release(permits);
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduz para caber em maxSide x maxSide em passos de metade (bilinear); devolve RGB.
+     * Imagem já menor só é convertida.
+     */
+    public BufferedImage downscale(BufferedImage src, int maxSide) {
+        int w = src.getWidth(), h = src.getHeight();
+        double scale = Math.min(1.0, (double) maxSide / Math.max(w, h));
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+
+        BufferedImage current = src;
+        do {
+            // metade por passo enquanto estiver a mais de 2x do alvo; o último vai direto ao alvo
+            w = (w / 2 >= targetW) ? w / 2 : targetW;
+            h = (h / 2 >= targetH) ? h / 2 : targetH;
+            current = draw(current, w, h);
+        } while (w != targetW || h != targetH);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage src, int w, int h) {
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(src, 0, 0, w, h, null);
+        g.dispose();
+        return out;
+    }
+
+    private void acquire(int permits) throws IOException {
+        try {
+            if (!budget.tryAcquire(permits, acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Sem memória livre para decodificar a imagem agora.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido aguardando memória para decodificar a imagem", e);
+        }
+    }
+
+    private int memoryBudgetKb() {
+        return Math.max(1024, memoryBudgetMb * 1024);
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
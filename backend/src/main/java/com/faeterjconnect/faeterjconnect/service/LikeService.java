@@ -3,9 +3,10 @@ package com.faeterjconnect.faeterjconnect.service;
 import com.faeterjconnect.faeterjconnect.exception.ExceptionCustom;
 import com.faeterjconnect.faeterjconnect.model.PostEntity;
 import com.faeterjconnect.faeterjconnect.model.PostLikeEntity;
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
 import com.faeterjconnect.faeterjconnect.repository.PostLikeRepository;
 import com.faeterjconnect.faeterjconnect.repository.PostRepository;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -20,9 +21,11 @@ public class LikeService {
     private PostRepository postRepository;
     @Autowired
     private PostLikeRepository postLikeRepository;
+    @Autowired
+    private UserRepository userRepository;
 
     @Transactional
-    public LikeView likePost(UUID postId, UserEntity user) {
+    public LikeView likePost(UUID postId, AuthenticatedUser user) {
         validateUser(user);
 
         PostEntity post = postRepository.findById(postId)
@@ -33,7 +36,7 @@ public class LikeService {
             try {
                 PostLikeEntity like = new PostLikeEntity();
                 like.setPost(post);
-                like.setUser(user);
+                like.setUser(userRepository.getReferenceById(user.getUserId()));
                 postLikeRepository.save(like);
             } catch (DataIntegrityViolationException e) {
                 // Race condition: já foi curtido em paralelo – ignora
@@ -45,7 +48,7 @@ public class LikeService {
     }
 
     @Transactional
-    public LikeView unlikePost(UUID postId, UserEntity user) {
+    public LikeView unlikePost(UUID postId, AuthenticatedUser user) {
         validateUser(user);
 
         // Idempotente: remove se existir
@@ -56,7 +59,7 @@ public class LikeService {
         return new LikeView(postId, likeCount, likedByMe);
     }
 
-    private void validateUser(UserEntity user) {
+    private void validateUser(AuthenticatedUser user) {
         if (user == null || user.getUserId() == null) {
             throw new ExceptionCustom.InvalidUserException();
         }
@@ -0,0 +1,142 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MediaStore no disco local: "avatars/9f86d0.../128.jpg" vira
+ * <app.media.local-path>/avatars/9f/86/9f86d0.../128.jpg.
+ *
+ * Dois níveis de pastas pelo início do hash (256 x 256): com centenas de milhares de grupos cada
+ * pasta fica com poucas entradas, então abrir/listar continua rápido em qualquer sistema de arquivos.
+ *
+ * Gravação por rename atômico dentro do mesmo disco; se a origem está em outro sistema de arquivos,
+ * copia para um temporário ao lado do destino e renomeia. Serve um nó só (ou um volume compartilhado).
+ */
+@Component
+@ConditionalOnProperty(name = "app.media.store", havingValue = "local", matchIfMissing = true)
+public class LocalMediaStore implements MediaStore {
+
+    @Value("${app.media.local-path}")
+    private String mediaLocalPath;
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path tmp = Files.createTempFile(target.getParent(), ".put-", ".part");
+            try {
+                Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public Path localFile(String key) {
+        return resolve(key);
+    }
+
+    @Override
+    public StoredObject read(String key, String range) throws IOException {
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) return null;
+        return new StoredObject(Files.newInputStream(file), Files.size(file), null);
+    }
+
+    @Override
+    public Map<String, Instant> listGroups(String namespace) throws IOException {
+        Map<String, Instant> groups = new HashMap<>();
+        Path ns = root().resolve(checkSegment(namespace));
+        if (!Files.isDirectory(ns)) return groups;
+        try (DirectoryStream<Path> level1 = Files.newDirectoryStream(ns, p -> isShard(p) && Files.isDirectory(p))) {
+            for (Path l1 : level1) {
+                try (DirectoryStream<Path> level2 = Files.newDirectoryStream(l1, p -> isShard(p) && Files.isDirectory(p))) {
+                    for (Path l2 : level2) {
+                        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(l2, Files::isDirectory)) {
+                            for (Path dir : dirs) {
+                                groups.put(dir.getFileName().toString(), Files.getLastModifiedTime(dir).toInstant());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return groups;
+    }
+
+    @Override
+    public void touchGroup(String namespace, String hash) throws IOException {
+        Path dir = groupDir(namespace, hash);
+        if (Files.isDirectory(dir)) Files.setLastModifiedTime(dir, FileTime.from(Instant.now()));
+    }
+
+    @Override
+    public int deleteGroup(String namespace, String hash) throws IOException {
+        Path dir = groupDir(namespace, hash);
+        if (!Files.isDirectory(dir)) return 0;
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) {
+                if (Files.deleteIfExists(f)) removed++;
+            }
+        }
+        Files.deleteIfExists(dir);
+        return removed;
+    }
+
+    private Path resolve(String key) {
+        String[] parts = key.split("/", 3);
+        if (parts.length != 3) throw new IllegalArgumentException("Chave de mídia inválida: " + key);
+        return groupDir(parts[0], parts[1]).resolve(checkSegment(parts[2]));
+    }
+
+    private Path groupDir(String namespace, String hash) {
+        if (!isHex(hash) || hash.length() < 4) throw new IllegalArgumentException("Hash inválido: " + hash);
+        return root().resolve(checkSegment(namespace))
+                .resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(hash);
+    }
+
+    private Path root() {
+        return Paths.get(mediaLocalPath);
+    }
+
+    private static boolean isShard(Path p) {
+        String name = p.getFileName().toString();
+        return name.length() == 2 && isHex(name);
+    }
+
+    private static boolean isHex(String s) {
+        return s != null && !s.isEmpty() && s.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+    }
+
+    // um segmento só, sem "..", barras ou caracteres fora do básico
+    private static String checkSegment(String s) {
+        if (s == null || s.isEmpty() || s.startsWith(".")
+                || !s.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '.' || c == '_' || c == '-')) {
+            throw new IllegalArgumentException("Segmento de chave inválido: " + s);
+        }
+        return s;
+    }
+}
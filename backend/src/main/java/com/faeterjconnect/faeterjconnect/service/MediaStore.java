@@ -0,0 +1,56 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Onde ficam os arquivos de mídia endereçados por conteúdo (hoje: variantes de avatar).
+ *
+ * Chaves no formato "<namespace>/<hash>/<nome>", ex.: "avatars/9f86d0.../128.jpg". O conteúdo de
+ * uma chave nunca muda; o "grupo" (namespace + hash) é a unidade de limpeza.
+ *
+ * Implementações (app.media.store):
+ * - local (padrão): LocalMediaStore, disco em app.media.local-path com pastas em dois níveis pelo hash;
+ * - s3: S3MediaStore, qualquer serviço compatível com S3 (AWS, MinIO...), compartilhado entre nós.
+ */
+public interface MediaStore {
+
+    /**
+     * Grava o arquivo na chave consumindo a origem (movida ou apagada depois do envio).
+     * Leitores nunca veem a chave pela metade.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /** Arquivo no disco local (enviado por sendfile), ou null quando o armazenamento é remoto. */
+    Path localFile(String key);
+
+    /**
+     * Abre o conteúdo da chave. range = header Range do cliente (ou null), repassado a quem suportar.
+     * @return null se a chave não existe
+     */
+    StoredObject read(String key, String range) throws IOException;
+
+    /** Hashes de um namespace com a data da última gravação/touch do grupo. */
+    Map<String, Instant> listGroups(String namespace) throws IOException;
+
+    /** Marca o grupo como usado agora (renova a carência da limpeza). */
+    void touchGroup(String namespace, String hash) throws IOException;
+
+    /** Apaga todas as chaves do grupo; devolve quantas foram removidas. */
+    int deleteGroup(String namespace, String hash) throws IOException;
+
+    /**
+     * Conteúdo aberto: length = bytes do corpo (-1 se desconhecido); contentRange != null quando
+     * só o intervalo pedido veio (206), já no formato do header ("bytes 0-9/1234").
+     */
+    record StoredObject(InputStream body, long length, String contentRange) {}
+
+    static String key(String namespace, String hash, String name) {
+        return namespace + "/" + hash + "/" + name;
+    }
+}
@@ -0,0 +1,69 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantId;
+import com.faeterjconnect.faeterjconnect.repository.ConversationParticipantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache dos participantes de cada conversa para os caminhos quentes do WebSocket
+ * (typing, subscribe, send/fan-out). Entradas com TTL e tamanho máximo.
+ * Um "não" do cache é sempre confirmado no banco: quem acabou de entrar numa conversa
+ * nunca é negado por cache velho.
+ *
+ * O conjunto é um Set imutável de UUIDs (hash): a checagem é O(1) também em grupos de turma
+ * com centenas de membros; a confirmação no banco é uma sonda na PK (conversation_id, user_id).
+ */
+@Component
+public class MembershipCache {
+
+    @Autowired
+    private ConversationParticipantRepository participantRepository;
+
+    @Value("${app.chat.membership-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${app.chat.membership-cache.max-entries:50000}")
+    private int maxEntries;
+
+    private final Map<UUID, Entry> byConversation = new ConcurrentHashMap<>();
+
+    /** Ids dos participantes (conjunto imutável). */
+    public Set<UUID> participantsOf(UUID conversationId) {
+        long now = System.currentTimeMillis();
+        Entry e = byConversation.get(conversationId);
+        if (e != null && e.expiresAt > now) return e.participants;
+
+        Set<UUID> ids = Set.copyOf(participantRepository.findParticipantIds(conversationId));
+        if (byConversation.size() >= maxEntries) evictExpired();
+        if (byConversation.size() < maxEntries) byConversation.put(conversationId, new Entry(ids, now + ttlMs));
+        return ids;
+    }
+
+    public boolean isParticipant(UUID conversationId, UUID userId) {
+        if (participantsOf(conversationId).contains(userId)) return true;
+
+        boolean allowed = participantRepository.existsById(new ConversationParticipantId(conversationId, userId));
+        if (allowed) invalidate(conversationId); // entrou depois do cache: recarrega na próxima
+        return allowed;
+    }
+
+    public void invalidate(UUID conversationId) {
+        byConversation.remove(conversationId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.membership-cache.ttl-ms:300000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        byConversation.values().removeIf(e -> e.expiresAt <= now);
+    }
+
+    private record Entry(Set<UUID> participants, long expiresAt) {}
+}
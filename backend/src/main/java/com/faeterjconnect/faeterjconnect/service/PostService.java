@@ -5,11 +5,12 @@ import com.faeterjconnect.faeterjconnect.dto.PostDTO;
 import com.faeterjconnect.faeterjconnect.dto.PostViewDTO;
 import com.faeterjconnect.faeterjconnect.exception.ExceptionCustom;
 import com.faeterjconnect.faeterjconnect.model.PostEntity;
-import com.faeterjconnect.faeterjconnect.model.UserEntity;
 import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
 import com.faeterjconnect.faeterjconnect.repository.CommentedRepository;
 import com.faeterjconnect.faeterjconnect.repository.PostLikeRepository;
 import com.faeterjconnect.faeterjconnect.repository.PostRepository;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,11 +35,16 @@ public class PostService {
     private PostLikeRepository postLikeRepository;
     @Autowired
     private CommentedRepository commentedRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserSummaryCache userSummaryCache;
 
     private static final int DEFAULT_LIMIT = 10;
     private static final int MAX_LIMIT = 50;
 
-    public PostViewDTO createPost(PostDTO postDTO, UserEntity user) {
+    @Transactional
+    public PostViewDTO createPost(PostDTO postDTO, AuthenticatedUser user) {
         if (user == null || user.getUserId() == null) {
             throw new ExceptionCustom.InvalidUserException();
         }
@@ -48,18 +54,18 @@ public class PostService {
         }
 
         PostEntity post = new PostEntity();
-        post.setUser(user);
+        post.setUser(userRepository.getReferenceById(user.getUserId())); // proxy: só o id vai para o INSERT
         post.setContent(postDTO.content());
         post.setRolePostEnum(postDTO.rolePostEnum());
 
         PostEntity postSaved = postRepository.save(post);
 
         // Novo post nasce com 0 likes e não curtido pelo autor (ou cliente atual)
-        return toViewDTO(postSaved, 0L, false);
+        return toViewDTO(postSaved, 0L, false, userSummaryCache.getAll(List.of(user.getUserId())));
     }
 
     @Transactional
-    public void deletePost(UUID postId, UserEntity user) {
+    public void deletePost(UUID postId, AuthenticatedUser user) {
         PostEntity post = postRepository.findById(postId)
                 .orElseThrow(() -> new ExceptionCustom.PostNotExistsException());
 
@@ -81,7 +87,7 @@ public class PostService {
     // ---------- FEED POR CURSOR ----------
 
     @Transactional(readOnly = true)
-    public CursorPage<PostViewDTO> getFeedByCursor(Integer limitParam, String cursor, UserEntity user) {
+    public CursorPage<PostViewDTO> getFeedByCursor(Integer limitParam, String cursor, AuthenticatedUser user) {
         int limit = normalizeLimit(limitParam);
 
         var sort = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("postId"));
@@ -117,11 +123,15 @@ public class PostService {
                 ? postLikeRepository.findPostIdsLikedByUser(user.getUserId(), postIds)
                 : Collections.emptySet();
 
+        Map<UUID, UserSummaryCache.UserSummary> authors = userSummaryCache.getAll(
+                posts.stream().map(PostService::authorId).filter(Objects::nonNull).toList());
+
         List<PostViewDTO> items = posts.stream()
                 .map(p -> toViewDTO(
                         p,
                         likeCountMap.getOrDefault(p.getPostId(), 0L),
-                        likedByMeSet.contains(p.getPostId())
+                        likedByMeSet.contains(p.getPostId()),
+                        authors
                 ))
                 .toList();
 
@@ -140,7 +150,7 @@ public class PostService {
     public CursorPage<PostViewDTO> getPostsByAuthorCursor(Integer limitParam,
                                                           String cursor,
                                                           UUID authorId,
-                                                          UserEntity user) {
+                                                          AuthenticatedUser user) {
         int limit = normalizeLimit(limitParam);
 
         var sort = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("postId"));
@@ -175,11 +185,15 @@ public class PostService {
                 ? postLikeRepository.findPostIdsLikedByUser(user.getUserId(), postIds)
                 : Collections.emptySet();
 
+        Map<UUID, UserSummaryCache.UserSummary> authors = userSummaryCache.getAll(
+                posts.stream().map(PostService::authorId).filter(Objects::nonNull).toList());
+
         List<PostViewDTO> items = posts.stream()
                 .map(p -> toViewDTO(
                         p,
                         likeCountMap.getOrDefault(p.getPostId(), 0L),
-                        likedByMeSet.contains(p.getPostId())
+                        likedByMeSet.contains(p.getPostId()),
+                        authors
                 ))
                 .toList();
 
@@ -202,22 +216,30 @@ public class PostService {
         return limit;
     }
 
-    private PostViewDTO toViewDTO(PostEntity p, long likeCount, boolean likedByMe) {
+    private PostViewDTO toViewDTO(PostEntity p, long likeCount, boolean likedByMe,
+                                  Map<UUID, UserSummaryCache.UserSummary> authors) {
+        UUID authorId = authorId(p);
+        UserSummaryCache.UserSummary author = (authorId != null) ? authors.get(authorId) : null;
         return new PostViewDTO(
                 p.getPostId(),
-                (p.getUser() != null) ? p.getUser().getUserId() : null,
-                (p.getUser() != null) ? p.getUser().getUsername() : null,
+                authorId,
+                (author != null) ? author.username() : null,
                 p.getContent(),
                 p.getRolePostEnum(),
                 p.getCreatedAt(),
                 (p.getCommented() != null) ? p.getCommented().size() : 0,
                 likeCount,
                 likedByMe,
-                p.getUser().getRoleEnum(),
-                p.getUser().getTurno()
+                (author != null) ? author.roleEnum() : null,
+                (author != null) ? author.turno() : null
         );
     }
 
+    // Id do proxy LAZY: lido da FK, sem carregar o usuário
+    private static UUID authorId(PostEntity p) {
+        return (p.getUser() != null) ? p.getUser().getUserId() : null;
+    }
+
     private String encodeCursor(LocalDateTime createdAt, UUID postId) {
         try {
             Map<String, String> payload = Map.of(
@@ -0,0 +1,107 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.PresenceEvent;
+import com.faeterjconnect.faeterjconnect.repository.ConversationParticipantRepository;
+import com.faeterjconnect.faeterjconnect.security.JwtStompChannelInterceptor.StompPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Quem está online.
+ * Registro em memória usuário -> nº de sessões STOMP abertas, alimentado pelos eventos de
+ * CONNECT/DISCONNECT. Sessões ociosas caem pelo heartbeat do broker (WebSocketConfig), que
+ * gera o DISCONNECT. Só existe entrada para quem tem sessão aberta, então a memória acompanha
+ * o número de sockets. Mudanças de presença são agregadas e enviadas em lote aos parceiros
+ * de conversa em /user/queue/presence.
+ */
+@Service
+public class PresenceService {
+
+    private static final int PARTNER_QUERY_CHUNK = 500;
+
+    @Autowired
+    private ConversationParticipantRepository participantRepository;
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final Map<UUID, Integer> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<String, UUID> userBySession = new ConcurrentHashMap<>();
+    private final Set<UUID> changed = ConcurrentHashMap.newKeySet();
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        UUID userId = userOf(event);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (userId == null || sessionId == null) return;
+        if (userBySession.putIfAbsent(sessionId, userId) != null) return;
+
+        if (sessionsByUser.merge(userId, 1, Integer::sum) == 1) {
+            changed.add(userId); // 0 -> 1: ficou online
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        // DISCONNECT pode chegar mais de uma vez por sessão; só a primeira conta
+        UUID userId = userBySession.remove(event.getSessionId());
+        if (userId == null) return;
+
+        if (sessionsByUser.computeIfPresent(userId, (k, n) -> n > 1 ? n - 1 : null) == null) {
+            changed.add(userId); // 1 -> 0: ficou offline
+        }
+    }
+
+    /** O(1), sem alocação. */
+    public boolean isOnline(UUID userId) {
+        return sessionsByUser.containsKey(userId);
+    }
+
+    public int onlineUsers() {
+        return sessionsByUser.size();
+    }
+
+    public List<UUID> onlinePartners(UUID userId) {
+        return participantRepository.findPartnerIds(userId).stream()
+                .filter(this::isOnline)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.presence.flush-interval-ms:2000}")
+    public void flush() {
+        if (changed.isEmpty()) return;
+
+        List<UUID> batch = new ArrayList<>();
+        for (Iterator<UUID> it = changed.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+        }
+
+        // Um evento por usuário alterado, com o estado ATUAL (liga/desliga rápido vira nada ou um)
+        Map<UUID, List<PresenceEvent>> byRecipient = new HashMap<>();
+        for (int i = 0; i < batch.size(); i += PARTNER_QUERY_CHUNK) {
+            var chunk = batch.subList(i, Math.min(batch.size(), i + PARTNER_QUERY_CHUNK));
+            for (var row : participantRepository.findPartnerPairs(chunk)) {
+                if (!isOnline(row.getPartnerId())) continue; // ninguém para receber
+                byRecipient.computeIfAbsent(row.getPartnerId(), k -> new ArrayList<>())
+                        .add(new PresenceEvent(row.getUserId(), isOnline(row.getUserId())));
+            }
+        }
+
+        byRecipient.forEach((recipient, events) ->
+                messagingTemplate.convertAndSendToUser(recipient.toString(), "/queue/presence", events));
+    }
+
+    private static UUID userOf(AbstractSubProtocolEvent event) {
+        return (event.getUser() instanceof StompPrincipal p) ? UUID.fromString(p.getUserId()) : null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.ReceiptEvent;
+import com.faeterjconnect.faeterjconnect.model.enums.DeliveryStatusEnum;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recibos de entrega/leitura.
+ * O ACK do cliente só move o watermark do participante (ChatService); o evento para os outros
+ * participantes fica num buffer por (conversa, usuário, tipo) e é publicado no máximo uma vez
+ * por intervalo. Vários ACKs seguidos viram um único evento com o maior watermark.
+ */
+@Service
+public class ReceiptService {
+
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private ChatPublisher chatPublisher;
+
+    private final Map<PendingKey, ReceiptEvent> pending = new ConcurrentHashMap<>();
+
+    public void ackRead(UUID userId, UUID conversationId, UUID upToMessageId) {
+        enqueue(chatService.markRead(userId, conversationId, upToMessageId));
+    }
+
+    public void ackDelivered(UUID userId, UUID conversationId, UUID upToMessageId) {
+        enqueue(chatService.markDelivered(userId, conversationId, upToMessageId));
+    }
+
+    private void enqueue(ReceiptEvent event) {
+        if (event == null) return; // watermark não andou: nada a avisar
+        var key = new PendingKey(event.conversationId(), event.userId(), event.status());
+        pending.merge(key, event,
+                (old, neu) -> neu.upToSentAt().isAfter(old.upToSentAt()) ? neu : old);
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.receipts.flush-interval-ms:500}")
+    public void flush() {
+        for (PendingKey key : pending.keySet()) {
+            ReceiptEvent event = pending.remove(key);
+            if (event != null) {
+                chatPublisher.publish(event.conversationId(), event);
+            }
+        }
+    }
+
+    private record PendingKey(UUID conversationId, UUID userId, DeliveryStatusEnum status) {}
+}
@@ -0,0 +1,345 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * MediaStore em um bucket compatível com S3 (AWS S3, MinIO, Ceph RGW, R2...): todos os nós leem e
+ * gravam o mesmo bucket, então qualquer nó serve qualquer avatar. A chave no bucket é a própria
+ * chave de mídia ("avatars/<hash>/128.jpg"): o S3 não tem pastas, não precisa de fan-out.
+ *
+ * Fala a API REST direto pelo java.net.http.HttpClient com assinatura AWS Signature V4 (corpo não
+ * assinado, UNSIGNED-PAYLOAD), só com as operações usadas aqui: PUT, HEAD, GET (com Range), DELETE
+ * e ListObjectsV2. Para testes, aponte app.media.s3.endpoint para um MinIO local com path-style=true.
+ *
+ * Com app.media.base-url apontando para o bucket (ou uma CDN na frente dele) os clientes baixam
+ * direto do armazenamento; com o padrão (/media) o MediaController repassa o conteúdo.
+ */
+@Component
+@ConditionalOnProperty(name = "app.media.store", havingValue = "s3")
+public class S3MediaStore implements MediaStore {
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final String TOUCH = ".touch";
+
+    @Value("${app.media.s3.endpoint}")
+    private String endpoint;
+
+    @Value("${app.media.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.media.s3.bucket}")
+    private String bucket;
+
+    @Value("${app.media.s3.access-key}")
+    private String accessKey;
+
+    @Value("${app.media.s3.secret-key}")
+    private String secretKey;
+
+    // true: http://host/bucket/chave (MinIO e afins); false: http://bucket.host/chave (AWS)
+    @Value("${app.media.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Value("${app.media.s3.timeout-ms:10000}")
+    private long timeoutMs;
+
+    private HttpClient http;
+    private URI base;
+
+    @PostConstruct
+    void init() {
+        URI e = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        base = pathStyle ? e : URI.create(e.getScheme() + "://" + bucket + "." + e.getRawAuthority());
+        http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        HttpResponse<String> res = send("PUT", key, Map.of(), Map.of("content-type", contentType),
+                HttpRequest.BodyPublishers.ofFile(source), HttpResponse.BodyHandlers.ofString());
+        expectOk(res, "PUT", key);
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpResponse<Void> res = send("HEAD", key, Map.of(), Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        if (res.statusCode() == 404) return false;
+        if (res.statusCode() / 100 != 2) throw new IOException("S3 HEAD " + key + " -> " + res.statusCode());
+        return true;
+    }
+
+    @Override
+    public Path localFile(String key) {
+        return null;
+    }
+
+    @Override
+    public StoredObject read(String key, String range) throws IOException {
+        // mesmas regras do RangeFileWriter: um intervalo só; vários = objeto inteiro
+        Map<String, String> headers = (range != null && range.startsWith("bytes=") && range.indexOf(',') < 0)
+                ? Map.of("range", range)
+                : Map.of();
+        HttpResponse<InputStream> res = send("GET", key, Map.of(), headers,
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        int status = res.statusCode();
+        if (status == 404 || status == 416) {
+            res.body().close();
+            return null;
+        }
+        if (status != 200 && status != 206) {
+            res.body().close();
+            throw new IOException("S3 GET " + key + " -> " + status);
+        }
+        long length = res.headers().firstValueAsLong("content-length").orElse(-1);
+        String contentRange = status == 206 ? res.headers().firstValue("content-range").orElse(null) : null;
+        return new StoredObject(res.body(), length, contentRange);
+    }
+
+    @Override
+    public Map<String, Instant> listGroups(String namespace) throws IOException {
+        Map<String, Instant> groups = new HashMap<>();
+        String prefix = namespace + "/";
+        for (Listed obj : list(prefix)) {
+            String[] parts = obj.key().substring(prefix.length()).split("/", 2);
+            if (parts.length < 2 || parts[0].isEmpty()) continue;
+            groups.merge(parts[0], obj.lastModified(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        return groups;
+    }
+
+    // Objetos do S3 não têm mtime editável: um marcador vazio regravado faz o papel
+    @Override
+    public void touchGroup(String namespace, String hash) throws IOException {
+        String key = MediaStore.key(namespace, hash, TOUCH);
+        HttpResponse<String> res = send("PUT", key, Map.of(), Map.of("content-type", "application/octet-stream"),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        expectOk(res, "PUT", key);
+    }
+
+    @Override
+    public int deleteGroup(String namespace, String hash) throws IOException {
+        int removed = 0;
+        for (Listed obj : list(namespace + "/" + hash + "/")) {
+            HttpResponse<String> res = send("DELETE", obj.key(), Map.of(), Map.of(),
+                    HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() != 404) expectOk(res, "DELETE", obj.key());
+            if (!obj.key().endsWith("/" + TOUCH)) removed++;
+        }
+        return removed;
+    }
+
+    private record Listed(String key, Instant lastModified) {}
+
+    // ListObjectsV2 paginado (até 1000 chaves por página)
+    private List<Listed> list(String prefix) throws IOException {
+        List<Listed> out = new ArrayList<>();
+        String token = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", prefix);
+            if (token != null) query.put("continuation-token", token);
+
+            HttpResponse<InputStream> res = send("GET", null, query, Map.of(),
+                    HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+            Document doc;
+            try (InputStream body = res.body()) {
+                if (res.statusCode() != 200) {
+                    throw new IOException("S3 LIST " + prefix + " -> " + res.statusCode());
+                }
+                doc = parseXml(body);
+            }
+
+            NodeList contents = doc.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element c = (Element) contents.item(i);
+                out.add(new Listed(text(c, "Key"), Instant.parse(text(c, "LastModified"))));
+            }
+            token = "true".equals(text(doc.getDocumentElement(), "IsTruncated"))
+                    ? text(doc.getDocumentElement(), "NextContinuationToken")
+                    : null;
+        } while (token != null);
+        return out;
+    }
+
+    private <T> HttpResponse<T> send(String method, String key, Map<String, String> query,
+                                     Map<String, String> extraHeaders,
+                                     HttpRequest.BodyPublisher body,
+                                     HttpResponse.BodyHandler<T> handler) throws IOException {
+        // key null = operação no bucket (listagem): "/bucket" no path-style, "/" no virtual-hosted
+        String path = key == null
+                ? (pathStyle ? "/" + encode(bucket) : "/")
+                : (pathStyle ? "/" + encode(bucket) : "") + "/" + encodePath(key);
+        String canonicalQuery = canonicalQuery(query);
+        URI uri = URI.create(base + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+
+        String amzDate = AMZ_DATE.format(Instant.now());
+        String payloadHash = "PUT".equals(method) ? UNSIGNED_PAYLOAD : EMPTY_SHA256;
+        SortedMap<String, String> signed = new TreeMap<>(extraHeaders);
+        signed.put("host", hostHeader(uri));
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", amzDate);
+
+        HttpRequest.Builder req = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .method(method, body)
+                .header("Authorization", authorization(accessKey, secretKey, region, method, path,
+                        canonicalQuery, signed, payloadHash, amzDate));
+        signed.forEach((name, value) -> {
+            if (!name.equals("host")) req.header(name, value); // Host é definido pelo HttpClient
+        });
+
+        try {
+            return http.send(req.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido falando com o S3", e);
+        }
+    }
+
+    /**
+     * Header Authorization da AWS Signature V4 (serviço "s3").
+     * headers: nomes em minúsculo, todos assinados (host e x-amz-* inclusive).
+     */
+    static String authorization(String accessKey, String secretKey, String region, String method,
+                                String canonicalUri, String canonicalQuery, SortedMap<String, String> headers,
+                                String payloadHash, String amzDate) {
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/s3/aws4_request";
+
+        StringBuilder canonicalHeaders = new StringBuilder();
+        headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+        String signedHeaders = String.join(";", headers.keySet());
+
+        String canonicalRequest = method + "\n" + canonicalUri + "\n" + canonicalQuery + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        StringJoiner out = new StringJoiner("&");
+        new TreeMap<>(query).forEach((k, v) -> out.add(encode(k) + "=" + encode(v)));
+        return out.toString();
+    }
+
+    private static String encodePath(String key) {
+        StringJoiner out = new StringJoiner("/");
+        for (String segment : key.split("/", -1)) out.add(encode(segment));
+        return out.toString();
+    }
+
+    // URI-encode da AWS: só A-Z a-z 0-9 - _ . ~ passam, o resto vira %XX (maiúsculo)
+    private static String encode(String s) {
+        StringBuilder out = new StringBuilder();
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                out.append(c);
+            } else {
+                out.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return out.toString();
+    }
+
+    // mesmo valor que o HttpClient manda no Host (porta só quando não é a padrão)
+    private static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1
+                || ("https".equals(uri.getScheme()) && port == 443)
+                || ("http".equals(uri.getScheme()) && port == 80);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static void expectOk(HttpResponse<String> res, String method, String key) throws IOException {
+        if (res.statusCode() / 100 != 2) {
+            String body = res.body() == null ? "" : res.body();
+            throw new IOException("S3 " + method + " " + key + " -> " + res.statusCode()
+                    + (body.isEmpty() ? "" : ": " + body.substring(0, Math.min(200, body.length()))));
+        }
+    }
+
+    private static Document parseXml(InputStream in) throws IOException {
+        try {
+            DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+            f.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            f.setExpandEntityReferences(false);
+            return f.newDocumentBuilder().parse(in);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Resposta XML inválida do S3", e);
+        }
+    }
+
+    // texto do primeiro filho direto com esse nome, ou null
+    private static String text(Element parent, String tag) {
+        for (org.w3c.dom.Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element e && tag.equals(e.getTagName())) return e.getTextContent();
+        }
+        return null;
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
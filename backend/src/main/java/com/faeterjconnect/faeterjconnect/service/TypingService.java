@@ -0,0 +1,103 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.TypingEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indicador "digitando..." com estado no servidor.
+ * O cliente pode mandar um frame por tecla; aqui isso vira no máximo uma transição
+ * (começou/parou) por usuário por janela. O "parou" sai quando o usuário fica
+ * expiry-ms sem mandar frames ou quando envia a mensagem.
+ */
+@Service
+public class TypingService {
+
+    @Autowired
+    private ChatPublisher chatPublisher;
+    @Autowired
+    private MembershipCache membershipCache;
+
+    @Value("${app.chat.typing.window-ms:3000}")
+    private long windowMs;
+
+    @Value("${app.chat.typing.expiry-ms:5000}")
+    private long expiryMs;
+
+    private final Map<Key, State> states = new ConcurrentHashMap<>();
+
+    public void onTyping(UUID conversationId, UUID userId) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
+            throw new AccessDeniedException("Você não participa desta conversa.");
+        }
+        long now = System.currentTimeMillis();
+        boolean[] start = {false};
+        states.compute(new Key(conversationId, userId), (k, st) -> {
+            if (st == null) {
+                start[0] = true;
+                return new State(now, now, true);
+            }
+            st.lastSeenMs = now;
+            if (!st.typing && now - st.lastEmitMs >= windowMs) {
+                st.typing = true;
+                st.lastEmitMs = now;
+                start[0] = true;
+            }
+            return st;
+        });
+        if (start[0]) publish(conversationId, userId, true);
+    }
+
+    /** Mensagem enviada: o indicador some no cliente junto com a chegada da mensagem. */
+    public void onMessageSent(UUID conversationId, UUID userId) {
+        states.computeIfPresent(new Key(conversationId, userId), (k, st) -> {
+            st.typing = false;
+            return st;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.typing.sweep-ms:1000}")
+    public void expireIdle() {
+        long now = System.currentTimeMillis();
+        for (Key key : states.keySet()) {
+            boolean[] stop = {false};
+            states.computeIfPresent(key, (k, st) -> {
+                if (st.typing && now - st.lastSeenMs >= expiryMs && now - st.lastEmitMs >= windowMs) {
+                    st.typing = false;
+                    st.lastEmitMs = now;
+                    stop[0] = true;
+                    return st;
+                }
+                // ocioso há tempo suficiente: libera a memória do estado
+                return (!st.typing && now - st.lastSeenMs >= expiryMs + windowMs) ? null : st;
+            });
+            if (stop[0]) publish(key.conversationId(), key.userId(), false);
+        }
+    }
+
+    private void publish(UUID conversationId, UUID userId, boolean typing) {
+        chatPublisher.publish(conversationId, new TypingEvent(conversationId, userId, typing));
+    }
+
+    private record Key(UUID conversationId, UUID userId) {}
+
+    // só é alterado dentro de compute/computeIfPresent (travado por chave no ConcurrentHashMap)
+    private static final class State {
+        long lastSeenMs;
+        long lastEmitMs;
+        boolean typing;
+
+        State(long lastSeenMs, long lastEmitMs, boolean typing) {
+            this.lastSeenMs = lastSeenMs;
+            this.lastEmitMs = lastEmitMs;
+            this.typing = typing;
+        }
+    }
+}
@@ -1,29 +1,63 @@
 package com.faeterjconnect.faeterjconnect.service;
 
 
+import com.faeterjconnect.faeterjconnect.dto.AvatarResponse;
+import com.faeterjconnect.faeterjconnect.exception.ExceptionCustom;
 import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.AvatarStatusEnum;
 import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Set;
-import java.util.UUID;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
+/**
+ * Avatares em várias resoluções (app.media.avatar.sizes, ex.: 48/128/512), gravados por conteúdo
+ * na chave avatars/<sha256 do upload>/<lado>.jpg do MediaStore (disco local em pastas por hash, ou
+ * bucket S3 compartilhado entre os nós: app.media.store).
+ *
+ * O upload só copia o arquivo para uma área temporária (calculando o hash no caminho) e responde
+ * na hora com PROCESSING; decodificar/redimensionar/codificar roda num pool pequeno e limitado.
+ * Quando termina, profileImageUrl passa a apontar para a maior variante e o status vira READY.
+ * Listas (feed, chat) usam a variante pequena em vez de baixar a de 512px.
+ *
+ * Fila cheia -> 429 (o avatar atual continua valendo). Dois uploads seguidos: vale o último; a
+ * gravação no banco confere o hash (finishAvatar), então um processamento antigo não sobrescreve.
+ * Falha no processamento devolve a foto anterior (url e hash) com status FAILED.
+ *
+ * Arquivos que nenhum usuário referencia mais são apagados por cleanupStaleFiles() (agendado),
+ * depois de um período de carência; o upload nunca apaga nada no caminho do request.
+ */
 @Service
 @RequiredArgsConstructor
 public class UserAvatarService {
 
     private final UserRepository userRepository;
+    private final UserSummaryCache userSummaryCache;
+    private final ImageProcessingService imageProcessing;
+    private final MediaStore mediaStore;
+
+    private static final String NAMESPACE = "avatars";
 
     @Value("${app.media.local-path}")
     private String mediaLocalPath;
@@ -31,8 +65,36 @@ public class UserAvatarService {
     @Value("${app.media.base-url}")
     private String mediaBaseUrl;
 
+    @Value("${app.media.avatar.sizes:48,128,512}")
+    private List<Integer> sizes;
+
+    @Value("${app.media.avatar.threads:2}")
+    private int threads;
+
+    @Value("${app.media.avatar.queue-capacity:50}")
+    private int queueCapacity;
+
+    // Arquivo sem referência só é apagado depois disso (clientes com a URL antiga em tela, jobs em curso)
+    @Value("${app.media.avatar.cleanup-grace-ms:86400000}")
+    private long cleanupGraceMs;
+
     private static final Set<String> ALLOWED = Set.of("image/jpeg", "image/png", "image/webp");
 
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        sizes = sizes.stream().distinct().sorted().toList();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "avatar");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
     public UserEntity uploadAvatar(UUID userId, MultipartFile file) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("Arquivo de imagem é obrigatório");
@@ -47,68 +109,237 @@ public class UserAvatarService {
         UserEntity user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
 
-        // Lê a imagem
-        BufferedImage original = ImageIO.read(file.getInputStream());
-        if (original == null) throw new IllegalArgumentException("Imagem inválida/corrompida.");
-
-        // Redimensiona para no máximo 512x512 mantendo proporção
-        int max = 512;
-        int w = original.getWidth(), h = original.getHeight();
-        double scale = Math.min(1.0, (double) max / Math.max(w, h));
-        int nw = (int) Math.round(w * scale);
-        int nh = (int) Math.round(h * scale);
-
-        Image scaled = original.getScaledInstance(nw, nh, Image.SCALE_SMOOTH);
-        BufferedImage out = new BufferedImage(nw, nh, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = out.createGraphics();
-        g.setComposite(AlphaComposite.Src);
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g.drawImage(scaled, 0, 0, null);
-        g.dispose();
-
-        // Define destino (pasta por usuário)
-        Path userDir = Paths.get(mediaLocalPath, user.getUserId().toString());
-        Files.createDirectories(userDir);
-
-        // Salva como JPG para simplificar compatibilidade (se quiser WEBP, use plugin)
-        String filename = "avatar_" + System.currentTimeMillis() + ".jpg";
-        Path target = userDir.resolve(filename);
-
-        try (OutputStream os = Files.newOutputStream(target)) {
-            ImageIO.write(out, "jpg", os);
+        // Copia o upload para a área temporária calculando o sha256 no caminho
+        Path staged = Files.createTempFile(stagingDir(), "up-", ".part");
+        String hash;
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, staged, StandardCopyOption.REPLACE_EXISTING);
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(staged);
+            throw e;
         }
 
-        // Opcional: apagar arquivo antigo se era local
-        deleteOldFileIfLocal(user.getProfileImageUrl());
+        String previousUrl = user.getProfileImageUrl();
+        String previousHash = user.getAvatarHash();
+        AvatarStatusEnum previousStatus = user.getAvatarStatus();
 
-        // Monta URL pública
-        String publicUrl = String.format("%s/%s/%s", mediaBaseUrl, user.getUserId(), filename)
-                .replace("//", "/"); // normaliza
+        // Mesma imagem já processada (reenvio, ou outro usuário com a mesma foto): nada a gerar
+        if (variantsExist(hash)) {
+            Files.deleteIfExists(staged);
+            // renova a carência: a limpeza não apaga o grupo enquanto este usuário passa a usá-lo
+            mediaStore.touchGroup(NAMESPACE, hash);
+            user.setAvatarHash(hash);
+            user.setAvatarStatus(AvatarStatusEnum.READY);
+            user.setProfileImageUrl(urlFor(hash, largest()));
+            UserEntity saved = userRepository.save(user);
+            userSummaryCache.put(saved);
+            return saved;
+        }
 
-        user.setProfileImageUrl(publicUrl);
-        return userRepository.save(user);
+        user.setAvatarHash(hash);
+        user.setAvatarStatus(AvatarStatusEnum.PROCESSING);
+        UserEntity saved = userRepository.save(user);
+        try {
+            executor.execute(() -> process(userId, hash, staged, previousUrl, previousHash));
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(staged);
+            user.setAvatarHash(previousHash);
+            user.setAvatarStatus(previousStatus);
+            userSummaryCache.put(userRepository.save(user));
+            throw new ExceptionCustom.TooManyRequestsException(5);
+        }
+        userSummaryCache.put(saved);
+        return saved;
     }
 
     public UserEntity removeAvatar(UUID userId) throws IOException {
         UserEntity user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
 
-        deleteOldFileIfLocal(user.getProfileImageUrl());
         user.setProfileImageUrl(null);
-        return userRepository.save(user);
+        user.setAvatarHash(null);
+        user.setAvatarStatus(null);
+        UserEntity saved = userRepository.save(user);
+        userSummaryCache.put(saved);
+        return saved;
+    }
+
+    public UserEntity getAvatar(UUID userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
     }
 
-    private void deleteOldFileIfLocal(String url) throws IOException {
-        if (url == null) return;
-        // se começa com /media/ consideramos local
-        if (url.startsWith("/media/")) {
-            String relative = url.replaceFirst("^/media/", ""); // userId/arquivo.jpg
-            Path file = Paths.get(mediaLocalPath, relative);
+    /** URLs das variantes só quando prontas; antes disso o cliente mostra a foto anterior. */
+    public AvatarResponse toResponse(UserEntity user) {
+        Map<Integer, String> variants = new LinkedHashMap<>();
+        if (user.getAvatarStatus() == AvatarStatusEnum.READY && user.getAvatarHash() != null) {
+            for (int size : sizes) variants.put(size, urlFor(user.getAvatarHash(), size));
+        }
+        return new AvatarResponse(user.getProfileImageUrl(), user.getAvatarStatus(), variants);
+    }
+
+    // Roda no pool "avatar": decodifica já perto da maior variante (memória limitada pelo
+    // ImageProcessingService) e gera da maior para a menor, cada uma a partir da anterior
+    private void process(UUID userId, String hash, Path staged, String previousUrl, String previousHash) {
+        try {
+            BufferedImage current = imageProcessing.readScaled(staged, largest());
+            if (current == null) {
+                System.err.println("[USER][AVATAR] imagem não decodificável de " + userId);
+                finish(userId, hash, previousHash, previousUrl, AvatarStatusEnum.FAILED);
+                return;
+            }
+
+            for (int i = sizes.size() - 1; i >= 0; i--) {
+                int size = sizes.get(i);
+                current = imageProcessing.downscale(current, size);
+                Path tmp = Files.createTempFile(stagingDir(), "av-", ".part");
+                try {
+                    try (OutputStream os = Files.newOutputStream(tmp)) {
+                        ImageIO.write(current, "jpg", os);
+                    }
+                    mediaStore.put(MediaStore.key(NAMESPACE, hash, size + ".jpg"), tmp, "image/jpeg");
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+
+            finish(userId, hash, hash, urlFor(hash, largest()), AvatarStatusEnum.READY);
+        } catch (Exception e) {
+            System.err.println("[USER][AVATAR][ERR] processamento de " + userId + " falhou: " + e.getMessage());
+            finish(userId, hash, previousHash, previousUrl, AvatarStatusEnum.FAILED);
+        } finally {
             try {
-                Files.deleteIfExists(file);
-            } catch (Exception ignored) {}
+                Files.deleteIfExists(staged);
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private boolean finish(UUID userId, String hash, String newHash, String url, AvatarStatusEnum status) {
+        try {
+            boolean applied = userRepository.finishAvatar(userId, hash, newHash, url, status) > 0;
+            if (applied) userSummaryCache.invalidate(userId);
+            return applied;
+        } catch (Exception e) {
+            System.err.println("[USER][AVATAR][ERR] falha ao gravar avatar de " + userId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Chave de uma variante no MediaStore, ou null se hash/tamanho não são válidos (servido pelo MediaController). */
+    public String variantKey(String hash, int size) {
+        if (!ChatAttachmentService.isValidHash(hash) || !sizes.contains(size)) return null;
+        return MediaStore.key(NAMESPACE, hash, size + ".jpg");
+    }
+
+    /**
+     * Apaga grupos de avatar que nenhum usuário referencia, temporários esquecidos e avatares no
+     * formato antigo (/media/<userId>/avatar_<millis>.jpg) substituídos, todos mais velhos que a carência.
+     */
+    @Scheduled(fixedDelayString = "${app.media.avatar.cleanup-ms:3600000}",
+            initialDelayString = "${app.media.avatar.cleanup-ms:3600000}")
+    public void cleanupStaleFiles() {
+        long cutoff = System.currentTimeMillis() - cleanupGraceMs;
+        int removed = 0;
+        try {
+            Set<String> hashes = new HashSet<>(userRepository.findAvatarHashes());
+            Set<String> urls = new HashSet<>(userRepository.findProfileImageUrls());
+            for (String url : urls) {
+                String referenced = hashFromUrl(url); // url em uso vale mesmo se o hash da linha divergir
+                if (referenced != null) hashes.add(referenced);
+            }
+            Path root = Paths.get(mediaLocalPath);
+
+            for (Map.Entry<String, Instant> group : mediaStore.listGroups(NAMESPACE).entrySet()) {
+                String hash = group.getKey();
+                if (ChatAttachmentService.isValidHash(hash) && !hashes.contains(hash)
+                        && group.getValue().toEpochMilli() < cutoff) {
+                    removed += mediaStore.deleteGroup(NAMESPACE, hash);
+                }
+            }
+            removed += deleteOlderThan(stagingDir(), cutoff, f -> true);
+
+            if (Files.isDirectory(root)) {
+                try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+                    for (Path dir : dirs) {
+                        if (!isUuid(dir.getFileName().toString())) continue; // só as pastas antigas por usuário
+                        removed += deleteOlderThan(dir, cutoff, f -> f.getFileName().toString().startsWith("avatar_")
+                                && !urls.contains("/media/" + dir.getFileName() + "/" + f.getFileName()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[USER][AVATAR][ERR] limpeza de arquivos falhou: " + e.getMessage());
         }
+        if (removed > 0) System.out.println("[USER][AVATAR] limpeza: " + removed + " arquivos removidos");
+    }
+
+    // ".../avatars/<hash>/<lado>.jpg" -> hash; null para urls no formato antigo
+    static String hashFromUrl(String url) {
+        int start = url.lastIndexOf("/" + NAMESPACE + "/");
+        if (start < 0) return null;
+        start += NAMESPACE.length() + 2;
+        int end = url.indexOf('/', start);
+        if (end < 0) return null;
+        String hash = url.substring(start, end);
+        return ChatAttachmentService.isValidHash(hash) ? hash : null;
+    }
+
+    private static int deleteOlderThan(Path dir, long cutoff, Predicate<Path> filter) throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path f : files) {
+                if (filter.test(f) && Files.getLastModifiedTime(f).toMillis() < cutoff && Files.deleteIfExists(f)) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static boolean isUuid(String s) {
+        try {
+            UUID.fromString(s);
+            return s.length() == 36;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean variantsExist(String hash) throws IOException {
+        for (int size : sizes) {
+            if (!mediaStore.exists(MediaStore.key(NAMESPACE, hash, size + ".jpg"))) return false;
+        }
+        return true;
+    }
+
+    private int largest() {
+        return sizes.get(sizes.size() - 1);
+    }
+
+    private String urlFor(String hash, int size) {
+        String base = mediaBaseUrl.endsWith("/") ? mediaBaseUrl.substring(0, mediaBaseUrl.length() - 1) : mediaBaseUrl;
+        return base + "/avatars/" + hash + "/" + size + ".jpg";
+    }
+
+    // Upload e JPEGs recém-codificados ficam sempre no disco local até irem para o MediaStore
+    private Path stagingDir() throws IOException {
+        return Files.createDirectories(Paths.get(mediaLocalPath, "avatars", "tmp"));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
     }
 }
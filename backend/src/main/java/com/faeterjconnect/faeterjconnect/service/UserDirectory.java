@@ -0,0 +1,139 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.UserViewDTO;
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Diretório de usuários em memória para o autocomplete do chat (/api/user/search).
+ *
+ * Dois índices ordenados (ConcurrentSkipListMap) com o nome normalizado (minúsculo, sem acento):
+ * um pelo nome completo e outro por palavra ("ana" e "silva" em "Ana Silva"). A busca é um
+ * subMap pelo prefixo: primeiro quem começa com o termo, depois quem tem uma palavra que começa
+ * com ele, filtrando papel/turno até juntar o limite. Nenhuma consulta ao banco por tecla.
+ *
+ * Mantido pelo UserService (registro/edição/remoção) e recarregado inteiro de tempos em tempos
+ * (app.user-directory.refresh-ms) para pegar mudanças feitas por outros nós.
+ */
+@Component
+public class UserDirectory {
+
+    private static final char SEP = '\u0000';       // separa nome e id na chave
+    private static final int MAX_SCAN = 20_000;     // teto de entradas lidas quando o filtro descarta muito
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private volatile Index index = new Index();
+
+    private static final class Index {
+        final Map<UUID, UserViewDTO> byId = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<String, UserViewDTO> byName = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListMap<String, UserViewDTO> byWord = new ConcurrentSkipListMap<>();
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.user-directory.refresh-ms:300000}",
+            initialDelayString = "${app.user-directory.refresh-ms:300000}")
+    public synchronized void reload() {
+        try {
+            Index fresh = new Index();
+            for (UserRepository.UserDirectoryRow row : userRepository.findDirectoryRows()) {
+                add(fresh, new UserViewDTO(row.getUserId(), row.getUsername(), row.getEmail(),
+                        row.getRoleEnum(), row.getTurno()));
+            }
+            index = fresh;
+        } catch (Exception e) {
+            System.err.println("[USER][ERR] falha ao carregar diretório de usuários: " + e.getMessage());
+        }
+    }
+
+    public synchronized void put(UserEntity user) {
+        if (user == null || user.getUserId() == null) return;
+        Index idx = index;
+        UserViewDTO old = idx.byId.get(user.getUserId());
+        if (old != null) removeKeys(idx, old);
+        add(idx, new UserViewDTO(user.getUserId(), user.getUsername(), user.getEmail(),
+                user.getRoleEnum(), user.getTurno()));
+    }
+
+    public synchronized void remove(UUID userId) {
+        Index idx = index;
+        UserViewDTO old = idx.byId.remove(userId);
+        if (old != null) removeKeys(idx, old);
+    }
+
+    /**
+     * Até "limit" usuários cujo nome (ou alguma palavra do nome) começa com "query".
+     * role/turno null = sem filtro.
+     */
+    public List<UserViewDTO> search(String query, RoleEnum role, TurnoEnum turno, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) return List.of();
+
+        Index idx = index;
+        List<UserViewDTO> out = new ArrayList<>(Math.min(limit, 16));
+        Set<UUID> seen = new HashSet<>();
+        int scanned = collect(idx.byName, prefix, role, turno, limit, out, seen, 0);
+        collect(idx.byWord, prefix, role, turno, limit, out, seen, scanned);
+        return out;
+    }
+
+    private static int collect(ConcurrentSkipListMap<String, UserViewDTO> map, String prefix,
+                               RoleEnum role, TurnoEnum turno, int limit,
+                               List<UserViewDTO> out, Set<UUID> seen, int scanned) {
+        for (UserViewDTO u : map.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (out.size() >= limit || ++scanned > MAX_SCAN) break;
+            if (role != null && u.role() != role) continue;
+            if (turno != null && u.turnoEnum() != turno) continue;
+            if (seen.add(u.userId())) out.add(u);
+        }
+        return scanned;
+    }
+
+    private static void add(Index idx, UserViewDTO u) {
+        idx.byId.put(u.userId(), u);
+        String name = normalize(u.username());
+        if (name.isEmpty()) return;
+        idx.byName.put(name + SEP + u.userId(), u);
+        for (String word : words(name)) {
+            idx.byWord.put(word + SEP + u.userId(), u);
+        }
+    }
+
+    private static void removeKeys(Index idx, UserViewDTO u) {
+        String name = normalize(u.username());
+        if (name.isEmpty()) return;
+        idx.byName.remove(name + SEP + u.userId());
+        for (String word : words(name)) {
+            idx.byWord.remove(word + SEP + u.userId());
+        }
+    }
+
+    // palavras depois da primeira (a primeira já está no índice do nome completo)
+    private static Set<String> words(String normalizedName) {
+        String[] parts = normalizedName.split("[\\s._@-]+");
+        Set<String> words = new LinkedHashSet<>();
+        for (int i = 1; i < parts.length; i++) {
+            if (!parts[i].isEmpty()) words.add(parts[i]);
+        }
+        return words;
+    }
+
+    static String normalize(String s) {
+        if (s == null) return "";
+        String noAccents = Normalizer.normalize(s.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return noAccents.toLowerCase(Locale.ROOT);
+    }
+}
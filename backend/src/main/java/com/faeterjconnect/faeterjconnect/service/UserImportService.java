@@ -0,0 +1,251 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.RegisterDTO;
+import com.faeterjconnect.faeterjconnect.dto.UserImportResponse;
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
+import com.faeterjconnect.faeterjconnect.security.PasswordHashingService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cadastro de turmas inteiras pela secretaria: um CSV (username,email,password,turno) vira
+ * alunos em lote, em vez de uma chamada a /api/user/register por aluno.
+ *
+ * O arquivo é lido e validado inteiro antes de qualquer gravação: acima do teto de linhas ele é
+ * recusado sem criar ninguém (no máximo max-rows linhas ficam em memória, poucos KB). Depois as
+ * linhas válidas são gravadas em blocos (app.user-import.chunk-size). Por bloco:
+ * uma consulta com todos os emails para achar quem já existe, os hashes em paralelo no pool do
+ * BCrypt (PasswordHashingService.encodeAll) e um INSERT em batch JDBC numa transação só.
+ * Falha num bloco não desfaz os anteriores; o relatório diz o que aconteceu com cada linha.
+ *
+ * Tudo roda dentro da requisição, e o BCrypt domina o tempo (~80 ms por senha no custo 10, dividido
+ * pelos threads do pool). Por isso o teto de linhas (app.user-import.max-rows) é pequeno: 1000 linhas
+ * levam ~40 s com 2 threads, abaixo do timeout de 60 s do proxy. Turma maior vai em mais de um arquivo.
+ */
+@Service
+public class UserImportService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tb_user (user_id, username, email, password, role_enum, turno) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordHashingService passwordHashing;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private UserDirectory userDirectory;
+    @Autowired
+    private UserSummaryCache userSummaryCache;
+
+    @Value("${app.user-import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.user-import.max-rows:1000}")
+    private int maxRows;
+
+    private static final List<String> HEADER = List.of("username", "email", "password", "turno");
+
+    private record Pending(int line, RegisterDTO dto) {}
+
+    public UserImportResponse importStudents(AuthenticatedUser currentUser, InputStream csv) throws IOException {
+        if (currentUser == null || (currentUser.getRoleEnum() != RoleEnum.SECRETARIA && !currentUser.isAdmin())) {
+            throw new AccessDeniedException("Acesso negado: requer SECRETARIA ou ADMIN");
+        }
+
+        long start = System.nanoTime();
+        List<UserImportResponse.Row> rows = new ArrayList<>();
+        List<Pending> pending = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            int dataRows = 0;
+            char sep = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') line = line.substring(1); // BOM do Excel
+                if (line.isBlank()) continue;
+                if (sep == 0) sep = (line.indexOf(';') >= 0 && line.indexOf(',') < 0) ? ';' : ',';
+                List<String> cols = splitCsv(line, sep);
+                if (lineNo == 1 && isHeader(cols)) continue;
+                if (++dataRows > maxRows) {
+                    throw new IllegalArgumentException("Arquivo com mais de " + maxRows
+                            + " linhas; divida a turma em mais arquivos.");
+                }
+
+                String email = cols.size() > 1 ? cols.get(1).trim() : "";
+                String error = (cols.size() < 3 || cols.size() > 4)
+                        ? "Esperado: username,email,password,turno"
+                        : null;
+
+                RegisterDTO dto = null;
+                if (error == null) {
+                    TurnoEnum turno = null;
+                    String turnoRaw = cols.size() == 4 ? cols.get(3).trim() : "";
+                    if (!turnoRaw.isEmpty()) {
+                        try {
+                            turno = TurnoEnum.valueOf(turnoRaw.toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            error = "Turno inválido: " + turnoRaw;
+                        }
+                    }
+                    dto = new RegisterDTO(cols.get(0).trim(), email, cols.get(2), RoleEnum.ALUNO, turno);
+                    if (error == null) error = validate(dto);
+                }
+                if (error != null) {
+                    rows.add(new UserImportResponse.Row(lineNo, email, UserImportResponse.Status.INVALID, null, error));
+                    continue;
+                }
+                if (!seenEmails.add(email)) {
+                    rows.add(new UserImportResponse.Row(lineNo, email, UserImportResponse.Status.DUPLICATE, null,
+                            "Email repetido no arquivo."));
+                    continue;
+                }
+
+                pending.add(new Pending(lineNo, dto));
+            }
+        }
+
+        // Só aqui, com o arquivo inteiro dentro do teto, começa a gravar
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            flush(pending.subList(from, Math.min(from + chunkSize, pending.size())), rows);
+        }
+
+        rows.sort(Comparator.comparingInt(UserImportResponse.Row::line));
+        int created = (int) rows.stream().filter(r -> r.status() == UserImportResponse.Status.CREATED).count();
+        System.out.println("[USER] importação de " + currentUser.getEmail() + ": " + created + "/" + rows.size()
+                + " criados em " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return new UserImportResponse(rows.size(), created, rows.size() - created, rows);
+    }
+
+    private void flush(List<Pending> chunk, List<UserImportResponse.Row> rows) {
+        Set<String> existing = new HashSet<>(userRepository.findExistingEmails(
+                chunk.stream().map(p -> p.dto().email()).toList()));
+
+        List<Pending> fresh = new ArrayList<>(chunk.size());
+        for (Pending p : chunk) {
+            if (existing.contains(p.dto().email())) {
+                rows.add(new UserImportResponse.Row(p.line(), p.dto().email(), UserImportResponse.Status.DUPLICATE,
+                        null, "Email ja existe."));
+            } else {
+                fresh.add(p);
+            }
+        }
+        if (fresh.isEmpty()) return;
+
+        List<UserEntity> users = new ArrayList<>(fresh.size());
+        try {
+            List<String> hashes = passwordHashing.encodeAll(fresh.stream().map(p -> p.dto().password()).toList());
+            for (int i = 0; i < fresh.size(); i++) {
+                RegisterDTO dto = fresh.get(i).dto();
+                UserEntity user = new UserEntity();
+                user.setUserId(UUID.randomUUID());
+                user.setUsername(dto.username());
+                user.setEmail(dto.email());
+                user.setPassword(hashes.get(i));
+                user.setRoleEnum(RoleEnum.ALUNO);
+                user.setTurno(dto.turnoEnum());
+                users.add(user);
+            }
+
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, users, users.size(), (ps, u) -> {
+                        ps.setObject(1, u.getUserId());
+                        ps.setString(2, u.getUsername());
+                        ps.setString(3, u.getEmail());
+                        ps.setString(4, u.getPassword());
+                        ps.setString(5, u.getRoleEnum().name());
+                        ps.setString(6, u.getTurno() != null ? u.getTurno().name() : null);
+                    }));
+        } catch (RuntimeException e) {
+            System.err.println("[USER][ERR] bloco de importação falhou: " + e.getMessage());
+            for (Pending p : fresh) {
+                rows.add(new UserImportResponse.Row(p.line(), p.dto().email(), UserImportResponse.Status.FAILED,
+                        null, "Falha ao gravar o bloco; tente importar esta linha novamente."));
+            }
+            return;
+        }
+
+        for (int i = 0; i < fresh.size(); i++) {
+            UserEntity user = users.get(i);
+            userDirectory.put(user);
+            userSummaryCache.put(user);
+            rows.add(new UserImportResponse.Row(fresh.get(i).line(), user.getEmail(),
+                    UserImportResponse.Status.CREATED, user.getUserId(), null));
+        }
+    }
+
+    // Mesmas regras do /register (anotações do RegisterDTO)
+    private String validate(RegisterDTO dto) {
+        Set<ConstraintViolation<RegisterDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    // Cabeçalho só com os nomes exatos das colunas (turno opcional); uma linha de dados nunca casa
+    private static boolean isHeader(List<String> cols) {
+        if (cols.size() < 3 || cols.size() > HEADER.size()) return false;
+        for (int i = 0; i < cols.size(); i++) {
+            if (!cols.get(i).trim().equalsIgnoreCase(HEADER.get(i))) return false;
+        }
+        return true;
+    }
+
+    // Separador "," ou ";" (Excel em pt-BR, detectado na primeira linha); "" dentro de aspas = aspas literal
+    private static List<String> splitCsv(String line, char sep) {
+        List<String> out = new ArrayList<>(4);
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cur.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == sep) {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        out.add(cur.toString());
+        return out;
+    }
+}
@@ -9,13 +9,17 @@ import com.faeterjconnect.faeterjconnect.model.UserEntity;
 import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
 import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
 import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
+import com.faeterjconnect.faeterjconnect.security.PasswordHashingService;
+import com.faeterjconnect.faeterjconnect.security.TokenRevocationService;
+import com.faeterjconnect.faeterjconnect.security.TokenVersionRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -25,7 +29,15 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashing;
+    @Autowired
+    private TokenVersionRegistry tokenVersions;
+    @Autowired
+    private TokenRevocationService tokenRevocations;
+    @Autowired
+    private UserDirectory userDirectory;
+    @Autowired
+    private UserSummaryCache userSummaryCache;
 
     // --------- Regras de autenticação/registro ---------
 
@@ -50,11 +62,14 @@ public class UserService {
         user.setUsername(StringUtils.hasText(registerDTO.username()) ? registerDTO.username().trim() : registerDTO.email().trim());
         user.setEmail(registerDTO.email().trim());
         user.setRoleEnum(role);
-        user.setPassword(passwordEncoder.encode(registerDTO.password()));
+        user.setPassword(passwordHashing.encode(registerDTO.password()));
         user.setTurno(registerDTO.turnoEnum());
         user.setProfileImageUrl(null); // começa sem foto
 
-        return userRepository.save(user);
+        UserEntity saved = userRepository.save(user);
+        userDirectory.put(saved);
+        userSummaryCache.put(saved);
+        return saved;
     }
 
     /** Autentica as credenciais e retorna o usuário (ou lança BadCredentialsException). */
@@ -62,32 +77,55 @@ public class UserService {
         var user = userRepository.findByEmail(loginDTO.email())
                 .orElseThrow(ExceptionCustom.BadCredentialsException::new);
 
-        if (!passwordEncoder.matches(loginDTO.password(), user.getPassword())) {
+        if (!passwordHashing.matches(loginDTO.password(), user.getPassword())) {
             throw new ExceptionCustom.BadCredentialsException();
         }
+        if (passwordHashing.needsRehash(user.getPassword())) {
+            // custo do BCrypt mudou: regrava com o atual sem atrasar a resposta
+            UUID userId = user.getUserId();
+            String oldHash = user.getPassword();
+            passwordHashing.rehashInBackground(loginDTO.password(),
+                    newHash -> userRepository.upgradePasswordHash(userId, oldHash, newHash));
+        }
         return user;
     }
 
+    /** Logout: revoga só o token usado nesta requisição. */
+    public void logout(AuthenticatedUser currentUser) {
+        ensureAuthenticated(currentUser);
+        tokenRevocations.revoke(currentUser.getTokenId(), currentUser.getUserId(), currentUser.getTokenExpiresAt());
+    }
+
+    /** Encerra todas as sessões do usuário (o próprio ou ADMIN): todo token emitido até agora deixa de valer. */
+    public void revokeAllSessions(AuthenticatedUser currentUser, UUID userId) {
+        ensureSelfOrAdmin(currentUser, userId);
+        UserEntity u = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
+        u.setTokenVersion((u.getTokenVersion() != null ? u.getTokenVersion() : 0) + 1);
+        UserEntity saved = userRepository.save(u);
+        tokenVersions.bump(saved.getUserId(), saved.getTokenVersion());
+    }
+
     // --------- Regras de autorização ---------
 
-    public boolean isAdmin(UserEntity user) {
-        return user != null && user.getRoleEnum() == RoleEnum.ADMIN;
+    public boolean isAdmin(AuthenticatedUser user) {
+        return user != null && user.isAdmin();
     }
 
-    private void ensureAuthenticated(UserEntity currentUser) {
+    private void ensureAuthenticated(AuthenticatedUser currentUser) {
         if (currentUser == null || currentUser.getUserId() == null) {
             throw new AccessDeniedException("Não autenticado");
         }
     }
 
-    private void ensureAdmin(UserEntity currentUser) {
+    private void ensureAdmin(AuthenticatedUser currentUser) {
         ensureAuthenticated(currentUser);
         if (!isAdmin(currentUser)) {
             throw new AccessDeniedException("Acesso negado: requer ADMIN");
         }
     }
 
-    private void ensureSelfOrAdmin(UserEntity currentUser, UUID targetUserId) {
+    private void ensureSelfOrAdmin(AuthenticatedUser currentUser, UUID targetUserId) {
         ensureAuthenticated(currentUser);
         if (!isAdmin(currentUser) && !currentUser.getUserId().equals(targetUserId)) {
             throw new AccessDeniedException("Acesso negado");
@@ -96,7 +134,7 @@ public class UserService {
 
     // --------- Casos de uso (list/get/update/delete) ---------
 
-    public Page<UserViewDTO> listUsers(UserEntity currentUser, int page, int size, RoleEnum roleFilter) {
+    public Page<UserViewDTO> listUsers(AuthenticatedUser currentUser, int page, int size, RoleEnum roleFilter) {
         //ensureAdmin(currentUser);
         Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(size, 50), Sort.by("username").ascending());
         Page<UserEntity> pageResult = (roleFilter == null)
@@ -105,18 +143,25 @@ public class UserService {
         return pageResult.map(this::toView);
     }
 
-    public UserViewDTO getById(UserEntity currentUser, UUID userId) {
+    /** Autocomplete por prefixo do nome (índice em memória, sem banco). */
+    public List<UserViewDTO> search(String query, RoleEnum role, TurnoEnum turno, int limit) {
+        return userDirectory.search(query, role, turno, Math.max(1, Math.min(limit, 50)));
+    }
+
+    public UserViewDTO getById(AuthenticatedUser currentUser, UUID userId) {
         //ensureSelfOrAdmin(currentUser, userId);
-        UserEntity u = userRepository.findById(userId)
+        UserSummaryCache.UserSummary u = userSummaryCache.get(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
-        return toView(u);
+        return new UserViewDTO(u.userId(), u.username(), u.email(), u.roleEnum(), u.turno());
     }
 
-    public UserViewDTO updateUser(UserEntity currentUser, UUID userId, UpdateUserDTO dto, RoleEnum newRoleIfAny) {
+    public UserViewDTO updateUser(AuthenticatedUser currentUser, UUID userId, UpdateUserDTO dto, RoleEnum newRoleIfAny) {
         ensureSelfOrAdmin(currentUser, userId);
 
         UserEntity u = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
+        // email/turno/papel viajam no token: se algum mudar, os tokens antigos caem
+        boolean claimsChanged = false;
 
         // username
         if (StringUtils.hasText(dto.username())) {
@@ -129,17 +174,19 @@ public class UserService {
             if (!newEmail.equalsIgnoreCase(u.getEmail()) && userRepository.existsByEmail(newEmail)) {
                 throw new ExceptionCustom.EmailAlreadyExistsException();
             }
+            claimsChanged |= !newEmail.equals(u.getEmail());
             u.setEmail(newEmail);
         }
 
         // password
         if (StringUtils.hasText(dto.password())) {
-            u.setPassword(passwordEncoder.encode(dto.password()));
+            u.setPassword(passwordHashing.encode(dto.password()));
         }
 
         // turno (opcional)
         TurnoEnum turno = dto.turnoEnum();
         if (turno != null) {
+            claimsChanged |= turno != u.getTurno();
             u.setTurno(turno);
         }
 
@@ -155,18 +202,31 @@ public class UserService {
                     throw new ExceptionCustom.AdminAlreadyExistsException();
                 }
             }
+            claimsChanged |= newRoleIfAny != u.getRoleEnum();
             u.setRoleEnum(newRoleIfAny);
         }
 
-        return toView(userRepository.save(u));
+        if (claimsChanged) {
+            u.setTokenVersion((u.getTokenVersion() != null ? u.getTokenVersion() : 0) + 1);
+        }
+        UserEntity saved = userRepository.save(u);
+        if (claimsChanged) {
+            tokenVersions.bump(saved.getUserId(), saved.getTokenVersion());
+        }
+        userDirectory.put(saved);
+        userSummaryCache.put(saved);
+        return toView(saved);
     }
 
-    public void deleteUser(UserEntity currentUser, UUID userId) {
+    public void deleteUser(AuthenticatedUser currentUser, UUID userId) {
         ensureSelfOrAdmin(currentUser, userId);
         if (!userRepository.existsById(userId)) {
             return; // idempotente
         }
         userRepository.deleteById(userId);
+        tokenRevocations.revokeUser(userId);
+        userDirectory.remove(userId);
+        userSummaryCache.invalidate(userId);
     }
 
     // --------- Queries utilitárias já usadas pelo controller legado ---------
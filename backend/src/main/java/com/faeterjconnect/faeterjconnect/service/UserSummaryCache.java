@@ -0,0 +1,110 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.TurnoEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.util.CacheEviction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumo público dos usuários (nome, email, papel, turno, foto) para montar DTOs de feed,
+ * comentários, chat e perfil sem carregar o UserEntity nem fazer JOIN com tb_user.
+ *
+ * Quem monta a resposta junta os ids (autores da página, participantes...) e chama getAll():
+ * o que falta no cache vem numa consulta só (WHERE user_id IN ...). Entradas com TTL e tamanho
+ * máximo; cheio, abre espaço pelo CacheEviction (nunca recusa a entrada nova).
+ *
+ * Escrita direta: UserService (registro/edição/remoção) e UserAvatarService atualizam a entrada
+ * na hora. Mudanças feitas em outro nó aparecem aqui no fim do TTL (app.user-summary-cache.ttl-ms).
+ */
+@Component
+public class UserSummaryCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.user-summary-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${app.user-summary-cache.max-entries:100000}")
+    private int maxEntries;
+
+    private final Map<UUID, Entry> byId = new ConcurrentHashMap<>();
+
+    private final CacheEviction eviction = new CacheEviction(1000);
+
+    public record UserSummary(
+            UUID userId,
+            String username,
+            String email,
+            RoleEnum roleEnum,
+            TurnoEnum turno,
+            String profileImageUrl
+    ) {}
+
+    /** Resumo de um usuário, ou vazio se não existe. */
+    public Optional<UserSummary> get(UUID userId) {
+        if (userId == null) return Optional.empty();
+        return Optional.ofNullable(getAll(List.of(userId)).get(userId));
+    }
+
+    /** Resumos dos ids pedidos; ids inexistentes ficam de fora do mapa. */
+    public Map<UUID, UserSummary> getAll(Collection<UUID> userIds) {
+        long now = System.currentTimeMillis();
+        Map<UUID, UserSummary> found = new HashMap<>();
+        Set<UUID> missing = null;
+
+        for (UUID id : userIds) {
+            if (id == null || found.containsKey(id)) continue;
+            Entry e = byId.get(id);
+            if (e != null && e.expiresAt > now) {
+                found.put(id, e.summary);
+            } else {
+                if (missing == null) missing = new HashSet<>();
+                missing.add(id);
+            }
+        }
+        if (missing == null) return found;
+
+        for (UserRepository.UserSummaryRow row : userRepository.findSummaries(missing)) {
+            UserSummary s = new UserSummary(row.getUserId(), row.getUsername(), row.getEmail(),
+                    row.getRoleEnum(), row.getTurno(), row.getProfileImageUrl());
+            found.put(s.userId(), s);
+            store(s, now);
+        }
+        return found;
+    }
+
+    /** Grava o estado atual do usuário (chamar depois de salvar). */
+    public void put(UserEntity user) {
+        if (user == null || user.getUserId() == null) return;
+        store(new UserSummary(user.getUserId(), user.getUsername(), user.getEmail(),
+                user.getRoleEnum(), user.getTurno(), user.getProfileImageUrl()), System.currentTimeMillis());
+    }
+
+    public void invalidate(UUID userId) {
+        if (userId != null) byId.remove(userId);
+    }
+
+    private void store(UserSummary summary, long now) {
+        if (byId.size() >= maxEntries && !byId.containsKey(summary.userId())) {
+            eviction.makeRoom(byId, maxEntries, this::evictExpired);
+        }
+        byId.put(summary.userId(), new Entry(summary, now + ttlMs));
+    }
+
+    @Scheduled(fixedDelayString = "${app.user-summary-cache.ttl-ms:600000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        byId.values().removeIf(e -> e.expiresAt <= now);
+    }
+
+    private record Entry(UserSummary summary, long expiresAt) {}
+}
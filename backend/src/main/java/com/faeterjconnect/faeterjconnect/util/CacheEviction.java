@@ -0,0 +1,44 @@
+package com.faeterjconnect.faeterjconnect.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Abre espaço num cache em memória (ConcurrentHashMap com TTL e tamanho máximo) que encheu.
+ *
+ * A varredura de expirados percorre o mapa inteiro, então roda no máximo uma vez por intervalo,
+ * não a cada inserção. Se o cache continua cheio (tudo dentro do TTL), sai de uma vez um lote de
+ * ~1/16 das entradas, na ordem de iteração do ConcurrentHashMap: ela segue o hash da chave, o que
+ * na prática é uma escolha aleatória. O custo fica diluído (uma passada a cada maxEntries/16
+ * inserções) e um cache cheio continua aceitando entradas novas.
+ */
+public final class CacheEviction {
+
+    private static final int BATCH_DIVISOR = 16;
+
+    private final long sweepIntervalMs;
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    public CacheEviction(long sweepIntervalMs) {
+        this.sweepIntervalMs = sweepIntervalMs;
+    }
+
+    /** Chamar antes de inserir quando map.size() >= maxEntries. */
+    public void makeRoom(Map<?, ?> map, int maxEntries, Runnable evictExpired) {
+        long now = System.currentTimeMillis();
+        long last = lastSweep.get();
+        if (now - last >= sweepIntervalMs && lastSweep.compareAndSet(last, now)) {
+            evictExpired.run();
+            if (map.size() < maxEntries) return;
+        }
+
+        int excess = map.size() - maxEntries + 1;
+        int toRemove = Math.max(excess, maxEntries / BATCH_DIVISOR);
+        Iterator<?> it = map.keySet().iterator();
+        for (int removed = 0; removed < toRemove && it.hasNext(); removed++) {
+            it.next();
+            it.remove();
+        }
+    }
+}
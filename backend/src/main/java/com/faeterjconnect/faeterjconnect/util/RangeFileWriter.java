@@ -0,0 +1,185 @@
+package com.faeterjconnect.faeterjconnect.util;
+
+import com.faeterjconnect.faeterjconnect.service.MediaStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Envia um arquivo do disco com suporte a ETag/304 e Range (um intervalo por requisição).
+ *
+ * No Tomcat (NIO/NIO2, sem TLS) o corpo vai por sendfile: a requisição só marca arquivo e
+ * intervalo, e o conector manda os bytes do page cache direto para o socket depois que o
+ * controller retorna, sem passar pela heap nem ocupar a thread do request. Onde não há suporte
+ * (TLS no conector, MockMvc, outro container) o arquivo é copiado para o OutputStream da resposta
+ * por FileChannel.transferTo, que aí passa por um buffer do JDK e pelo buffer do conector.
+ * Vários intervalos ("bytes=0-1,5-9") recebem o arquivo inteiro com 200, como a RFC 9110 permite.
+ */
+public final class RangeFileWriter {
+
+    // Atributos de requisição do Tomcat (org.apache.coyote.Constants / Globals)
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private RangeFileWriter() {}
+
+    public static void write(HttpServletRequest request,
+                             HttpServletResponse response,
+                             Path file,
+                             String contentType,
+                             String etag,
+                             String cacheControl) throws IOException {
+        long size = Files.size(file);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0, end = size - 1;
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] r = parseRange(range, size);
+            if (r != null && r.length == 0) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            if (r != null) {
+                start = r[0];
+                end = r[1];
+                partial = true;
+            }
+        }
+
+        long length = size == 0 ? 0 : end - start + 1;
+        response.setStatus(partial ? HttpServletResponse.SC_PARTIAL_CONTENT : HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        response.setContentLengthLong(length);
+        if (partial) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1); // exclusivo
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start, remaining = length;
+            while (remaining > 0) {
+                long n = in.transferTo(position, remaining, out);
+                if (n <= 0) break; // arquivo encolheu no meio (não deveria: conteúdo imutável)
+                position += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    /**
+     * Mesma resposta para uma chave do MediaStore. No disco local vai pelo write acima; no remoto
+     * (S3) o 304 sai daqui sem ir ao bucket e o resto é repassado em streaming, com o Range do
+     * cliente enviado ao bucket.
+     *
+     * @return false (nada escrito) quando a chave não existe
+     */
+    public static boolean write(HttpServletRequest request,
+                                HttpServletResponse response,
+                                MediaStore store,
+                                String key,
+                                String contentType,
+                                String etag,
+                                String cacheControl) throws IOException {
+        Path file = store.localFile(key);
+        if (file != null) {
+            if (!Files.isRegularFile(file)) return false;
+            write(request, response, file, contentType, etag, cacheControl);
+            return true;
+        }
+
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        String range = (ifRange == null || ifRange.equals(etag)) ? request.getHeader(HttpHeaders.RANGE) : null;
+        MediaStore.StoredObject obj = store.read(key, range);
+        if (obj == null) return false;
+
+        try (InputStream in = obj.body()) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader("X-Content-Type-Options", "nosniff");
+            response.setContentType(contentType);
+            if (obj.length() >= 0) response.setContentLengthLong(obj.length());
+            if (obj.contentRange() != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, obj.contentRange());
+            }
+            if (!"HEAD".equalsIgnoreCase(request.getMethod())) in.transferTo(response.getOutputStream());
+        }
+        return true;
+    }
+
+    /**
+     * "bytes=a-b", "bytes=a-" ou "bytes=-n".
+     * Retorna {start, end}, array vazio se não satisfazível (416) ou null para ignorar o header.
+     */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return null;
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String a = spec.substring(0, dash).trim(), b = spec.substring(dash + 1).trim();
+            if (a.isEmpty()) {
+                if (b.isEmpty()) return null;
+                long suffix = Long.parseLong(b);
+                if (suffix <= 0 || size == 0) return new long[0];
+                return new long[]{Math.max(0, size - suffix), size - 1};
+            }
+            long start = Long.parseLong(a);
+            if (start >= size) return new long[0];
+            long end = b.isEmpty() ? size - 1 : Math.min(Long.parseLong(b), size - 1);
+            return end < start ? null : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals("*") || c.equals(etag)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+package com.faeterjconnect.faeterjconnect.util;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para UUIDs: "com certeza não está" ou "talvez esteja".
+ *
+ * Os k índices saem de dois hashes de 64 bits (cada um mistura as duas metades do UUID) por double hashing,
+ * sem alocar nada na consulta. Bits em AtomicLongArray: leituras concorrentes com add() são seguras.
+ * Não suporta remoção: quem usa reconstrói um filtro novo quando precisa limpar.
+ */
+public final class UuidBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedEntries quantos elementos devem caber mantendo a taxa de falso positivo
+     * @param falsePositiveRate ex.: 0.01 = 1%
+     */
+    public UuidBloomFilter(int expectedEntries, double falsePositiveRate) {
+        int n = Math.max(1, expectedEntries);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) / 64 * 64);
+        this.bitCount = m;
+        this.bits = new AtomicLongArray((int) (m / 64));
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    public void add(UUID id) {
+        long h1 = h1(id);
+        long h2 = h2(id); // ímpar: percorre índices distintos
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(UUID id) {
+        long h1 = h1(id);
+        long h2 = h2(id);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    // Cada hash depende das duas metades: UUIDs que só variam numa metade não repetem h1 nem h2
+    private static long h1(UUID id) {
+        return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+    }
+
+    private static long h2(UUID id) {
+        return mix(id.getLeastSignificantBits() ^ mix(~id.getMostSignificantBits())) | 1;
+    }
+
+    // finalizador do SplitMix64: espalha bem mesmo UUIDs pouco aleatórios
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -12,9 +12,15 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${app.media.local-path}")
     private String mediaLocalPath;
 
+    // Só os avatares no formato antigo (/media/<userId>/avatar_<millis>.jpg). O resto de
+    // app.media.local-path (anexos de chat, temporários) não pode sair por aqui sem checagem de acesso.
+    private static final String LEGACY_AVATAR_PATTERN =
+            "/media/{userId:[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}}"
+                    + "/{file:avatar_[0-9]+\\.jpg}";
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/media/**")
+        registry.addResourceHandler(LEGACY_AVATAR_PATTERN)
                 .addResourceLocations("file:" + mediaLocalPath + "/")
                 .setCachePeriod(31536000); // cache 1 ano
     }
@@ -0,0 +1,142 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Payload binário (CBOR) opcional por sessão STOMP.
+ *
+ * O cliente pede no CONNECT com o header "accept-content: application/cbor". O ChatPublisher
+ * codifica cada evento uma vez em JSON e, se houver alguma sessão CBOR, uma vez em CBOR
+ * (UUID como 16 bytes, datas como epoch em microssegundos), anexando os bytes no header CBOR_PAYLOAD_HEADER.
+ * Aqui, no canal de saída, as sessões CBOR recebem esses bytes no lugar do JSON:
+ * nenhuma conversão por destinatário.
+ *
+ * Frames CBOR saem como content-type application/octet-stream (só assim o Spring usa frame
+ * WebSocket binário) com o header "payload-format: cbor". Eventos que chegam de outro nó pelo
+ * relay de cluster continuam em JSON: o cliente decide pelo content-type de cada frame.
+ *
+ * Na entrada, frames com content-type application/cbor são lidos pelo converter de cborConverter().
+ */
+@Component
+public class BinaryPayloadNegotiation implements ChannelInterceptor {
+
+    public static final MimeType CBOR = new MimeType("application", "cbor");
+    public static final String CBOR_PAYLOAD_HEADER = "cborPayload";
+    public static final String ACCEPT_CONTENT_HEADER = "accept-content";
+    public static final String PAYLOAD_FORMAT_HEADER = "payload-format";
+
+    @Value("${app.ws.binary.enabled:true}")
+    private boolean enabled;
+
+    // Instant como inteiro de microssegundos: mesma precisão do timestamp do Postgres, então
+    // sentAt/upToSentAt comparam igual ao JSON (ms perderia precisão; nanos vira decimal com tag)
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor()
+            .modulesToInstall(new SimpleModule("epoch-micros")
+                    .addSerializer(Instant.class, new EpochMicrosSerializer())
+                    .addDeserializer(Instant.class, new EpochMicrosDeserializer()))
+            .build();
+
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+
+    /** Vale a pena codificar em CBOR? (só se alguma sessão deste nó pediu) */
+    public boolean hasBinarySessions() {
+        return enabled && !cborSessions.isEmpty();
+    }
+
+    public byte[] encode(Object payload) {
+        try {
+            return cborMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar evento de chat em CBOR", e);
+        }
+    }
+
+    /** Converter de entrada para frames enviados com content-type application/cbor. */
+    public MappingJackson2MessageConverter cborConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(CBOR);
+        converter.setObjectMapper(cborMapper);
+        converter.setStrictContentTypeMatch(true); // sem content-type continua sendo JSON
+        return converter;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled) return message;
+
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type == SimpMessageType.CONNECT) {
+            StompHeaderAccessor stomp = StompHeaderAccessor.wrap(message);
+            String accept = stomp.getFirstNativeHeader(ACCEPT_CONTENT_HEADER);
+            if (stomp.getCommand() == StompCommand.CONNECT || stomp.getCommand() == StompCommand.STOMP) {
+                if (accept != null && accept.contains(CBOR.toString())) {
+                    cborSessions.add(stomp.getSessionId());
+                }
+            }
+            return message;
+        }
+
+        if (type != SimpMessageType.MESSAGE) return message;
+        Object cbor = message.getHeaders().get(CBOR_PAYLOAD_HEADER);
+        if (!(cbor instanceof byte[] bytes)) return message;
+
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null || !cborSessions.contains(sessionId)) return message;
+
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message) instanceof SimpMessageHeaderAccessor a
+                ? a : SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(PAYLOAD_FORMAT_HEADER, "cbor");
+        accessor.removeHeader(CBOR_PAYLOAD_HEADER);
+        return MessageBuilder.createMessage(bytes, accessor.getMessageHeaders());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        cborSessions.remove(event.getSessionId());
+    }
+
+    private static class EpochMicrosSerializer extends JsonSerializer<Instant> {
+        @Override
+        public void serialize(Instant value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(ChronoUnit.MICROS.between(Instant.EPOCH, value));
+        }
+    }
+
+    private static class EpochMicrosDeserializer extends JsonDeserializer<Instant> {
+        @Override
+        public Instant deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return Instant.EPOCH.plus(p.getLongValue(), ChronoUnit.MICROS);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Decoder;
+import jakarta.websocket.Encoder;
+import jakarta.websocket.Extension;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.web.socket.server.standard.TomcatRequestUpgradeStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controla o permessage-deflate (RFC 7692) no ponto em que o Tomcat negocia as extensões.
+ *
+ * O Tomcat não usa a lista filtrada pelo HandshakeHandler do Spring: o UpgradeUtil negocia a
+ * partir das extensões instaladas + oferta do cliente, chamando o
+ * {@link ServerEndpointConfig.Configurator#getNegotiatedExtensions}. Por isso a config do
+ * endpoint é embrulhada aqui com um configurator que decide o deflate.
+ *
+ * - enabled=false: a extensão é retirada do handshake (frames sem compressão);
+ * - noContextTakeover=true: responde com server/client_no_context_takeover. Cada mensagem é
+ *   comprimida sozinha: taxa um pouco menor, mas sem janela de ~32KB por direção guardada em cada
+ *   sessão (com milhares de conexões ociosas isso pesa mais que os bytes economizados).
+ */
+public class DeflateUpgradeStrategy extends TomcatRequestUpgradeStrategy {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+
+    private final boolean enabled;
+    private final boolean noContextTakeover;
+
+    public DeflateUpgradeStrategy(boolean enabled, boolean noContextTakeover) {
+        this.enabled = enabled;
+        this.noContextTakeover = noContextTakeover;
+    }
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                                          ServerEndpointConfig endpointConfig,
+                                          Map<String, String> pathParams) throws Exception {
+        super.upgradeHttpToWebSocket(request, response, new DeflateEndpointConfig(endpointConfig), pathParams);
+    }
+
+    List<Extension> negotiate(List<Extension> negotiated) {
+        List<Extension> result = new ArrayList<>(negotiated.size());
+        for (Extension ext : negotiated) {
+            if (!PERMESSAGE_DEFLATE.equals(ext.getName())) {
+                result.add(ext);
+            } else if (enabled) {
+                result.add(noContextTakeover ? withoutContextTakeover(ext) : ext);
+            }
+        }
+        return result;
+    }
+
+    // O Tomcat recusa parâmetro repetido: só acrescenta o que o cliente não pediu
+    private static Extension withoutContextTakeover(Extension ext) {
+        List<Extension.Parameter> params = new ArrayList<>(ext.getParameters());
+        addIfMissing(params, SERVER_NO_CONTEXT_TAKEOVER);
+        addIfMissing(params, CLIENT_NO_CONTEXT_TAKEOVER);
+        return new DeflateExtension(ext.getName(), List.copyOf(params));
+    }
+
+    private static void addIfMissing(List<Extension.Parameter> params, String name) {
+        for (Extension.Parameter p : params) {
+            if (name.equals(p.getName())) return;
+        }
+        params.add(new FlagParameter(name));
+    }
+
+    private record DeflateExtension(String name, List<Parameter> parameters) implements Extension {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<Parameter> getParameters() {
+            return parameters;
+        }
+    }
+
+    // Parâmetro sem valor (ex.: server_no_context_takeover)
+    private record FlagParameter(String name) implements Extension.Parameter {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getValue() {
+            return null;
+        }
+    }
+
+    /**
+     * Repassa tudo para a config do Spring (que também é o seu próprio configurator), trocando
+     * só a negociação de extensões.
+     */
+    private class DeflateEndpointConfig extends ServerEndpointConfig.Configurator implements ServerEndpointConfig {
+
+        private final ServerEndpointConfig delegate;
+
+        DeflateEndpointConfig(ServerEndpointConfig delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+            return negotiate(delegate.getConfigurator().getNegotiatedExtensions(installed, requested));
+        }
+
+        @Override
+        public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+            return delegate.getConfigurator().getNegotiatedSubprotocol(supported, requested);
+        }
+
+        @Override
+        public boolean checkOrigin(String originHeaderValue) {
+            return delegate.getConfigurator().checkOrigin(originHeaderValue);
+        }
+
+        @Override
+        public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+            delegate.getConfigurator().modifyHandshake(sec, request, response);
+        }
+
+        @Override
+        public <T> T getEndpointInstance(Class<T> clazz) throws InstantiationException {
+            return delegate.getConfigurator().getEndpointInstance(clazz);
+        }
+
+        @Override
+        public Class<?> getEndpointClass() {
+            return delegate.getEndpointClass();
+        }
+
+        @Override
+        public String getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public List<String> getSubprotocols() {
+            return delegate.getSubprotocols();
+        }
+
+        @Override
+        public List<Extension> getExtensions() {
+            return delegate.getExtensions();
+        }
+
+        @Override
+        public Configurator getConfigurator() {
+            return this;
+        }
+
+        @Override
+        public List<Class<? extends Encoder>> getEncoders() {
+            return delegate.getEncoders();
+        }
+
+        @Override
+        public List<Class<? extends Decoder>> getDecoders() {
+            return delegate.getDecoders();
+        }
+
+        @Override
+        public Map<String, Object> getUserProperties() {
+            return delegate.getUserProperties();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import com.faeterjconnect.faeterjconnect.service.ChatPublisher;
+import com.faeterjconnect.faeterjconnect.service.ChatService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Relay de eventos de chat entre instâncias do backend usando LISTEN/NOTIFY do PostgreSQL.
+ *
+ * O SimpleBroker só alcança sockets da própria JVM. Com app.cluster.enabled=true, cada evento
+ * publicado pelo ChatPublisher é entregue localmente e também enfileirado aqui; uma thread junta
+ * os eventos de até batch-ms, descarta estados superados (digitando/recibo repetidos) e manda
+ * um NOTIFY por lote (gzip+base64 quando compensa, respeitando o limite de 8000 bytes do Postgres).
+ * Cada nó escuta o canal numa conexão JDBC dedicada (fora do pool), reconectando com backoff
+ * exponencial se ela cair, e reentrega no broker local o que veio de outros nós. Mensagem grande demais para um NOTIFY vai só com o id e o nó
+ * que recebe busca no banco.
+ *
+ * Presença (PresenceService) continua sendo por nó.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class PgNotifyClusterRelay {
+
+    private static final String GZIP_PREFIX = "z:";
+    private static final int MAX_EVENTS_PER_BATCH = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ChatPublisher chatPublisher;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.datasource.url}")
+    private String jdbcUrl;
+    @Value("${spring.datasource.username}")
+    private String jdbcUser;
+    @Value("${spring.datasource.password}")
+    private String jdbcPassword;
+
+    @Value("${app.cluster.channel:faeterj_chat}")
+    private String channel;
+    @Value("${app.cluster.batch-ms:20}")
+    private long batchMs;
+    @Value("${app.cluster.max-payload-bytes:7800}")
+    private int maxPayloadBytes;
+    @Value("${app.cluster.compress-threshold-bytes:512}")
+    private int compressThresholdBytes;
+    @Value("${app.cluster.reconnect-initial-ms:500}")
+    private long reconnectInitialMs;
+    @Value("${app.cluster.reconnect-max-ms:30000}")
+    private long reconnectMaxMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final BlockingQueue<Pending> outbox = new LinkedBlockingQueue<>(100_000);
+    private volatile boolean running;
+    private Thread sender;
+    private Thread listener;
+
+    // Origem das notificações; por padrão uma conexão JDBC dedicada (os testes trocam por uma fake)
+    NotificationSource notificationSource = this::listenJdbc;
+
+    @PostConstruct
+    void start() {
+        if (!channel.matches("[a-z_][a-z0-9_]{0,62}")) {
+            throw new IllegalStateException("app.cluster.channel inválido: " + channel);
+        }
+        running = true;
+        sender = daemon("cluster-relay-notify", this::sendLoop);
+        listener = daemon("cluster-relay-listen", this::listenLoop);
+        System.out.println("[CLUSTER] relay ativo node=" + nodeId + " channel=" + channel);
+    }
+
+    private static Thread daemon(String name, Runnable task) {
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        sender.interrupt();
+        listener.interrupt();
+    }
+
+    /** Chamado pelo ChatPublisher depois da entrega local. Não bloqueia. */
+    public void relay(UUID conversationId, String compactionKey, UUID messageId, byte[] body) {
+        if (!outbox.offer(new Pending(conversationId, compactionKey, messageId, body))) {
+            System.err.println("[CLUSTER] fila cheia, evento descartado conv=" + conversationId);
+        }
+    }
+
+    // ------------------------------------------------------------------ envio
+
+    private void sendLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(outbox.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchMs);
+                while (batch.size() < MAX_EVENTS_PER_BATCH) {
+                    Pending p = outbox.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (p == null) break;
+                    batch.add(p);
+                }
+                send(compact(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("[CLUSTER][ERR] falha no NOTIFY: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Mantém a ordem; para eventos com chave, só o último do lote sobrevive
+    static List<Entry> compact(List<Pending> batch) {
+        Map<Object, Pending> byKey = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            Object key = (p.compactionKey() != null) ? p.compactionKey() : new Object();
+            byKey.remove(key);
+            byKey.put(key, p);
+        }
+        List<Entry> entries = new ArrayList<>(byKey.size());
+        for (Pending p : byKey.values()) {
+            entries.add(new Entry(p.conversationId(), new String(p.body(), StandardCharsets.UTF_8), p.messageId()));
+        }
+        return entries;
+    }
+
+    void send(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        String wire = encode(new Envelope(nodeId, entries));
+        if (wire.length() <= maxPayloadBytes) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null, channel, wire);
+            return;
+        }
+        if (entries.size() > 1) {
+            int mid = entries.size() / 2;
+            send(entries.subList(0, mid));
+            send(entries.subList(mid, entries.size()));
+            return;
+        }
+        Entry only = entries.get(0);
+        if (only.b() != null && only.m() != null) {
+            // Não cabe nem compactado: manda só o id da mensagem
+            send(List.of(new Entry(only.c(), null, only.m())));
+        } else {
+            System.err.println("[CLUSTER] evento maior que o limite do NOTIFY descartado conv=" + only.c());
+        }
+    }
+
+    String encode(Envelope envelope) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(envelope);
+        if (json.length < compressThresholdBytes) {
+            return new String(json, StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 3);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(json);
+        }
+        return GZIP_PREFIX + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    // --------------------------------------------------------------- recepção
+
+    private void listenLoop() {
+        long backoffMs = reconnectInitialMs;
+        while (running) {
+            try (Listening listening = notificationSource.listen(channel)) {
+                backoffMs = reconnectInitialMs;
+                while (running) {
+                    for (String payload : listening.poll(1000)) {
+                        dispatch(payload);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                System.err.println("[CLUSTER][ERR] conexão LISTEN caiu: " + e.getMessage() + " (retry em " + backoffMs + "ms)");
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, reconnectMaxMs);
+            }
+        }
+    }
+
+    private Listening listenJdbc(String channel) throws SQLException {
+        Connection conn = DriverManager.getConnection(jdbcUrl, jdbcUser, jdbcPassword);
+        try (Statement st = conn.createStatement()) {
+            st.execute("LISTEN " + channel);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        return new Listening() {
+            @Override
+            public List<String> poll(int timeoutMs) throws SQLException {
+                PGNotification[] notifications = pg.getNotifications(timeoutMs);
+                if (notifications == null) return List.of();
+                List<String> payloads = new ArrayList<>(notifications.length);
+                for (PGNotification n : notifications) payloads.add(n.getParameter());
+                return payloads;
+            }
+
+            @Override
+            public void close() throws SQLException {
+                conn.close();
+            }
+        };
+    }
+
+    private void dispatch(String wire) {
+        try {
+            Envelope envelope = objectMapper.readValue(decode(wire), Envelope.class);
+            if (nodeId.equals(envelope.n())) return; // já entregue localmente por este nó
+            for (Entry e : envelope.e()) {
+                byte[] body = (e.b() != null)
+                        ? e.b().getBytes(StandardCharsets.UTF_8)
+                        : objectMapper.writeValueAsBytes(chatService.getMessageResponse(e.m()));
+                chatPublisher.deliverLocal(e.c(), body);
+            }
+        } catch (Exception e) {
+            System.err.println("[CLUSTER][ERR] notificação inválida: " + e.getMessage());
+        }
+    }
+
+    static byte[] decode(String wire) throws IOException {
+        if (!wire.startsWith(GZIP_PREFIX)) return wire.getBytes(StandardCharsets.UTF_8);
+        byte[] gz = Base64.getDecoder().decode(wire.substring(GZIP_PREFIX.length()));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /** Abre uma escuta já com LISTEN feito no canal. Falha aqui ou no poll dispara a reconexão. */
+    interface NotificationSource {
+        Listening listen(String channel) throws SQLException;
+    }
+
+    interface Listening extends AutoCloseable {
+        /** Payloads que chegaram em até timeoutMs (lista vazia se nenhum). */
+        List<String> poll(int timeoutMs) throws SQLException;
+
+        @Override
+        void close() throws SQLException;
+    }
+
+    record Pending(UUID conversationId, String compactionKey, UUID messageId, byte[] body) {}
+
+    // Formato no fio (chaves curtas de propósito: o limite do NOTIFY é 8000 bytes)
+    record Envelope(String n, List<Entry> e) {}
+
+    // c = conversa, b = JSON do evento, m = id da mensagem (só para eventos de mensagem)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(UUID c, String b, UUID m) {}
+}
@@ -0,0 +1,89 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import com.faeterjconnect.faeterjconnect.dto.ExceptionDTO;
+import com.faeterjconnect.faeterjconnect.security.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RateLimiter nos SENDs STOMP (ex.: /app/chat.send), por usuário.
+ * Frame acima do limite é descartado (não derruba a sessão) e o cliente recebe um aviso
+ * em /user/queue/errors.
+ *
+ * Log e aviso saem no máximo uma vez por chave a cada app.ratelimit.stomp-warn-interval-ms:
+ * um cliente em loop não vira uma enxurrada de frames de erro (nem de linhas no log).
+ */
+@Component
+public class RateLimitStompInterceptor implements ChannelInterceptor {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    // @Lazy: o template depende da configuração do broker, que depende deste interceptor
+    @Lazy
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.ratelimit.stomp-warn-interval-ms:10000}")
+    private long warnIntervalMs;
+
+    public static final String ERRORS_QUEUE = "/queue/errors";
+
+    private final Map<Object, Warning> warnings = new ConcurrentHashMap<>();
+
+    // Último aviso e frames descartados desde então
+    private static final class Warning {
+        final AtomicLong lastAt = new AtomicLong(Long.MIN_VALUE);
+        final AtomicInteger dropped = new AtomicInteger();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SEND) return message;
+
+        RateLimiter.Rule rule = rateLimiter.match("SEND", accessor.getDestination());
+        if (rule == null) return message;
+
+        Principal user = accessor.getUser();
+        Object key = user != null ? user.getName() : accessor.getSessionId();
+        if (rateLimiter.tryAcquire(rule, key) == 0) return message;
+
+        Warning warning = warnings.computeIfAbsent(key, k -> new Warning());
+        warning.dropped.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long last = warning.lastAt.get();
+        if (last != Long.MIN_VALUE && now - last < warnIntervalMs) return null; // já avisado neste intervalo
+        if (!warning.lastAt.compareAndSet(last, now)) return null;
+
+        System.err.println("[WS][RATE] limite '" + rule.getName() + "' excedido por " + key
+                + " (" + warning.dropped.getAndSet(0) + " frames descartados)");
+        if (user != null) {
+            messagingTemplate.convertAndSendToUser(user.getName(), ERRORS_QUEUE,
+                    new ExceptionDTO("Muitas mensagens em pouco tempo, aguarde um instante."));
+        }
+        return null; // descarta o frame
+    }
+
+    @Scheduled(fixedDelayString = "${app.ratelimit.sweep-ms:60000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - warnIntervalMs;
+        warnings.values().removeIf(w -> w.lastAt.get() < cutoff);
+    }
+}
@@ -2,9 +2,18 @@ package com.faeterjconnect.faeterjconnect.websocket;
 
 import com.faeterjconnect.faeterjconnect.security.JwtStompChannelInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.messaging.simp.config.*;
 import org.springframework.web.socket.config.annotation.*;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -13,27 +22,126 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Autowired
     JwtStompChannelInterceptor jwtStompChannelInterceptor;
 
+    @Autowired
+    WebSocketSessionMetrics sessionMetrics;
+
+    @Autowired
+    BinaryPayloadNegotiation binaryPayload;
+
+    @Autowired
+    RateLimitStompInterceptor rateLimitInterceptor;
+
+    // Scheduler do próprio broker (lazy: é criado por esta mesma configuração)
+    @Autowired
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    TaskScheduler messageBrokerTaskScheduler;
+
+    // Heartbeat STOMP: sessão que não responde em ~3x o intervalo é derrubada (e sai da presença)
+    @Value("${app.ws.heartbeat-ms:10000}")
+    long heartbeatMs;
+
+    // Cliente lento: passou de send-time-limit escrevendo um frame ou acumulou mais que
+    // send-buffer-limit na fila -> sessão encerrada (SESSION_NOT_RELIABLE), sem segurar memória
+    @Value("${app.ws.send-time-limit-ms:15000}")
+    int sendTimeLimitMs;
+
+    @Value("${app.ws.send-buffer-limit-bytes:262144}")
+    int sendBufferLimitBytes;
+
+    @Value("${app.ws.message-size-limit-bytes:65536}")
+    int messageSizeLimitBytes;
+
+    // Executor de saída limitado: fila cheia rejeita a mensagem em vez de crescer sem fim
+    @Value("${app.ws.outbound.pool-size:8}")
+    int outboundPoolSize;
+
+    @Value("${app.ws.outbound.queue-capacity:10000}")
+    int outboundQueueCapacity;
+
+    // permessage-deflate (Tomcat já oferece; DeflateUpgradeStrategy liga/desliga e escolhe o modo)
+    @Value("${app.ws.deflate.enabled:true}")
+    boolean deflateEnabled;
+
+    @Value("${app.ws.deflate.no-context-takeover:true}")
+    boolean deflateNoContextTakeover;
+
+    // Modo opcional (Java 21): canais STOMP em virtual threads, junto com o Tomcat.
+    // O limite de concorrência faz o papel da fila limitada: quem publica espera em vez de acumular.
+    @Value("${spring.threads.virtual.enabled:false}")
+    boolean virtualThreads;
+
+    @Value("${app.ws.virtual.concurrency-limit:2000}")
+    int virtualConcurrencyLimit;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        config.enableSimpleBroker("/topic", "/queue")
+                .setTaskScheduler(messageBrokerTaskScheduler)
+                .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs});
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        var handshakeHandler = new DefaultHandshakeHandler(
+                new DeflateUpgradeStrategy(deflateEnabled, deflateNoContextTakeover));
+
         // Para WebSocket nativo
         registry.addEndpoint("/ws")
+                .setHandshakeHandler(handshakeHandler)
                 .setAllowedOriginPatterns("*");
 
         // Para SockJS fallback
         registry.addEndpoint("/ws")
+                .setHandshakeHandler(handshakeHandler)
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferLimitBytes)
+                .setMessageSizeLimit(messageSizeLimitBytes)
+                .addDecoratorFactory(sessionMetrics::decorate);
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(jwtStompChannelInterceptor);
+        registration.interceptors(jwtStompChannelInterceptor, rateLimitInterceptor, binaryPayload);
+        if (virtualThreads) {
+            registration.executor(virtualExecutor("ws-in-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // binaryPayload antes: as métricas contam o tamanho que de fato vai para o socket
+        registration.interceptors(binaryPayload, sessionMetrics);
+        if (virtualThreads) {
+            registration.executor(virtualExecutor("ws-out-"));
+        } else {
+            registration.taskExecutor()
+                    .corePoolSize(outboundPoolSize)
+                    .maxPoolSize(outboundPoolSize)
+                    .queueCapacity(outboundQueueCapacity);
+        }
+    }
+
+    // CBOR na entrada (content-type application/cbor); true = mantém os conversores padrão (JSON)
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(binaryPayload.cborConverter());
+        return true;
+    }
+
+    private SimpleAsyncTaskExecutor virtualExecutor(String prefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(prefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(virtualConcurrencyLimit);
+        System.out.println("[WS] canal " + prefix + " em virtual threads (limite " + virtualConcurrencyLimit + ")");
+        return executor;
     }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas de saída por sessão WebSocket (clientes lentos).
+ *
+ * - interceptor do clientOutboundChannel: conta cada frame oferecido à sessão (entra na fila);
+ * - decorator da sessão: conta o que de fato foi escrito no socket e quanto demorou.
+ * A diferença é a fila da sessão (executor de saída + buffer do ConcurrentWebSocketSessionDecorator).
+ *
+ * Quem estoura send-buffer/send-time é derrubado pelo Spring com SESSION_NOT_RELIABLE;
+ * o que estava na fila conta como descartado (o cliente recupera com /api/chat/sync).
+ */
+@Component
+public class WebSocketSessionMetrics implements ChannelInterceptor {
+
+    @Value("${app.ws.metrics.top-sessions:20}")
+    private int topSessions;
+
+    private final Map<String, SessionStats> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final AtomicLong slowSessionsClosed = new AtomicLong();
+
+    // ---------- lado da fila (clientOutboundChannel) ----------
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SessionStats s = statsOf(message);
+        if (s != null) {
+            int size = payloadSize(message);
+            s.pending.add(size);
+            s.queuedBytes.addAndGet(size);
+            s.maxQueueDepth.accumulateAndGet(s.pending.size(), Math::max);
+        }
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (sent && ex == null) return;
+        // Executor de saída cheio (fila limitada) ou falha ao enfileirar: a mensagem não sai
+        rejectedMessages.incrementAndGet();
+        droppedMessages.incrementAndGet();
+        SessionStats s = statsOf(message);
+        if (s != null) {
+            int size = payloadSize(message);
+            if (s.pending.remove(size)) s.queuedBytes.addAndGet(-size);
+        }
+    }
+
+    // ---------- lado do socket ----------
+
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionStats stats = new SessionStats(session.getId());
+                sessions.put(session.getId(), stats);
+                super.afterConnectionEstablished(new MeteredSession(session, stats));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, closeStatus);
+                } finally {
+                    SessionStats s = sessions.remove(session.getId());
+                    if (s != null && (s.closedAsSlow || CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus))) {
+                        slowSessionsClosed.incrementAndGet();
+                        droppedMessages.addAndGet(s.pending.size());
+                        System.err.println("[WS] sessão " + s.sessionId + " derrubada por lentidão; "
+                                + s.pending.size() + " frames descartados (" + s.queuedBytes.get() + " bytes)");
+                    }
+                }
+            }
+        };
+    }
+
+    private static class MeteredSession extends WebSocketSessionDecorator {
+        private final SessionStats stats;
+
+        MeteredSession(WebSocketSession delegate, SessionStats stats) {
+            super(delegate);
+            this.stats = stats;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                stats.maxSendMillis.accumulateAndGet(millis, Math::max);
+                stats.sentMessages.incrementAndGet();
+                stats.sentBytes.addAndGet(message.getPayloadLength());
+                Integer size = stats.pending.poll(); // FIFO: este frame saiu da fila
+                if (size != null) stats.queuedBytes.addAndGet(-size);
+            }
+        }
+
+        @Override
+        public void close(CloseStatus status) throws IOException {
+            if (CloseStatus.SESSION_NOT_RELIABLE.equals(status)) stats.closedAsSlow = true;
+            super.close(status);
+        }
+    }
+
+    private static class SessionStats {
+        final String sessionId;
+        final ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+        final AtomicLong queuedBytes = new AtomicLong();
+        final AtomicInteger maxQueueDepth = new AtomicInteger();
+        final AtomicLong sentMessages = new AtomicLong();
+        final AtomicLong sentBytes = new AtomicLong();
+        final AtomicLong maxSendMillis = new AtomicLong();
+        volatile boolean closedAsSlow;
+
+        SessionStats(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+
+    // ---------- leitura ----------
+
+    public record SessionSnapshot(String sessionId, int queueDepth, long queuedBytes, int maxQueueDepth,
+                                  long sentMessages, long sentBytes, long maxSendMillis) {}
+
+    public record Snapshot(int openSessions, long totalQueuedBytes, long droppedMessages, long rejectedMessages,
+                           long slowSessionsClosed, List<SessionSnapshot> worstSessions) {}
+
+    /** Totais + as sessões com mais bytes parados na fila. */
+    public Snapshot snapshot() {
+        List<SessionSnapshot> all = new ArrayList<>(sessions.size());
+        long totalQueued = 0;
+        for (SessionStats s : sessions.values()) {
+            SessionSnapshot snap = new SessionSnapshot(s.sessionId, s.pending.size(), s.queuedBytes.get(),
+                    s.maxQueueDepth.get(), s.sentMessages.get(), s.sentBytes.get(), s.maxSendMillis.get());
+            totalQueued += snap.queuedBytes();
+            all.add(snap);
+        }
+        all.sort(Comparator.comparingLong(SessionSnapshot::queuedBytes).reversed());
+        return new Snapshot(all.size(), totalQueued, droppedMessages.get(), rejectedMessages.get(),
+                slowSessionsClosed.get(), all.subList(0, Math.min(topSessions, all.size())));
+    }
+
+    @Scheduled(fixedDelayString = "${app.ws.metrics.log-interval-ms:60000}")
+    public void log() {
+        Snapshot s = snapshot();
+        if (s.totalQueuedBytes() == 0 && s.droppedMessages() == 0) return;
+        System.out.println("[WS] sessões=" + s.openSessions() + " bytesNaFila=" + s.totalQueuedBytes()
+                + " descartadas=" + s.droppedMessages() + " rejeitadas=" + s.rejectedMessages()
+                + " derrubadasPorLentidão=" + s.slowSessionsClosed());
+    }
+
+    private SessionStats statsOf(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    private static int payloadSize(Message<?> message) {
+        return (message.getPayload() instanceof byte[] bytes) ? bytes.length : 0;
+    }
+}
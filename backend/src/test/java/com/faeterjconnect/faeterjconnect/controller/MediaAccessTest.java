@@ -0,0 +1,106 @@
+package com.faeterjconnect.faeterjconnect.controller;
+
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.TokenService;
+import com.faeterjconnect.faeterjconnect.service.ChatAttachmentService;
+import com.faeterjconnect.faeterjconnect.service.MediaStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:mediaaccess;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media"
+})
+@AutoConfigureMockMvc
+class MediaAccessTest {
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Value("${app.media.local-path}")
+    private String mediaLocalPath;
+
+    private String bearer;
+
+    @BeforeEach
+    void login() {
+        UserEntity user = new UserEntity();
+        String name = "aluno-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(RoleEnum.ALUNO);
+        bearer = "Bearer " + tokenService.generateToken(userRepository.save(user));
+    }
+
+    @Test
+    void legacyAvatarIsServedButAttachmentsAreNot() throws Exception {
+        String userDir = UUID.randomUUID().toString();
+        Path avatar = Paths.get(mediaLocalPath, userDir, "avatar_1700000000000.jpg");
+        Files.createDirectories(avatar.getParent());
+        Files.write(avatar, new byte[]{1, 2, 3});
+
+        String hash = sha256("anexo de outra conversa");
+        Path attachment = Paths.get(mediaLocalPath, "attachments", hash.substring(0, 2), hash);
+        Files.createDirectories(attachment.getParent());
+        Files.writeString(attachment, "anexo de outra conversa");
+
+        mvc.perform(get("/media/" + userDir + "/avatar_1700000000000.jpg").header("Authorization", bearer))
+                .andExpect(status().isOk());
+        mvc.perform(get("/media/attachments/" + hash.substring(0, 2) + "/" + hash).header("Authorization", bearer))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/media/" + userDir + "/../attachments/" + hash.substring(0, 2) + "/" + hash)
+                        .header("Authorization", bearer))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void uploadToForeignConversationStoresNothing() throws Exception {
+        byte[] content = ("intruso " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "x.txt", "text/plain", content);
+
+        Exception e = assertThrows(Exception.class, () -> mvc.perform(
+                multipart("/api/chat/conversations/" + UUID.randomUUID() + "/attachments")
+                        .file(file).header("Authorization", bearer)));
+        assertInstanceOf(SecurityException.class, e.getCause());
+        assertFalse(mediaStore.exists(ChatAttachmentService.originalKey(sha256(content))), "anexo gravado antes da checagem");
+    }
+
+    private static String sha256(String s) throws Exception {
+        return sha256(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] b) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(b));
+    }
+}
@@ -0,0 +1,108 @@
+package com.faeterjconnect.faeterjconnect.controller;
+
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.TokenService;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * No Tomcat de verdade: o RangeFileWriter entrega o arquivo ao sendfile do conector (o filtro
+ * abaixo vê o atributo depois do controller) e o cliente recebe os bytes certos, inteiro e em Range.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:mediasendfile;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media"
+})
+class MediaSendfileTest {
+
+    private static final String HASH = "5e884898da28047151d0e56f8dc6292773603d0d6aabbdd62a11ef721d1542d8";
+
+    // caminho da requisição -> arquivo que ficou para o sendfile
+    static final Map<String, Object> SENDFILE = new ConcurrentHashMap<>();
+
+    @TestConfiguration
+    static class SendfileProbe {
+        @Bean
+        FilterRegistrationBean<Filter> sendfileProbe() {
+            FilterRegistrationBean<Filter> bean = new FilterRegistrationBean<>((req, res, chain) -> {
+                chain.doFilter(req, res);
+                Object file = req.getAttribute("org.apache.tomcat.sendfile.filename");
+                if (file != null) SENDFILE.put(((HttpServletRequest) req).getRequestURI(), file);
+            });
+            bean.addUrlPatterns("/media/avatars/*");
+            return bean;
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.media.local-path}")
+    private String mediaLocalPath;
+
+    @Test
+    void avatarIsHandedToTheConnectorSendfile() throws Exception {
+        byte[] content = new byte[200_000];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i * 31);
+        Path file = Paths.get(mediaLocalPath, "avatars", HASH.substring(0, 2), HASH.substring(2, 4), HASH, "128.jpg");
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+
+        String path = "/media/avatars/" + HASH + "/128.jpg";
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<byte[]> full = client.send(request(path).build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, full.statusCode());
+        assertArrayEquals(content, full.body());
+        assertEquals(file.toAbsolutePath().toString(), SENDFILE.get(path));
+
+        HttpResponse<byte[]> partial = client.send(request(path).header("Range", "bytes=1000-1999").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(206, partial.statusCode());
+        assertEquals("bytes 1000-1999/200000", partial.headers().firstValue("Content-Range").orElse(null));
+        byte[] expected = new byte[1000];
+        System.arraycopy(content, 1000, expected, 0, 1000);
+        assertArrayEquals(expected, partial.body());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        UserEntity user = new UserEntity();
+        String name = "aluno-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(RoleEnum.ALUNO);
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + tokenService.generateToken(userRepository.save(user)));
+    }
+}
@@ -0,0 +1,119 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.faeterjconnect.faeterjconnect.exception.ExceptionCustom;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void matchesMethodPathAndWildcards() {
+        RateLimiter limiter = limiter(100,
+                "post-like=* /api/posts/*/likes 60/60",
+                "login=POST /api/user/login 10/60",
+                "chat-send=SEND /app/chat.send 30/10");
+
+        assertEquals("post-like", limiter.match("DELETE", "/api/posts/42/likes").getName());
+        assertEquals("post-like", limiter.match("POST", "/api/posts/42/likes/").getName());
+        assertNull(limiter.match("OPTIONS", "/api/posts/42/likes")); // preflight não conta
+        assertNull(limiter.match("POST", "/api/posts//likes"));
+        assertNull(limiter.match("POST", "/api/posts/42/likes/extra"));
+        assertEquals("login", limiter.match("POST", "/api/user/login").getName());
+        assertNull(limiter.match("GET", "/api/user/login"));
+        assertNull(limiter.match("POST", "/api/user/loginx"));
+        assertEquals("chat-send", limiter.match("SEND", "/app/chat.send").getName());
+        assertNull(limiter.match("POST", "/app/chat.send"));
+    }
+
+    @Test
+    void allowsBurstThenRejectsWithRetryAfter() {
+        RateLimiter limiter = limiter(100, "login=POST /api/user/login 3/60");
+        RateLimiter.Rule rule = limiter.match("POST", "/api/user/login");
+
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire(rule, "10.0.0.1"));
+        long wait = limiter.tryAcquire(rule, "10.0.0.1");
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(20), "espera de uma ficha (60s/3): " + wait);
+
+        assertEquals(0, limiter.tryAcquire(rule, "10.0.0.2"), "outra chave tem balde próprio");
+    }
+
+    @Test
+    void refillsOverThePeriod() throws InterruptedException {
+        RateLimiter limiter = limiter(100, "fast=GET /x 2/1");
+        RateLimiter.Rule rule = limiter.match("GET", "/x");
+
+        assertEquals(0, limiter.tryAcquire(rule, "k"));
+        assertEquals(0, limiter.tryAcquire(rule, "k"));
+        assertTrue(limiter.tryAcquire(rule, "k") > 0);
+        Thread.sleep(600); // uma ficha a cada 500ms
+        assertEquals(0, limiter.tryAcquire(rule, "k"));
+    }
+
+    @Test
+    void acquireOrThrowUsesTheMatchingRule() {
+        RateLimiter limiter = limiter(100, "login-account=LOGIN /api/user/login 1/60");
+
+        limiter.acquireOrThrow("LOGIN", "/api/user/login", "10.0.0.1|a@x");
+        ExceptionCustom.TooManyRequestsException e = assertThrows(ExceptionCustom.TooManyRequestsException.class,
+                () -> limiter.acquireOrThrow("LOGIN", "/api/user/login", "10.0.0.1|a@x"));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+
+        limiter.acquireOrThrow("LOGIN", "/api/user/login", "10.0.0.1|b@x"); // outra conta, mesmo IP
+        limiter.acquireOrThrow("LOGIN", "/api/other", "10.0.0.1|a@x");     // sem regra
+    }
+
+    @Test
+    void newKeysShareTheOverflowBucketWhenTheMapIsFull() {
+        RateLimiter limiter = limiter(2, "r=GET /x 1/60");
+        RateLimiter.Rule rule = limiter.match("GET", "/x");
+
+        assertEquals(0, limiter.tryAcquire(rule, "a"));
+        assertEquals(0, limiter.tryAcquire(rule, "b"));
+        assertEquals(0, limiter.tryAcquire(rule, "c")); // primeira no transbordo
+        assertTrue(limiter.tryAcquire(rule, "d") > 0);  // divide o transbordo com "c"
+        assertEquals(2, rule.buckets.size());
+    }
+
+    @Test
+    void sweepDropsOnlyFullBuckets() throws InterruptedException {
+        RateLimiter limiter = limiter(100, "fast=GET /x 1/1", "slow=GET /y 1/60");
+        RateLimiter.Rule fast = limiter.match("GET", "/x");
+        RateLimiter.Rule slow = limiter.match("GET", "/y");
+        limiter.tryAcquire(fast, "k");
+        limiter.tryAcquire(slow, "k");
+
+        Thread.sleep(1100);
+        limiter.sweep();
+        assertTrue(fast.buckets.isEmpty());
+        assertEquals(1, slow.buckets.size());
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(100, "sem-igual POST /x 1/1"));
+        assertThrows(IllegalArgumentException.class, () -> limiter(100, "r=POST x 1/1"));
+        assertThrows(IllegalArgumentException.class, () -> limiter(100, "r=POST /x 0/1"));
+        assertThrows(IllegalArgumentException.class, () -> limiter(100, "r=POST /x 10"));
+    }
+
+    @Test
+    void disabledMatchesNothing() {
+        RateLimiter limiter = limiter(100, "login=POST /api/user/login 1/60");
+        ReflectionTestUtils.setField(limiter, "enabled", false);
+        assertNull(limiter.match("POST", "/api/user/login"));
+    }
+
+    static RateLimiter limiter(int maxKeys, String... rules) {
+        RateLimiter limiter = new RateLimiter();
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "ruleSpecs", List.of(rules));
+        ReflectionTestUtils.setField(limiter, "maxKeysPerRule", maxKeys);
+        limiter.init();
+        return limiter;
+    }
+}
@@ -0,0 +1,89 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.RevokedTokenRepository;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:revocation;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media"
+})
+class TokenRevocationServiceTest {
+
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private TokenRevocationService tokenRevocations;
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void deletedUserTokenIsRejectedHereAfterRestartAndOnOtherNodes() {
+        UserEntity user = user();
+        String token = tokenService.generateToken(user);
+        AuthenticatedUser principal = tokenService.authenticate(token);
+        assertNotNull(principal);
+
+        TokenRevocationService otherNode = node(); // carregado antes da remoção
+
+        userService.deleteUser(principal, user.getUserId());
+
+        assertNull(tokenService.authenticate(token), "token do usuário removido ainda vale neste nó");
+
+        assertFalse(otherNode.isUserRevoked(user.getUserId()));
+        otherNode.sync();
+        assertTrue(otherNode.isUserRevoked(user.getUserId()), "outro nó não viu a remoção no sync");
+
+        assertTrue(node().isUserRevoked(user.getUserId()), "remoção perdida depois de um restart");
+    }
+
+    @Test
+    void userTombstoneDoesNotRevokeOtherUsersOrTokens() {
+        UUID removed = UUID.randomUUID();
+        tokenRevocations.revokeUser(removed);
+
+        TokenRevocationService restarted = node();
+        assertTrue(restarted.isUserRevoked(removed));
+        assertFalse(restarted.isUserRevoked(UUID.randomUUID()));
+        assertFalse(restarted.isRevoked(UUID.randomUUID()));
+    }
+
+    // Outra instância sobre o mesmo banco: faz o papel de outro nó ou de um restart
+    private TokenRevocationService node() {
+        TokenRevocationService node = new TokenRevocationService();
+        ReflectionTestUtils.setField(node, "revokedTokenRepository", revokedTokenRepository);
+        ReflectionTestUtils.setField(node, "expirationHours", 2L);
+        ReflectionTestUtils.setField(node, "expectedEntries", 1000);
+        ReflectionTestUtils.setField(node, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(node, "syncOverlapMs", 60000L);
+        node.load();
+        return node;
+    }
+
+    private UserEntity user() {
+        UserEntity user = new UserEntity();
+        String name = "aluno-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(RoleEnum.ALUNO);
+        return userRepository.save(user);
+    }
+}
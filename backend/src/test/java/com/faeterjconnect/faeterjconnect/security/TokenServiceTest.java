@@ -0,0 +1,157 @@
+package com.faeterjconnect.faeterjconnect.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.util.MicroBenchmark;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServiceTest {
+
+    private TokenService tokenService;
+    private TokenVersionRegistry tokenVersions;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = tokenService(100_000);
+    }
+
+    @Test
+    void cachedTokenKeepsTheSameClaims() {
+        UserEntity user = user();
+        String token = tokenService.generateToken(user);
+
+        AuthenticatedUser first = tokenService.authenticate(token);
+        AuthenticatedUser second = tokenService.authenticate("Bearer " + token);
+        assertEquals(user.getUserId(), first.getUserId());
+        assertEquals(user.getEmail(), second.getEmail());
+        assertEquals(RoleEnum.ALUNO, second.getRoleEnum());
+        assertEquals(1, cache().size());
+    }
+
+    @Test
+    void tamperedTokenIsVerifiedEvenWhenTheOriginalIsCached() {
+        String token = tokenService.generateToken(user());
+        assertNotNull(tokenService.authenticate(token));
+
+        // troca um caractere no meio da assinatura (o último pode cair só em bits de preenchimento)
+        int at = token.length() - 10;
+        String tampered = token.substring(0, at) + (token.charAt(at) == 'A' ? 'B' : 'A') + token.substring(at + 1);
+        assertNull(tokenService.authenticate(tampered));
+        assertNull(tokenService.authenticate(token.substring(0, token.length() - 1)));
+    }
+
+    @Test
+    void cachedTokenStopsWorkingAtExpiry() throws InterruptedException {
+        String token = JWT.create()
+                .withIssuer("test")
+                .withSubject("a@faeterj.test")
+                .withClaim(TokenService.CLAIM_USER_ID, UUID.randomUUID().toString())
+                .withClaim(TokenService.CLAIM_ROLE, RoleEnum.ALUNO.name())
+                .withExpiresAt(Instant.now().plusMillis(1500))
+                .sign(Algorithm.HMAC256("test"));
+        assertNotNull(tokenService.authenticate(token));
+
+        Thread.sleep(1600);
+        assertNull(tokenService.authenticate(token));
+        assertTrue(cache().isEmpty());
+    }
+
+    @Test
+    void versionBumpRejectsACachedToken() {
+        UserEntity user = user();
+        String token = tokenService.generateToken(user);
+        assertNotNull(tokenService.authenticate(token));
+
+        tokenVersions.bump(user.getUserId(), 1);
+        assertNull(tokenService.authenticate(token));
+    }
+
+    @Test
+    void cacheNeverGrowsPastItsLimit() {
+        TokenService small = tokenService(3);
+        Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(small, "verified");
+        for (int i = 0; i < 10; i++) {
+            String token = small.generateToken(user());
+            assertNotNull(small.authenticate(token));
+            assertTrue(cache.size() <= 3);
+            // cheio de tokens válidos, o cache ainda aceita o novo
+            assertTrue(cache.containsKey(token));
+        }
+    }
+
+    @Test
+    void cacheHitReturnsTheSameUserAsFullVerification() {
+        UserEntity user = user();
+        String token = tokenService.generateToken(user);
+        TokenService uncached = tokenService(0);
+
+        AuthenticatedUser verified = uncached.authenticate(new String(token));
+        tokenService.authenticate(token);
+        AuthenticatedUser cached = tokenService.authenticate(new String(token));
+
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(uncached, "verified")).isEmpty());
+        assertEquals(verified.getUserId(), cached.getUserId());
+        assertEquals(verified.getEmail(), cached.getEmail());
+        assertEquals(verified.getRoleEnum(), cached.getRoleEnum());
+    }
+
+    // Harness: verificação completa (HMAC + parse do JSON) contra acerto de cache.
+    // Cada chamada recebe uma String nova, como numa requisição de verdade (hash recalculado).
+    // Depende do relógio, então só roda com -Dbench=true
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void cacheHitIsMuchCheaperThanFullVerification() {
+        String token = tokenService.generateToken(user());
+        TokenService uncached = tokenService(0);
+
+        double verify = MicroBenchmark.nsPerOp("jwt: verificação completa", 5, 7, 20_000,
+                () -> uncached.authenticate(new String(token)));
+        double cached = MicroBenchmark.nsPerOp("jwt: acerto de cache", 5, 7, 20_000,
+                () -> tokenService.authenticate(new String(token)));
+
+        assertTrue(cached * 2 < verify, "cache " + cached + " ns/op vs verificação " + verify + " ns/op");
+    }
+
+    private Map<?, ?> cache() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(tokenService, "verified");
+    }
+
+    private TokenService tokenService(int cacheMaxEntries) {
+        tokenVersions = tokenVersions == null ? new TokenVersionRegistry() : tokenVersions;
+
+        TokenRevocationService revocations = new TokenRevocationService();
+        ReflectionTestUtils.setField(revocations, "expectedEntries", 1000);
+        ReflectionTestUtils.setField(revocations, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.invokeMethod(revocations, "rebuild");
+
+        TokenService service = new TokenService();
+        ReflectionTestUtils.setField(service, "tokenVersions", tokenVersions);
+        ReflectionTestUtils.setField(service, "revocations", revocations);
+        ReflectionTestUtils.setField(service, "secret", "test");
+        ReflectionTestUtils.setField(service, "issuer", "test");
+        ReflectionTestUtils.setField(service, "expirationHours", 2L);
+        ReflectionTestUtils.setField(service, "cacheMaxEntries", cacheMaxEntries);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    private static UserEntity user() {
+        UserEntity user = new UserEntity();
+        user.setUserId(UUID.randomUUID());
+        user.setUsername("aluno");
+        user.setEmail("aluno-" + user.getUserId() + "@faeterj.test");
+        user.setRoleEnum(RoleEnum.ALUNO);
+        return user;
+    }
+}
@@ -0,0 +1,223 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.model.AttachmentEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantId;
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.AttachmentRepository;
+import com.faeterjconnect.faeterjconnect.repository.ConversationParticipantRepository;
+import com.faeterjconnect.faeterjconnect.repository.ConversationRepository;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.TokenService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Anexos com app.media.store=s3 (contra o FakeS3): nada fica no disco do nó, e o download sai
+ * do bucket, como aconteceria em outro nó.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:chatattachment;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media-s3", "app.media.base-url=/media",
+        "app.media.store=s3", "app.media.s3.bucket=media", "app.media.s3.region=us-east-1",
+        "app.media.s3.access-key=AK", "app.media.s3.secret-key=SK", "app.media.s3.path-style=true"
+})
+@AutoConfigureMockMvc
+class ChatAttachmentServiceTest {
+
+    static final S3MediaStoreTest.FakeS3 S3 = fakeS3();
+
+    @DynamicPropertySource
+    static void s3(DynamicPropertyRegistry registry) {
+        registry.add("app.media.s3.endpoint", () -> "http://127.0.0.1:" + S3.server.getAddress().getPort() + "/");
+    }
+
+    @AfterAll
+    static void stop() {
+        S3.server.stop(0);
+    }
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ConversationRepository conversationRepository;
+    @Autowired
+    private ConversationParticipantRepository participantRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+    @Autowired
+    private ChatService chatService;
+
+    @Value("${app.media.local-path}")
+    private String mediaLocalPath;
+
+    @Test
+    void fileIsStoredInTheSharedStoreAndServedFromIt() throws Exception {
+        UserEntity aluno = user(RoleEnum.ALUNO);
+        UserEntity professor = user(RoleEnum.PROFESSOR);
+        UUID conversationId = conversation(aluno, professor);
+        byte[] content = ("relatório " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(content);
+
+        mvc.perform(multipart("/api/chat/conversations/" + conversationId + "/attachments")
+                        .file(new MockMultipartFile("file", "r.txt", "text/plain", content))
+                        .header("Authorization", bearer(aluno)))
+                .andExpect(status().isOk());
+
+        assertArrayEquals(content, S3.objects.get(ChatAttachmentService.originalKey(hash)));
+        assertFalse(Files.exists(Paths.get(mediaLocalPath, "attachments", hash.substring(0, 2), hash)));
+
+        MvcResult download = mvc.perform(get("/api/chat/attachments/" + hash).header("Authorization", bearer(professor)))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertArrayEquals(content, download.getResponse().getContentAsByteArray());
+        assertEquals("attachment", download.getResponse().getHeader("Content-Disposition"));
+
+        MvcResult partial = mvc.perform(get("/api/chat/attachments/" + hash)
+                        .header("Authorization", bearer(professor)).header("Range", "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andReturn();
+        assertEquals(4, partial.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void thumbnailIsGeneratedFromTheRemoteOriginal() throws Exception {
+        UserEntity aluno = user(RoleEnum.ALUNO);
+        UserEntity professor = user(RoleEnum.PROFESSOR);
+        UUID conversationId = conversation(aluno, professor);
+        byte[] png = png(1200, 800);
+        String hash = sha256(png);
+
+        mvc.perform(multipart("/api/chat/conversations/" + conversationId + "/attachments")
+                        .file(new MockMultipartFile("file", "foto.png", "image/png", png))
+                        .header("Authorization", bearer(aluno)))
+                .andExpect(status().isOk());
+
+        String thumbKey = ChatAttachmentService.thumbnailKey(hash);
+        for (int i = 0; i < 100 && !S3.objects.containsKey(thumbKey); i++) Thread.sleep(50);
+        assertTrue(S3.objects.containsKey(thumbKey), "miniatura não chegou ao bucket");
+
+        MvcResult thumb = mvc.perform(get("/api/chat/attachments/" + hash + "/thumbnail")
+                        .header("Authorization", bearer(professor)))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("image/jpeg", thumb.getResponse().getContentType());
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(thumb.getResponse().getContentAsByteArray()));
+        assertEquals(320, Math.max(image.getWidth(), image.getHeight()));
+    }
+
+    @Test
+    void legacyFileIsMovedIntoTheStoreOnFirstDownload() throws Exception {
+        UserEntity aluno = user(RoleEnum.ALUNO);
+        UserEntity professor = user(RoleEnum.PROFESSOR);
+        UUID conversationId = conversation(aluno, professor);
+        byte[] content = ("anexo antigo " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(content);
+
+        // layout de antes do MediaStore: <local-path>/attachments/ab/<sha256>
+        Path legacy = Paths.get(mediaLocalPath, "attachments", hash.substring(0, 2), hash);
+        Files.createDirectories(legacy.getParent());
+        Files.write(legacy, content);
+        attachmentRepository.save(new AttachmentEntity(hash, "text/plain", content.length, false, null));
+        chatService.saveAttachmentMessage(aluno.getUserId(), conversationId, "antigo", MessageTypeEnum.FILE,
+                ChatAttachmentService.urlFor(hash));
+
+        MvcResult download = mvc.perform(get("/api/chat/attachments/" + hash).header("Authorization", bearer(professor)))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertArrayEquals(content, download.getResponse().getContentAsByteArray());
+        assertArrayEquals(content, S3.objects.get(ChatAttachmentService.originalKey(hash)));
+        assertFalse(Files.exists(legacy));
+    }
+
+    private static byte[] png(int w, int h) throws IOException {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < w; x += 7) image.setRGB(x, x % h, 0xff8800);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private String bearer(UserEntity user) {
+        return "Bearer " + tokenService.generateToken(user);
+    }
+
+    private UUID conversation(UserEntity a, UserEntity b) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            ConversationEntity c = new ConversationEntity();
+            c.setPairKey(ConversationEntity.pairKey(a.getUserId(), b.getUserId()));
+            c = conversationRepository.save(c);
+            for (UserEntity u : new UserEntity[]{a, b}) {
+                ConversationParticipantEntity p = new ConversationParticipantEntity();
+                p.setId(new ConversationParticipantId(c.getIdConversation(), u.getUserId()));
+                p.setConversation(c);
+                p.setUser(u);
+                participantRepository.save(p);
+            }
+            return c.getIdConversation();
+        });
+    }
+
+    private UserEntity user(RoleEnum role) {
+        UserEntity user = new UserEntity();
+        String name = role.name().toLowerCase() + "-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(role);
+        return userRepository.save(user);
+    }
+
+    private static String sha256(byte[] b) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(b));
+    }
+
+    private static S3MediaStoreTest.FakeS3 fakeS3() {
+        try {
+            return new S3MediaStoreTest.FakeS3("AK", "SK", 100);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mesmo cenário do ChatSyncServiceTest, mas no caminho do PostgreSQL (token por xmin, sem lock
+ * global). Pulado quando não há Docker.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class ChatSyncPostgresTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private ChatSyncService chatSyncService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void writersDoNotWaitForEachOtherAndTheTokenSkipsNoOne() throws Exception {
+        UserEntity professor = user(RoleEnum.PROFESSOR);
+        UserEntity aluno1 = user(RoleEnum.ALUNO);
+        UserEntity aluno2 = user(RoleEnum.ALUNO);
+        UUID conversation1 = chatService.findOrCreateOneToOne(aluno1.getUserId(), professor.getUserId()).getIdConversation();
+        UUID conversation2 = chatService.findOrCreateOneToOne(aluno2.getUserId(), professor.getUserId()).getIdConversation();
+        String token = sync(professor, null).get("token").asText();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch slowWrote = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        try {
+            Future<UUID> slow = pool.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                UUID id = chatService.saveTextMessage(aluno1.getUserId(), conversation1, "lenta", MessageTypeEnum.TEXT).getId();
+                slowWrote.countDown();
+                try {
+                    releaseSlow.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return id;
+            }));
+            assertTrue(slowWrote.await(10, TimeUnit.SECONDS));
+
+            // Sem lock global: a escrita em outra conversa confirma com a lenta ainda aberta
+            UUID fastId = pool.submit(() ->
+                    chatService.saveTextMessage(aluno2.getUserId(), conversation2, "rápida", MessageTypeEnum.TEXT).getId())
+                    .get(5, TimeUnit.SECONDS);
+
+            JsonNode during = sync(professor, token);
+            assertTrue(messageIds(during).contains(fastId.toString()));
+            releaseSlow.countDown();
+            UUID slowId = slow.get(10, TimeUnit.SECONDS);
+
+            JsonNode after = sync(professor, during.get("token").asText());
+            assertTrue(messageIds(after).contains(slowId.toString()), "mensagem da transação lenta perdida");
+        } finally {
+            releaseSlow.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    private JsonNode sync(UserEntity user, String token) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        chatSyncService.writeSync(user.getUserId(), token, out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static Set<String> messageIds(JsonNode sync) {
+        Set<String> ids = new HashSet<>();
+        sync.get("messages").forEach(m -> ids.add(m.get("id").asText()));
+        return ids;
+    }
+
+    private UserEntity user(RoleEnum role) {
+        UserEntity user = new UserEntity();
+        String name = role.name().toLowerCase() + "-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(role);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,202 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.model.ConversationEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantId;
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.ConversationParticipantRepository;
+import com.faeterjconnect.faeterjconnect.repository.ConversationRepository;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:chatsync;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media"
+})
+class ChatSyncServiceTest {
+
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private ChatSyncService chatSyncService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ConversationRepository conversationRepository;
+    @Autowired
+    private ConversationParticipantRepository participantRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ChatChangeClock changeClock;
+
+    @Test
+    void writerThatCommitsAfterATokenIsNotSkipped() throws Exception {
+        // Duas conversas do mesmo professor: as escritas não disputam nenhuma linha em comum
+        UserEntity professor = user(RoleEnum.PROFESSOR);
+        UserEntity aluno1 = user(RoleEnum.ALUNO);
+        UserEntity aluno2 = user(RoleEnum.ALUNO);
+        UUID conversation1 = conversation(aluno1, professor);
+        UUID conversation2 = conversation(aluno2, professor);
+        String token = sync(professor, null).get("token").asText();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch slowWrote = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        try {
+            // Transação 1: grava e fica aberta (como um commit lento)
+            Future<UUID> slow = pool.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                UUID id = chatService.saveTextMessage(aluno1.getUserId(), conversation1, "lenta", MessageTypeEnum.TEXT).getId();
+                slowWrote.countDown();
+                try {
+                    releaseSlow.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return id;
+            }));
+            assertTrue(slowWrote.await(10, TimeUnit.SECONDS));
+
+            // Transação 2 começa depois e tenta confirmar antes da 1
+            Future<UUID> fast = pool.submit(() ->
+                    chatService.saveTextMessage(aluno2.getUserId(), conversation2, "rápida", MessageTypeEnum.TEXT).getId());
+            Thread.sleep(300);
+
+            // Sync no meio: o token não pode passar do seq da transação 1, ainda aberta
+            JsonNode during = sync(professor, token);
+            releaseSlow.countDown();
+            UUID slowId = slow.get(10, TimeUnit.SECONDS);
+            UUID fastId = fast.get(10, TimeUnit.SECONDS);
+            JsonNode after = sync(professor, during.get("token").asText());
+
+            Set<String> seen = messageIds(during);
+            seen.addAll(messageIds(after));
+            assertTrue(seen.contains(slowId.toString()), "mensagem da transação lenta perdida");
+            assertTrue(seen.contains(fastId.toString()));
+        } finally {
+            releaseSlow.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rowsWrittenBeforeTheSyncColumnsAreBackfilled() throws Exception {
+        UserEntity aluno = user(RoleEnum.ALUNO);
+        UserEntity professor = user(RoleEnum.PROFESSOR);
+        UUID conversationId = conversation(aluno, professor);
+        UUID legacyId = chatService.saveTextMessage(aluno.getUserId(), conversationId, "antiga", MessageTypeEnum.TEXT).getId();
+        String token = sync(professor, null).get("token").asText();
+
+        // como se tivessem sido gravadas antes do sync existir
+        jdbcTemplate.update("UPDATE tb_message SET seq = NULL WHERE id = ?", legacyId);
+        jdbcTemplate.update("UPDATE tb_conversation_participants SET change_seq = NULL WHERE conversation_id = ?", conversationId);
+        assertFalse(messageIds(sync(professor, null)).contains(legacyId.toString()));
+
+        chatSyncService.init();
+
+        assertTrue(messageIds(sync(professor, null)).contains(legacyId.toString()));
+        assertTrue(messageIds(sync(professor, token)).contains(legacyId.toString()));
+    }
+
+    @Test
+    void ackWritesOnlyTheAckersRowAndStillReachesTheOthers() throws Exception {
+        UserEntity aluno = user(RoleEnum.ALUNO);
+        UserEntity professor = user(RoleEnum.PROFESSOR);
+        UUID conversationId = conversation(aluno, professor);
+        UUID messageId = chatService.saveTextMessage(aluno.getUserId(), conversationId, "oi", MessageTypeEnum.TEXT).getId();
+        String token = sync(aluno, null).get("token").asText();
+        Long alunoChangeSeq = changeSeq(conversationId, aluno);
+
+        assertNotNull(chatService.markRead(professor.getUserId(), conversationId, messageId));
+
+        // a linha do aluno não foi reescrita, mas o recibo chega no sync dele
+        assertEquals(alunoChangeSeq, changeSeq(conversationId, aluno));
+        JsonNode receipts = sync(aluno, token).get("receipts");
+        boolean read = false;
+        for (JsonNode r : receipts) {
+            read |= r.get("userId").asText().equals(professor.getUserId().toString())
+                    && r.get("status").asText().equals("READ");
+        }
+        assertTrue(read, "recibo de leitura não veio no sync: " + receipts);
+
+        // ACK repetido: watermark não anda, nada é escrito
+        Long watermarkSeq = jdbcTemplate.queryForObject(
+                "SELECT watermark_seq FROM tb_conversation_participants WHERE conversation_id = ? AND user_id = ?",
+                Long.class, conversationId, professor.getUserId());
+        assertNull(chatService.markRead(professor.getUserId(), conversationId, messageId));
+        assertNull(chatService.markDelivered(professor.getUserId(), conversationId, messageId));
+        assertEquals(watermarkSeq, jdbcTemplate.queryForObject(
+                "SELECT watermark_seq FROM tb_conversation_participants WHERE conversation_id = ? AND user_id = ?",
+                Long.class, conversationId, professor.getUserId()));
+    }
+
+    private Long changeSeq(UUID conversationId, UserEntity user) {
+        return jdbcTemplate.queryForObject(
+                "SELECT change_seq FROM tb_conversation_participants WHERE conversation_id = ? AND user_id = ?",
+                Long.class, conversationId, user.getUserId());
+    }
+
+    private JsonNode sync(UserEntity user, String token) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        chatSyncService.writeSync(user.getUserId(), token, out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static Set<String> messageIds(JsonNode sync) {
+        Set<String> ids = new HashSet<>();
+        sync.get("messages").forEach(m -> ids.add(m.get("id").asText()));
+        return ids;
+    }
+
+    // findOrCreateOneToOne usa INSERT ... ON CONFLICT (só PostgreSQL): monta a conversa direto
+    private UUID conversation(UserEntity a, UserEntity b) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            ConversationEntity c = new ConversationEntity();
+            c.setPairKey(ConversationEntity.pairKey(a.getUserId(), b.getUserId()));
+            c = conversationRepository.save(c);
+            for (UserEntity u : new UserEntity[]{a, b}) {
+                ConversationParticipantEntity p = new ConversationParticipantEntity();
+                p.setId(new ConversationParticipantId(c.getIdConversation(), u.getUserId()));
+                p.setConversation(c);
+                p.setUser(u);
+                participantRepository.save(p);
+            }
+            participantRepository.touchConversation(c.getIdConversation(), changeClock.stamp());
+            return c.getIdConversation();
+        });
+    }
+
+    private UserEntity user(RoleEnum role) {
+        UserEntity user = new UserEntity();
+        String name = role.name().toLowerCase() + "-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(role);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,144 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.util.MicroBenchmark;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessingServiceTest {
+
+    @TempDir
+    static Path dir;
+
+    private static Path photo; // 4000x3000, como uma foto de celular
+
+    @BeforeAll
+    static void createPhoto() throws IOException {
+        photo = jpeg("photo.jpg", 4000, 3000);
+    }
+
+    @Test
+    void readsLargePhotoAlreadyScaledToFit() throws IOException {
+        BufferedImage img = service(64, 50_000_000L).readScaled(photo, 512);
+        assertEquals(512, img.getWidth());
+        assertEquals(384, img.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, img.getType());
+    }
+
+    @Test
+    void neverUpscales() throws IOException {
+        BufferedImage img = service(64, 50_000_000L).readScaled(jpeg("small.jpg", 100, 60), 512);
+        assertEquals(100, img.getWidth());
+        assertEquals(60, img.getHeight());
+    }
+
+    @Test
+    void downscaleKeepsAspectRatioAndHitsTheTargetExactly() {
+        ImageProcessingService service = service(64, 50_000_000L);
+        BufferedImage img = service.downscale(new BufferedImage(1000, 333, BufferedImage.TYPE_INT_ARGB), 128);
+        assertEquals(128, img.getWidth());
+        assertEquals(43, img.getHeight());
+        assertEquals(1, service.downscale(new BufferedImage(5000, 1, BufferedImage.TYPE_INT_RGB), 48).getHeight());
+    }
+
+    @Test
+    void rejectsDecompressionBombsFromTheHeader() {
+        assertThrows(IllegalArgumentException.class, () -> service(64, 1_000_000L).readScaled(photo, 512));
+    }
+
+    @Test
+    void returnsNullForUnknownFormats() throws IOException {
+        Path text = Files.writeString(dir.resolve("x.png"), "não é imagem");
+        assertNull(service(64, 50_000_000L).readScaled(text, 512));
+    }
+
+    @Test
+    void waitsForMemoryBudgetAndGivesUpAfterTheTimeout() throws IOException {
+        ImageProcessingService service = service(1, 50_000_000L);
+        ReflectionTestUtils.setField(service, "acquireTimeoutMs", 100L);
+        Semaphore budget = (Semaphore) ReflectionTestUtils.getField(service, "budget");
+
+        int all = budget.availablePermits();
+        budget.acquireUninterruptibly(all); // outra decodificação ocupando tudo
+        try {
+            assertThrows(IOException.class, () -> service.readScaled(photo, 512));
+        } finally {
+            budget.release(all);
+        }
+        assertNotNull(service.readScaled(photo, 512));
+        assertEquals(all, budget.availablePermits(), "reserva devolvida depois da leitura");
+    }
+
+    @Test
+    void subsampledDecodeMatchesFullDecodeDimensions() throws IOException {
+        ImageProcessingService service = service(64, 50_000_000L);
+
+        BufferedImage full = service.downscale(ImageIO.read(photo.toFile()), 512);
+        BufferedImage scaled = service.readScaled(photo, 512);
+
+        assertEquals(full.getWidth(), scaled.getWidth());
+        assertEquals(full.getHeight(), scaled.getHeight());
+    }
+
+    // Harness: leitura subamostrada na fonte contra decodificar a foto inteira e reduzir depois.
+    // Depende do relógio, então só roda com -Dbench=true
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void subsampledDecodeBeatsFullDecode() {
+        ImageProcessingService service = service(64, 50_000_000L);
+
+        double full = MicroBenchmark.nsPerOp("imagem: decodifica inteira + reduz", 2, 5, 2, () -> {
+            try {
+                return service.downscale(ImageIO.read(photo.toFile()), 512);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        double scaled = MicroBenchmark.nsPerOp("imagem: readScaled (subamostrada)", 2, 5, 2, () -> {
+            try {
+                return service.readScaled(photo, 512);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertTrue(scaled < full, "readScaled " + scaled + " ns/op vs inteira " + full + " ns/op");
+    }
+
+    private static ImageProcessingService service(int memoryBudgetMb, long maxPixels) {
+        ImageProcessingService service = new ImageProcessingService();
+        ReflectionTestUtils.setField(service, "memoryBudgetMb", memoryBudgetMb);
+        ReflectionTestUtils.setField(service, "maxPixels", maxPixels);
+        ReflectionTestUtils.setField(service, "acquireTimeoutMs", 30_000L);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    // Gradiente com ruído: comprime como foto, não como área lisa
+    private static Path jpeg(String name, int w, int h) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, w, h, Color.BLUE));
+        g.fillRect(0, 0, w, h);
+        g.dispose();
+        Random random = new Random(42);
+        for (int i = 0; i < w * h / 20; i++) img.setRGB(random.nextInt(w), random.nextInt(h), random.nextInt());
+        Path file = dir.resolve(name);
+        ImageIO.write(img, "jpg", file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,92 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.AvatarStatusEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:avatar;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media",
+        "app.media.avatar.cleanup-grace-ms=0"
+})
+class UserAvatarServiceTest {
+
+    @Autowired
+    private UserAvatarService userAvatarService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Test
+    void failedUploadKeepsThePreviousAvatarAndItsFiles() throws Exception {
+        UserEntity user = user();
+        userAvatarService.uploadAvatar(user.getUserId(), png());
+        UserEntity ready = await(user.getUserId(), AvatarStatusEnum.READY);
+        String previousHash = ready.getAvatarHash();
+        String previousUrl = ready.getProfileImageUrl();
+
+        // Tipo aceito, conteúdo que não decodifica: o processamento falha no pool
+        userAvatarService.uploadAvatar(user.getUserId(),
+                new MockMultipartFile("file", "x.png", "image/png", ("lixo " + UUID.randomUUID()).getBytes()));
+        UserEntity failed = await(user.getUserId(), AvatarStatusEnum.FAILED);
+
+        assertEquals(previousUrl, failed.getProfileImageUrl());
+        assertEquals(previousHash, failed.getAvatarHash());
+
+        userAvatarService.cleanupStaleFiles(); // carência 0: só sobra o que é referenciado
+        assertTrue(mediaStore.exists(userAvatarService.variantKey(previousHash, 128)), "foto anterior apagada pela limpeza");
+    }
+
+    @Test
+    void extractsHashFromVariantUrls() {
+        String hash = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+        assertEquals(hash, UserAvatarService.hashFromUrl("/media/avatars/" + hash + "/512.jpg"));
+        assertEquals(hash, UserAvatarService.hashFromUrl("https://cdn.example/avatars/" + hash + "/48.jpg"));
+        assertNull(UserAvatarService.hashFromUrl("/media/" + UUID.randomUUID() + "/avatar_1700000000000.jpg"));
+        assertNull(UserAvatarService.hashFromUrl("/media/avatars/../512.jpg"));
+    }
+
+    private UserEntity await(UUID userId, AvatarStatusEnum status) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            UserEntity u = userRepository.findById(userId).orElseThrow();
+            if (u.getAvatarStatus() == status) return u;
+            Thread.sleep(50);
+        }
+        fail("avatar não chegou a " + status);
+        return null;
+    }
+
+    private static MockMultipartFile png() throws Exception {
+        BufferedImage image = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, (int) (Math.random() * 0xFFFFFF)); // conteúdo (e hash) novo a cada execução
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new MockMultipartFile("file", "a.png", "image/png", out.toByteArray());
+    }
+
+    private UserEntity user() {
+        UserEntity user = new UserEntity();
+        String name = "aluno-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(RoleEnum.ALUNO);
+        return userRepository.save(user);
+    }
+}
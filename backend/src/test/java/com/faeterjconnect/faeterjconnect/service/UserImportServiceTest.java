@@ -0,0 +1,109 @@
+package com.faeterjconnect.faeterjconnect.service;
+
+import com.faeterjconnect.faeterjconnect.dto.UserImportResponse;
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.AuthenticatedUser;
+import com.faeterjconnect.faeterjconnect.security.TokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:userimport;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+        "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media",
+        "app.security.bcrypt.strength=4", "app.user-import.max-rows=3", "app.user-import.chunk-size=2"
+})
+class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TokenService tokenService;
+
+    private AuthenticatedUser secretaria;
+
+    @BeforeEach
+    void login() {
+        UserEntity user = new UserEntity();
+        String name = "sec-" + UUID.randomUUID();
+        user.setUsername(name.substring(0, 12));
+        user.setEmail(name + "@faeterj.test");
+        user.setPassword("x");
+        user.setRoleEnum(RoleEnum.SECRETARIA);
+        secretaria = tokenService.authenticate(tokenService.generateToken(userRepository.save(user)));
+    }
+
+    @Test
+    void firstRowWithAnEmailIsDataNotHeader() throws Exception {
+        String email = unique("joao");
+        UserImportResponse result = run("joao," + email + ",segredo1,MANHA\n");
+
+        assertEquals(1, result.created());
+        assertEquals(1, result.rows().get(0).line());
+        assertTrue(userRepository.findByEmail(email).isPresent());
+    }
+
+    @Test
+    void headerIsSkippedOnlyWithTheExactColumnNames() throws Exception {
+        UserImportResponse semicolon = run("\uFEFFUsername;Email;Password;Turno\nana;" + unique("ana") + ";segredo1;NOITE\n");
+        assertEquals(1, semicolon.total());
+        assertEquals(UserImportResponse.Status.CREATED, semicolon.rows().get(0).status());
+
+        UserImportResponse withoutTurno = run("username,email,password\nbia," + unique("bia") + ",segredo1\n");
+        assertEquals(1, withoutTurno.total());
+
+        // parecido com cabeçalho, mas não é: vira linha inválida em vez de sumir
+        UserImportResponse lookalike = run("nome,email,senha,turno\n");
+        assertEquals(1, lookalike.total());
+        assertEquals(UserImportResponse.Status.INVALID, lookalike.rows().get(0).status());
+    }
+
+    @Test
+    void rejectsFilesOverMaxRowsWithoutCreatingAnyone() {
+        StringBuilder csv = new StringBuilder("username,email,password,turno\n");
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            emails.add(unique("a" + i));
+            csv.append("aluno").append(i).append(',').append(emails.get(i)).append(",segredo1,\n");
+        }
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> run(csv.toString()));
+        assertTrue(e.getMessage().contains("3"));
+        // o primeiro bloco (2 linhas) já caberia inteiro: nem ele pode ter sido gravado
+        for (String email : emails) assertTrue(userRepository.findByEmail(email).isEmpty(), email);
+    }
+
+    @Test
+    void rowsAreWrittenInChunks() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 3; i++) csv.append("aluno").append(i).append(',').append(unique("c" + i)).append(",segredo1,\n");
+
+        UserImportResponse result = run(csv.toString());
+        assertEquals(3, result.created());
+        assertEquals(List.of(1, 2, 3), result.rows().stream().map(UserImportResponse.Row::line).toList());
+    }
+
+    private UserImportResponse run(String csv) throws Exception {
+        return userImportService.importStudents(secretaria, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String unique(String name) {
+        return name + "." + UUID.randomUUID().toString().substring(0, 8) + "@email.com";
+    }
+}
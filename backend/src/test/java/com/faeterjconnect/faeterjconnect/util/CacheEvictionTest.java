@@ -0,0 +1,61 @@
+package com.faeterjconnect.faeterjconnect.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheEvictionTest {
+
+    @Test
+    void fullCacheOfLiveEntriesStillAdmitsNewOnes() {
+        Map<Integer, String> map = new ConcurrentHashMap<>();
+        CacheEviction eviction = new CacheEviction(60_000);
+        int max = 1000;
+
+        for (int i = 0; i < 10 * max; i++) {
+            if (map.size() >= max) eviction.makeRoom(map, max, () -> {});
+            map.put(i, "v");
+            assertTrue(map.size() <= max);
+            assertTrue(map.containsKey(i), "entrada nova recusada");
+        }
+    }
+
+    @Test
+    void expiredSweepRunsAtMostOncePerInterval() {
+        Map<Integer, String> map = new ConcurrentHashMap<>();
+        CacheEviction eviction = new CacheEviction(60_000);
+        AtomicInteger sweeps = new AtomicInteger();
+        int max = 100;
+
+        for (int i = 0; i < 5000; i++) {
+            if (map.size() >= max) eviction.makeRoom(map, max, sweeps::incrementAndGet);
+            map.put(i, "v");
+        }
+        assertEquals(1, sweeps.get());
+    }
+
+    @Test
+    void sweepThatFreesSpaceAvoidsEvictingLiveEntries() {
+        Map<Integer, String> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10; i++) map.put(i, i < 5 ? "expirada" : "válida");
+
+        new CacheEviction(0).makeRoom(map, 10, () -> map.values().removeIf("expirada"::equals));
+
+        assertEquals(5, map.size());
+        assertFalse(map.containsValue("expirada"));
+    }
+
+    @Test
+    void batchIsAFractionOfTheCache() {
+        Map<Integer, String> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 1600; i++) map.put(i, "v");
+
+        new CacheEviction(60_000).makeRoom(map, 1600, () -> {});
+        // primeira chamada varre (nada expirado) e então tira o lote
+        assertEquals(1500, map.size());
+    }
+}
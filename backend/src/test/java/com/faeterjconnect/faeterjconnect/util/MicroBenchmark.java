@@ -0,0 +1,45 @@
+package com.faeterjconnect.faeterjconnect.util;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Medição no estilo do JMH, sem o JMH: rodadas de aquecimento (JIT), depois rodadas medidas,
+ * e a mediana do tempo por operação. O resultado de cada operação vai para um "sink" que a JVM
+ * não consegue provar morto, então o trabalho não é eliminado.
+ *
+ * Serve para comparar dois caminhos na mesma JVM (ex.: com e sem cache), não para números absolutos.
+ * Comparações de tempo são sensíveis à máquina (CI compartilhado, GC), então os testes que usam
+ * este harness ficam atrás de {@code @EnabledIfSystemProperty(named = "bench", matches = "true")}:
+ * {@code mvn test -Dbench=true}.
+ */
+public final class MicroBenchmark {
+
+    private static volatile int sink;
+
+    private MicroBenchmark() {
+    }
+
+    /** Mediana em nanos por operação. */
+    public static double nsPerOp(String name, int warmupRounds, int rounds, int opsPerRound, Supplier<?> op) {
+        for (int r = 0; r < warmupRounds; r++) round(opsPerRound, op);
+        double[] samples = new double[rounds];
+        for (int r = 0; r < rounds; r++) samples[r] = (double) round(opsPerRound, op) / opsPerRound;
+        Arrays.sort(samples);
+        double median = samples[rounds / 2];
+        System.out.printf("[BENCH] %-40s %,12.0f ns/op  (%d x %d ops)%n", name, median, rounds, opsPerRound);
+        return median;
+    }
+
+    private static long round(int ops, Supplier<?> op) {
+        int acc = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            Object result = op.get();
+            acc += result == null ? 0 : System.identityHashCode(result);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += acc;
+        return elapsed;
+    }
+}
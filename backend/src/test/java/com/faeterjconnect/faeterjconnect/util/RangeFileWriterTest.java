@@ -0,0 +1,89 @@
+package com.faeterjconnect.faeterjconnect.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeFileWriterTest {
+
+    @Test
+    void parsesSingleRanges() {
+        assertArrayEquals(new long[]{0, 9}, RangeFileWriter.parseRange("bytes=0-9", 100));
+        assertArrayEquals(new long[]{10, 99}, RangeFileWriter.parseRange("bytes=10-", 100));
+        assertArrayEquals(new long[]{90, 99}, RangeFileWriter.parseRange("bytes=-10", 100));
+        assertArrayEquals(new long[]{0, 99}, RangeFileWriter.parseRange("bytes=-500", 100));
+        assertArrayEquals(new long[]{50, 99}, RangeFileWriter.parseRange("bytes=50-500", 100)); // fim cortado no tamanho
+        assertArrayEquals(new long[]{5, 5}, RangeFileWriter.parseRange("bytes= 5 - 5 ", 100));
+    }
+
+    @Test
+    void unsatisfiableRangesReturnEmpty() {
+        assertEquals(0, RangeFileWriter.parseRange("bytes=100-", 100).length);
+        assertEquals(0, RangeFileWriter.parseRange("bytes=200-300", 100).length);
+        assertEquals(0, RangeFileWriter.parseRange("bytes=-0", 100).length);
+        assertEquals(0, RangeFileWriter.parseRange("bytes=-5", 0).length);
+    }
+
+    @Test
+    void invalidOrMultipleRangesAreIgnored() {
+        assertNull(RangeFileWriter.parseRange("items=0-9", 100));
+        assertNull(RangeFileWriter.parseRange("bytes=0-1,5-9", 100));
+        assertNull(RangeFileWriter.parseRange("bytes=9-0", 100));
+        assertNull(RangeFileWriter.parseRange("bytes=-", 100));
+        assertNull(RangeFileWriter.parseRange("bytes=5", 100));
+        assertNull(RangeFileWriter.parseRange("bytes=a-b", 100));
+    }
+
+    @Test
+    void matchesStrongWeakAndWildcardEtags() {
+        assertTrue(RangeFileWriter.matchesEtag("\"abc\"", "\"abc\""));
+        assertTrue(RangeFileWriter.matchesEtag("W/\"abc\"", "\"abc\""));
+        assertTrue(RangeFileWriter.matchesEtag("\"x\", \"abc\"", "\"abc\""));
+        assertTrue(RangeFileWriter.matchesEtag("*", "\"abc\""));
+        assertFalse(RangeFileWriter.matchesEtag("\"abd\"", "\"abc\""));
+        assertFalse(RangeFileWriter.matchesEtag(null, "\"abc\""));
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tomcatSendfileGetsTheRangeWithExclusiveEnd() throws Exception {
+        Path file = Files.writeString(dir.resolve("f.bin"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/f");
+        request.setAttribute(RangeFileWriter.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        RangeFileWriter.write(request, response, file, "application/octet-stream", "\"e\"", "no-cache");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute(RangeFileWriter.SENDFILE_FILENAME));
+        assertEquals(2L, request.getAttribute(RangeFileWriter.SENDFILE_START));
+        assertEquals(6L, request.getAttribute(RangeFileWriter.SENDFILE_END));
+        assertEquals(0, response.getContentAsByteArray().length, "corpo fica para o conector");
+    }
+
+    @Test
+    void withoutSendfileTheBodyIsCopied() throws Exception {
+        Path file = Files.writeString(dir.resolve("f.bin"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/f");
+        request.addHeader("Range", "bytes=-3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        RangeFileWriter.write(request, response, file, "application/octet-stream", "\"e\"", "no-cache");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("789", new String(response.getContentAsByteArray(), StandardCharsets.US_ASCII));
+        assertNull(request.getAttribute(RangeFileWriter.SENDFILE_FILENAME));
+    }
+}
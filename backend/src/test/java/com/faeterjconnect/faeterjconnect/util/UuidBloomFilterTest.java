@@ -0,0 +1,84 @@
+package com.faeterjconnect.faeterjconnect.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidBloomFilterTest {
+
+    @Test
+    void neverReportsAnAddedIdAsMissing() {
+        UuidBloomFilter filter = new UuidBloomFilter(10_000, 0.01);
+        List<UUID> added = ids(10_000);
+        added.forEach(filter::add);
+        for (UUID id : added) assertTrue(filter.mightContain(id));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTargetAtCapacity() {
+        UuidBloomFilter filter = new UuidBloomFilter(10_000, 0.01);
+        ids(10_000).forEach(filter::add);
+
+        int hits = 0, probes = 100_000;
+        for (UUID id : ids(probes)) {
+            if (filter.mightContain(id)) hits++;
+        }
+        double rate = (double) hits / probes;
+        assertTrue(rate < 0.02, "taxa de falso positivo " + rate);
+    }
+
+    @Test
+    void sequentialLookingIdsAreSpreadToo() {
+        // UUIDs quase iguais (só um contador numa das metades muda) ainda caem em bits diferentes
+        assertTrue(sequentialFalsePositives(false) < 200);
+        assertTrue(sequentialFalsePositives(true) < 200);
+    }
+
+    private static int sequentialFalsePositives(boolean counterInHighBits) {
+        UuidBloomFilter filter = new UuidBloomFilter(1_000, 0.01);
+        for (long i = 0; i < 1_000; i++) filter.add(counterInHighBits ? new UUID(i, 42) : new UUID(42, i));
+
+        int hits = 0;
+        for (long i = 1_000; i < 11_000; i++) {
+            if (filter.mightContain(counterInHighBits ? new UUID(i, 42) : new UUID(42, i))) hits++;
+        }
+        return hits;
+    }
+
+    @Test
+    void sizesBitsFromCapacityAndRate() {
+        assertEquals(64, new UuidBloomFilter(0, 0.5).bitCount());
+        long bits = new UuidBloomFilter(10_000, 0.01).bitCount(); // ~9.59 bits por elemento
+        assertTrue(bits >= 95_800 && bits <= 96_000, "bits: " + bits);
+        assertEquals(0, bits % 64);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        UuidBloomFilter filter = new UuidBloomFilter(40_000, 0.01);
+        List<List<UUID>> perThread = new ArrayList<>();
+        for (int t = 0; t < 4; t++) perThread.add(ids(10_000));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        perThread.forEach(ids -> pool.execute(() -> ids.forEach(filter::add)));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (List<UUID> ids : perThread) {
+            for (UUID id : ids) assertTrue(filter.mightContain(id));
+        }
+    }
+
+    private static List<UUID> ids(int n) {
+        List<UUID> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) ids.add(UUID.randomUUID());
+        return ids;
+    }
+}
@@ -0,0 +1,137 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Handshake de verdade contra o Tomcat embutido: o que vale é o Sec-WebSocket-Extensions
+ * devolvido, não a lista filtrada pelo Spring.
+ */
+class DeflateHandshakeTest {
+
+    private static final String H2 = "spring.datasource.url=jdbc:h2:mem:deflate;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            H2, "spring.datasource.username=sa", "spring.datasource.password=",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+            "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media",
+            "app.ws.deflate.enabled=true", "app.ws.deflate.no-context-takeover=true"
+    })
+    class NoContextTakeover {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void serverAnswersWithoutContextTakeoverInBothDirections() throws Exception {
+            Map<String, String> headers = handshake(port, "permessage-deflate; client_max_window_bits");
+
+            assertEquals("101", headers.get(":status"));
+            String ext = headers.get("sec-websocket-extensions");
+            assertNotNull(ext, "deflate deveria ser negociado");
+            assertTrue(ext.startsWith("permessage-deflate"), ext);
+            assertTrue(ext.contains("server_no_context_takeover"), ext);
+            assertTrue(ext.contains("client_no_context_takeover"), ext);
+        }
+
+        @Test
+        void parameterAlreadyOfferedByTheClientIsNotRepeated() throws Exception {
+            Map<String, String> headers = handshake(port, "permessage-deflate; client_no_context_takeover");
+
+            assertEquals("101", headers.get(":status"));
+            String ext = headers.get("sec-websocket-extensions");
+            assertNotNull(ext);
+            assertEquals(ext.indexOf("client_no_context_takeover"), ext.lastIndexOf("client_no_context_takeover"), ext);
+            assertTrue(ext.contains("server_no_context_takeover"), ext);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            H2, "spring.datasource.username=sa", "spring.datasource.password=",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+            "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media",
+            "app.ws.deflate.enabled=true", "app.ws.deflate.no-context-takeover=false"
+    })
+    class ContextTakeover {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void serverKeepsTheSlidingWindow() throws Exception {
+            Map<String, String> headers = handshake(port, "permessage-deflate");
+
+            assertEquals("101", headers.get(":status"));
+            String ext = headers.get("sec-websocket-extensions");
+            assertNotNull(ext);
+            assertTrue(ext.startsWith("permessage-deflate"), ext);
+            assertFalse(ext.contains("no_context_takeover"), ext);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            H2, "spring.datasource.username=sa", "spring.datasource.password=",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+            "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media",
+            "app.ws.deflate.enabled=false"
+    })
+    class Disabled {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void deflateIsNotNegotiated() throws Exception {
+            Map<String, String> headers = handshake(port, "permessage-deflate; client_max_window_bits");
+
+            assertEquals("101", headers.get(":status"));
+            assertNull(headers.get("sec-websocket-extensions"));
+        }
+    }
+
+    // Upgrade cru (sem cliente WebSocket no meio) para ler os cabeçalhos exatamente como o Tomcat mandou
+    static Map<String, String> handshake(int port, String extensions) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(10_000);
+            String request = "GET /ws HTTP/1.1\r\n"
+                    + "Host: localhost:" + port + "\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                    + "Sec-WebSocket-Version: 13\r\n"
+                    + "Sec-WebSocket-Extensions: " + extensions + "\r\n"
+                    + "\r\n";
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Map<String, String> headers = new LinkedHashMap<>();
+            String status = in.readLine();
+            headers.put(":status", status.split(" ")[1]);
+            for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+                int colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+            }
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
+import com.faeterjconnect.faeterjconnect.model.enums.DeliveryStatusEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import com.faeterjconnect.faeterjconnect.service.ChatPublisher;
+import com.faeterjconnect.faeterjconnect.service.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Dois nós (dois relays, cada um com seu "broker local") no mesmo PostgreSQL, falando por
+ * LISTEN/NOTIFY de verdade. Pulado quando não há Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PgNotifyClusterPostgresTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    // canal próprio por teste: conexões LISTEN de testes anteriores ainda podem estar fechando
+    private final String channel = "test_" + UUID.randomUUID().toString().replace("-", "");
+    private Node a;
+    private Node b;
+
+    @BeforeEach
+    void setUp() {
+        a = new Node();
+        b = new Node();
+        // espera os dois LISTEN estarem ativos antes de publicar
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (listeners(jdbc) < 2 && System.currentTimeMillis() < deadline) sleep(20);
+        assertEquals(2, listeners(jdbc));
+    }
+
+    @AfterEach
+    void tearDown() {
+        a.relay.stop();
+        b.relay.stop();
+    }
+
+    @Test
+    void eventFromOneNodeReachesTheOtherAndIsNotEchoedBack() {
+        UUID conv = UUID.randomUUID();
+        byte[] body = "{\"content\":\"oi\"}".getBytes(StandardCharsets.UTF_8);
+
+        a.relay.relay(conv, null, UUID.randomUUID(), body);
+
+        verify(b.publisher, timeout(5000)).deliverLocal(eq(conv), eq(body));
+        sleep(300);
+        verify(a.publisher, never()).deliverLocal(any(), any());
+    }
+
+    @Test
+    void messageTooBigForNotifyIsFetchedByIdOnTheOtherNode() throws Exception {
+        UUID conv = UUID.randomUUID();
+        UUID msg = UUID.randomUUID();
+        byte[] noise = new byte[12_000];
+        new Random(3).nextBytes(noise); // não comprime abaixo de 8000 bytes
+        String content = Base64.getEncoder().encodeToString(noise);
+        MessageResponse response = new MessageResponse(msg, conv, UUID.randomUUID(), content,
+                MessageTypeEnum.TEXT, null, DeliveryStatusEnum.SENT, Instant.parse("2026-01-01T00:00:00Z"));
+        when(b.chatService.getMessageResponse(msg)).thenReturn(response);
+
+        a.relay.relay(conv, null, msg, objectMapper.writeValueAsBytes(response));
+
+        verify(b.publisher, timeout(5000)).deliverLocal(eq(conv), eq(objectMapper.writeValueAsBytes(response)));
+        verify(b.chatService).getMessageResponse(msg);
+    }
+
+    @Test
+    void listenerReconnectsAfterItsBackendIsKilled() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource());
+        jdbc.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query = ?", "LISTEN " + channel);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (listeners(jdbc) < 2 && System.currentTimeMillis() < deadline) sleep(20);
+
+        UUID conv = UUID.randomUUID();
+        byte[] body = "{\"depois\":true}".getBytes(StandardCharsets.UTF_8);
+        a.relay.relay(conv, null, null, body);
+
+        verify(b.publisher, timeout(5000)).deliverLocal(eq(conv), eq(body));
+    }
+
+    private int listeners(JdbcTemplate jdbc) {
+        Integer n = jdbc.queryForObject("SELECT count(*)::int FROM pg_stat_activity WHERE query = ?", Integer.class, "LISTEN " + channel);
+        return (n == null) ? 0 : n;
+    }
+
+    private static DriverManagerDataSource dataSource() {
+        return new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Node {
+        final ChatPublisher publisher = mock(ChatPublisher.class);
+        final ChatService chatService = mock(ChatService.class);
+        final PgNotifyClusterRelay relay = new PgNotifyClusterRelay();
+
+        Node() {
+            ReflectionTestUtils.setField(relay, "jdbcTemplate", new JdbcTemplate(dataSource()));
+            ReflectionTestUtils.setField(relay, "chatPublisher", publisher);
+            ReflectionTestUtils.setField(relay, "chatService", chatService);
+            ReflectionTestUtils.setField(relay, "objectMapper", objectMapper);
+            ReflectionTestUtils.setField(relay, "jdbcUrl", postgres.getJdbcUrl());
+            ReflectionTestUtils.setField(relay, "jdbcUser", postgres.getUsername());
+            ReflectionTestUtils.setField(relay, "jdbcPassword", postgres.getPassword());
+            ReflectionTestUtils.setField(relay, "channel", channel);
+            ReflectionTestUtils.setField(relay, "batchMs", 5L);
+            ReflectionTestUtils.setField(relay, "maxPayloadBytes", 7800);
+            ReflectionTestUtils.setField(relay, "compressThresholdBytes", 512);
+            ReflectionTestUtils.setField(relay, "reconnectInitialMs", 50L);
+            ReflectionTestUtils.setField(relay, "reconnectMaxMs", 1000L);
+            relay.start();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import com.faeterjconnect.faeterjconnect.dto.MessageResponse;
+import com.faeterjconnect.faeterjconnect.model.enums.DeliveryStatusEnum;
+import com.faeterjconnect.faeterjconnect.model.enums.MessageTypeEnum;
+import com.faeterjconnect.faeterjconnect.service.ChatPublisher;
+import com.faeterjconnect.faeterjconnect.service.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PgNotifyClusterRelayTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<String> notified = Collections.synchronizedList(new ArrayList<>());
+    private final ChatPublisher chatPublisher = mock(ChatPublisher.class);
+    private final ChatService chatService = mock(ChatService.class);
+    private final FakeSource source = new FakeSource();
+    private PgNotifyClusterRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        // Captura os payloads do pg_notify em vez de falar com o banco
+        JdbcTemplate jdbc = new JdbcTemplate() {
+            @Override
+            public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+                notified.add((String) args[1]);
+                return null;
+            }
+        };
+        relay = new PgNotifyClusterRelay();
+        ReflectionTestUtils.setField(relay, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(relay, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(relay, "channel", "faeterj_chat");
+        ReflectionTestUtils.setField(relay, "maxPayloadBytes", 7800);
+        ReflectionTestUtils.setField(relay, "compressThresholdBytes", 512);
+        ReflectionTestUtils.setField(relay, "batchMs", 5L);
+        ReflectionTestUtils.setField(relay, "reconnectInitialMs", 40L);
+        ReflectionTestUtils.setField(relay, "reconnectMaxMs", 30_000L);
+        ReflectionTestUtils.setField(relay, "chatPublisher", chatPublisher);
+        ReflectionTestUtils.setField(relay, "chatService", chatService);
+        relay.notificationSource = source;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ReflectionTestUtils.getField(relay, "listener") != null) relay.stop();
+    }
+
+    @Test
+    void compactKeepsOrderAndOnlyLastStatePerKey() {
+        UUID conv = UUID.randomUUID();
+        UUID msg = UUID.randomUUID();
+        List<PgNotifyClusterRelay.Pending> batch = List.of(
+                pending(conv, "typing:a", null, "t1"),
+                pending(conv, null, msg, "m1"),
+                pending(conv, "typing:a", null, "t2"),
+                pending(conv, null, null, "x"),
+                pending(conv, "receipt:b", null, "r1"));
+
+        List<PgNotifyClusterRelay.Entry> out = PgNotifyClusterRelay.compact(batch);
+
+        assertEquals(List.of("m1", "t2", "x", "r1"), out.stream().map(PgNotifyClusterRelay.Entry::b).toList());
+        assertEquals(msg, out.get(0).m());
+    }
+
+    @Test
+    void encodeDecodeRoundTripPlainAndCompressed() throws Exception {
+        UUID conv = UUID.randomUUID();
+        PgNotifyClusterRelay.Envelope small = new PgNotifyClusterRelay.Envelope("node",
+                List.of(new PgNotifyClusterRelay.Entry(conv, "{\"a\":1}", null)));
+        String plain = relay.encode(small);
+        assertFalse(plain.startsWith("z:"));
+        assertEquals(small, objectMapper.readValue(PgNotifyClusterRelay.decode(plain), PgNotifyClusterRelay.Envelope.class));
+
+        List<PgNotifyClusterRelay.Entry> many = new ArrayList<>();
+        for (int i = 0; i < 50; i++) many.add(new PgNotifyClusterRelay.Entry(conv, "{\"content\":\"mensagem " + i + "\"}", UUID.randomUUID()));
+        PgNotifyClusterRelay.Envelope big = new PgNotifyClusterRelay.Envelope("node", many);
+        String compressed = relay.encode(big);
+        assertTrue(compressed.startsWith("z:"));
+        assertTrue(compressed.length() < objectMapper.writeValueAsBytes(big).length);
+        assertEquals(big, objectMapper.readValue(PgNotifyClusterRelay.decode(compressed), PgNotifyClusterRelay.Envelope.class));
+    }
+
+    @Test
+    void sendSplitsBatchesToFitTheNotifyLimit() throws Exception {
+        ReflectionTestUtils.setField(relay, "maxPayloadBytes", 2000);
+        Random random = new Random(42);
+        List<PgNotifyClusterRelay.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            byte[] noise = new byte[200];
+            random.nextBytes(noise); // pouco compressível
+            entries.add(new PgNotifyClusterRelay.Entry(UUID.randomUUID(),
+                    "\"" + Base64.getEncoder().encodeToString(noise) + "\"", UUID.randomUUID()));
+        }
+
+        relay.send(entries);
+
+        assertTrue(notified.size() > 1);
+        List<PgNotifyClusterRelay.Entry> received = new ArrayList<>();
+        for (String wire : notified) {
+            assertTrue(wire.length() <= 2000, "payload com " + wire.length() + " bytes");
+            received.addAll(objectMapper.readValue(PgNotifyClusterRelay.decode(wire), PgNotifyClusterRelay.Envelope.class).e());
+        }
+        assertEquals(entries, received);
+    }
+
+    @Test
+    void oversizedMessageGoesByIdAndOversizedEventIsDropped() throws Exception {
+        ReflectionTestUtils.setField(relay, "maxPayloadBytes", 300);
+        byte[] noise = new byte[2000];
+        new Random(7).nextBytes(noise);
+        String huge = "\"" + Base64.getEncoder().encodeToString(noise) + "\"";
+        UUID conv = UUID.randomUUID();
+        UUID msg = UUID.randomUUID();
+
+        relay.send(List.of(new PgNotifyClusterRelay.Entry(conv, huge, msg)));
+        relay.send(List.of(new PgNotifyClusterRelay.Entry(conv, huge, null)));
+
+        assertEquals(1, notified.size());
+        PgNotifyClusterRelay.Envelope env = objectMapper.readValue(
+                PgNotifyClusterRelay.decode(notified.get(0)), PgNotifyClusterRelay.Envelope.class);
+        assertEquals(List.of(new PgNotifyClusterRelay.Entry(conv, null, msg)), env.e());
+    }
+
+    // ------------------------------------------------------------- recepção
+
+    @Test
+    void listensOnTheChannelAndRedeliversOtherNodesEventsLocally() throws Exception {
+        relay.start();
+        UUID conv1 = UUID.randomUUID();
+        UUID conv2 = UUID.randomUUID();
+        List<PgNotifyClusterRelay.Entry> many = new ArrayList<>();
+        many.add(new PgNotifyClusterRelay.Entry(conv1, "{\"n\":0}", null));
+        for (int i = 1; i < 50; i++) many.add(new PgNotifyClusterRelay.Entry(conv2, "{\"n\":" + i + "}", UUID.randomUUID()));
+
+        source.incoming.add(relay.encode(new PgNotifyClusterRelay.Envelope("outro-no", many)));
+
+        verify(chatPublisher, timeout(2000)).deliverLocal(eq(conv2), eq("{\"n\":49}".getBytes(StandardCharsets.UTF_8)));
+        verify(chatPublisher).deliverLocal(eq(conv1), eq("{\"n\":0}".getBytes(StandardCharsets.UTF_8)));
+        verify(chatPublisher, times(50)).deliverLocal(any(), any());
+        assertEquals(List.of("faeterj_chat"), source.channels);
+        verifyNoInteractions(chatService);
+    }
+
+    @Test
+    void ignoresItsOwnNotifications() throws Exception {
+        relay.start();
+        UUID own = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        relay.send(List.of(new PgNotifyClusterRelay.Entry(own, "{\"eco\":true}", null)));
+
+        // o NOTIFY que este nó mandou volta pelo LISTEN; o de outro nó vem logo atrás
+        source.incoming.add(notified.get(0));
+        source.incoming.add(relay.encode(new PgNotifyClusterRelay.Envelope("outro-no",
+                List.of(new PgNotifyClusterRelay.Entry(other, "{}", null)))));
+
+        verify(chatPublisher, timeout(2000)).deliverLocal(eq(other), any());
+        verify(chatPublisher, never()).deliverLocal(eq(own), any());
+    }
+
+    @Test
+    void messageSentByIdIsFetchedFromTheDatabase() throws Exception {
+        relay.start();
+        UUID conv = UUID.randomUUID();
+        UUID msg = UUID.randomUUID();
+        MessageResponse response = new MessageResponse(msg, conv, UUID.randomUUID(), "grande demais",
+                MessageTypeEnum.TEXT, null, DeliveryStatusEnum.SENT, Instant.parse("2026-01-01T00:00:00Z"));
+        when(chatService.getMessageResponse(msg)).thenReturn(response);
+
+        source.incoming.add(relay.encode(new PgNotifyClusterRelay.Envelope("outro-no",
+                List.of(new PgNotifyClusterRelay.Entry(conv, null, msg)))));
+
+        verify(chatPublisher, timeout(2000)).deliverLocal(eq(conv), eq(objectMapper.writeValueAsBytes(response)));
+        verify(chatService).getMessageResponse(msg);
+    }
+
+    @Test
+    void reconnectsWithExponentialBackoffAndKeepsDelivering() throws Exception {
+        source.failuresLeft.set(3);
+        relay.start();
+
+        UUID conv = UUID.randomUUID();
+        source.incoming.add(relay.encode(new PgNotifyClusterRelay.Envelope("outro-no",
+                List.of(new PgNotifyClusterRelay.Entry(conv, "{\"depois\":1}", null)))));
+        verify(chatPublisher, timeout(3000)).deliverLocal(eq(conv), any());
+
+        List<Long> attempts = List.copyOf(source.attemptNanos);
+        assertEquals(4, attempts.size());
+        // 40, 80, 160 ms entre as tentativas
+        for (int i = 1; i < 4; i++) {
+            long gapMs = TimeUnit.NANOSECONDS.toMillis(attempts.get(i) - attempts.get(i - 1));
+            assertTrue(gapMs >= 40L << (i - 1), "tentativa " + i + " depois de " + gapMs + "ms");
+        }
+
+        // conexão cai no meio do poll: fecha, volta a escutar e o próximo evento chega
+        source.dropConnection = true;
+        long deadline = System.currentTimeMillis() + 3000;
+        while (source.attemptNanos.size() < 5 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(1, source.closed.get());
+        assertEquals(List.of("faeterj_chat", "faeterj_chat"), source.channels);
+
+        UUID later = UUID.randomUUID();
+        source.incoming.add(relay.encode(new PgNotifyClusterRelay.Envelope("outro-no",
+                List.of(new PgNotifyClusterRelay.Entry(later, "{}", null)))));
+        verify(chatPublisher, timeout(3000)).deliverLocal(eq(later), any());
+    }
+
+    /** Fonte de notificações em memória: falha as primeiras conexões e entrega o que cair na fila. */
+    private static class FakeSource implements PgNotifyClusterRelay.NotificationSource {
+        final List<String> channels = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> attemptNanos = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        final BlockingQueue<String> incoming = new LinkedBlockingQueue<>();
+        volatile boolean dropConnection;
+
+        @Override
+        public PgNotifyClusterRelay.Listening listen(String channel) throws SQLException {
+            attemptNanos.add(System.nanoTime());
+            if (failuresLeft.getAndDecrement() > 0) throw new SQLException("Connection refused");
+            channels.add(channel);
+            return new PgNotifyClusterRelay.Listening() {
+                @Override
+                public List<String> poll(int timeoutMs) throws SQLException {
+                    if (dropConnection) {
+                        dropConnection = false;
+                        throw new SQLException("An I/O error occurred while sending to the backend");
+                    }
+                    try {
+                        String payload = incoming.poll(timeoutMs, TimeUnit.MILLISECONDS);
+                        return (payload == null) ? List.of() : List.of(payload);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return List.of();
+                    }
+                }
+
+                @Override
+                public void close() {
+                    closed.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    private static PgNotifyClusterRelay.Pending pending(UUID conv, String key, UUID messageId, String body) {
+        return new PgNotifyClusterRelay.Pending(conv, key, messageId, body.getBytes(StandardCharsets.UTF_8));
+    }
+}
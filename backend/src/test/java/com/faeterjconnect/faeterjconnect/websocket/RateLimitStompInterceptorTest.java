@@ -0,0 +1,87 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import com.faeterjconnect.faeterjconnect.security.RateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RateLimitStompInterceptorTest {
+
+    @Test
+    void dropsFramesOverTheLimitButWarnsOncePerInterval() throws InterruptedException {
+        SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        RateLimitStompInterceptor interceptor = interceptor(template, 300);
+
+        assertNotNull(interceptor.preSend(send("ana"), null));
+        for (int i = 0; i < 50; i++) assertNull(interceptor.preSend(send("ana"), null));
+        verify(template, times(1)).convertAndSendToUser(eq("ana"), eq(RateLimitStompInterceptor.ERRORS_QUEUE), any());
+
+        // outro usuário tem balde e aviso próprios
+        assertNotNull(interceptor.preSend(send("bia"), null));
+        assertNull(interceptor.preSend(send("bia"), null));
+        verify(template, times(1)).convertAndSendToUser(eq("bia"), eq(RateLimitStompInterceptor.ERRORS_QUEUE), any());
+
+        Thread.sleep(350);
+        assertNull(interceptor.preSend(send("ana"), null));
+        verify(template, times(2)).convertAndSendToUser(eq("ana"), eq(RateLimitStompInterceptor.ERRORS_QUEUE), any());
+    }
+
+    @Test
+    void sweepForgetsOldWarnings() throws InterruptedException {
+        RateLimitStompInterceptor interceptor = interceptor(mock(SimpMessagingTemplate.class), 50);
+        interceptor.preSend(send("ana"), null);
+        interceptor.preSend(send("ana"), null);
+
+        Thread.sleep(100);
+        interceptor.sweep();
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(interceptor, "warnings")).isEmpty());
+    }
+
+    @Test
+    void ignoresOtherCommandsAndDestinations() {
+        RateLimitStompInterceptor interceptor = interceptor(mock(SimpMessagingTemplate.class), 1000);
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(interceptor.preSend(frame(StompCommand.SEND, "/app/chat.typing", "ana"), null));
+            assertNotNull(interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/app/chat.send", "ana"), null));
+        }
+    }
+
+    private static RateLimitStompInterceptor interceptor(SimpMessagingTemplate template, long warnIntervalMs) {
+        RateLimiter limiter = new RateLimiter();
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "ruleSpecs", List.of("chat-send=SEND /app/chat.send 1/60"));
+        ReflectionTestUtils.setField(limiter, "maxKeysPerRule", 100);
+        ReflectionTestUtils.invokeMethod(limiter, "init");
+
+        RateLimitStompInterceptor interceptor = new RateLimitStompInterceptor();
+        ReflectionTestUtils.setField(interceptor, "rateLimiter", limiter);
+        ReflectionTestUtils.setField(interceptor, "messagingTemplate", template);
+        ReflectionTestUtils.setField(interceptor, "warnIntervalMs", warnIntervalMs);
+        return interceptor;
+    }
+
+    private static Message<byte[]> send(String user) {
+        return frame(StompCommand.SEND, "/app/chat.send", user);
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String destination, String user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setUser(() -> user);
+        accessor.setSessionId("s-" + user);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
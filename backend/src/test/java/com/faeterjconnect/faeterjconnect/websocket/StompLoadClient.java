@@ -0,0 +1,94 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente STOMP mínimo em cima do WebSocket do JDK (sem SockJS, sem o cliente do Spring), para
+ * o driver de carga. Um frame STOMP por mensagem WebSocket, como o Spring manda.
+ */
+final class StompLoadClient implements WebSocket.Listener {
+
+    record Frame(String command, Map<String, String> headers, String body) {}
+
+    private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+    private final StringBuilder partial = new StringBuilder();
+    private WebSocket ws;
+
+    private StompLoadClient() {
+    }
+
+    static StompLoadClient connect(HttpClient http, URI uri, String token) throws Exception {
+        StompLoadClient client = new StompLoadClient();
+        client.ws = http.newWebSocketBuilder().buildAsync(uri, client).get(10, TimeUnit.SECONDS);
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("accept-version", "1.2");
+        headers.put("host", uri.getHost());
+        headers.put("heart-beat", "0,0");
+        headers.put("Authorization", "Bearer " + token);
+        client.write("CONNECT", headers, "");
+        Frame connected = client.next(10_000);
+        if (connected == null || !connected.command().equals("CONNECTED")) {
+            throw new IllegalStateException("CONNECT recusado: " + connected);
+        }
+        return client;
+    }
+
+    void subscribe(String id, String destination) {
+        write("SUBSCRIBE", Map.of("id", id, "destination", destination), "");
+    }
+
+    void send(String destination, String json) {
+        write("SEND", Map.of("destination", destination, "content-type", "application/json"), json);
+    }
+
+    /** Próximo frame em até timeoutMs, ou null. */
+    Frame next(long timeoutMs) throws InterruptedException {
+        return frames.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    void close() {
+        ws.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+    }
+
+    private void write(String command, Map<String, String> headers, String body) {
+        StringBuilder frame = new StringBuilder(command).append('\n');
+        headers.forEach((k, v) -> frame.append(k).append(':').append(v).append('\n'));
+        frame.append('\n').append(body).append('\0');
+        ws.sendText(frame, true).join();
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String text = partial.toString();
+            partial.setLength(0);
+            if (!text.isBlank()) frames.add(parse(text)); // linha vazia = heartbeat
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private static Frame parse(String text) {
+        int end = text.indexOf('\0');
+        if (end >= 0) text = text.substring(0, end);
+        int bodyAt = text.indexOf("\n\n");
+        String head = (bodyAt < 0) ? text : text.substring(0, bodyAt);
+        String body = (bodyAt < 0) ? "" : text.substring(bodyAt + 2);
+        String[] lines = head.split("\n");
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) headers.putIfAbsent(lines[i].substring(0, colon), lines[i].substring(colon + 1));
+        }
+        return new Frame(lines[0].strip(), headers, body);
+    }
+}
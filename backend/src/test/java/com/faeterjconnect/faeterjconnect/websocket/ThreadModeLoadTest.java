@@ -0,0 +1,307 @@
+package com.faeterjconnect.faeterjconnect.websocket;
+
+import com.faeterjconnect.faeterjconnect.model.ConversationEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantEntity;
+import com.faeterjconnect.faeterjconnect.model.ConversationParticipantId;
+import com.faeterjconnect.faeterjconnect.model.UserEntity;
+import com.faeterjconnect.faeterjconnect.model.enums.RoleEnum;
+import com.faeterjconnect.faeterjconnect.repository.ConversationParticipantRepository;
+import com.faeterjconnect.faeterjconnect.repository.ConversationRepository;
+import com.faeterjconnect.faeterjconnect.repository.UserRepository;
+import com.faeterjconnect.faeterjconnect.security.TokenService;
+import com.faeterjconnect.faeterjconnect.service.ChatChangeClock;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Carga reprodutível: o mesmo cenário com o Tomcat e os canais STOMP em threads de plataforma
+ * e em virtual threads (spring.threads.virtual.enabled), na mesma máquina e na mesma JVM.
+ *
+ * Cada usuário simulado abre um WebSocket STOMP (cliente do JDK), assina a conversa 1:1 e manda
+ * mensagens em laço fechado (a próxima só depois de receber o eco da anterior pelo tópico); em
+ * paralelo faz GETs em /api/chat/inbox. Saída: vazão e p50/p99/máx de cada fase, linhas [BENCH].
+ *
+ *   mvn test -Dtest='ThreadModeLoadTest$PlatformThreads' -Dload=true [-Dload.users=500]
+ *       [-Dload.messages=20] [-Dload.requests=20] [-Dload.datasource.url=jdbc:postgresql://...]
+ *   mvn test -Dtest='ThreadModeLoadTest$VirtualThreads' -Dload=true ...
+ *
+ * Um modo por execução (JVM nova): rodando os dois juntos, o segundo herda o JIT aquecido.
+ *
+ * Com H2 em memória o JDBC não espera rede; para ver o efeito de I/O bloqueante de verdade,
+ * aponte load.datasource.url (e .username/.password) para um PostgreSQL.
+ */
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class ThreadModeLoadTest {
+
+    private static final String DATASOURCE =
+            "spring.datasource.url=${load.datasource.url:jdbc:h2:mem:load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH}";
+
+    private static final int USERS = Integer.getInteger("load.users", 200);
+    private static final int MESSAGES = Integer.getInteger("load.messages", 20);
+    private static final int REQUESTS = Integer.getInteger("load.requests", 20);
+    // Sob carga o eco pode demorar; o driver mede a demora em vez de falhar cedo
+    private static final long ECHO_TIMEOUT_MS = 30_000;
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            DATASOURCE, "spring.datasource.username=${load.datasource.username:sa}",
+            "spring.datasource.password=${load.datasource.password:}",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+            "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media",
+            "app.ratelimit.enabled=false",
+            "spring.threads.virtual.enabled=false"
+    })
+    class PlatformThreads extends Scenario {
+        @Test
+        void run() throws Exception {
+            runScenario("plataforma");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            DATASOURCE, "spring.datasource.username=${load.datasource.username:sa}",
+            "spring.datasource.password=${load.datasource.password:}",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "api.security.token.secret=test", "api.security.token.issuer=test", "api.security.token.expiration-hours=2",
+            "app.media.local-path=${java.io.tmpdir}/faeterj-test-media", "app.media.base-url=/media",
+            "app.ratelimit.enabled=false",
+            "spring.threads.virtual.enabled=true"
+    })
+    class VirtualThreads extends Scenario {
+        @Test
+        void run() throws Exception {
+            runScenario("virtual");
+        }
+    }
+
+    abstract static class Scenario {
+
+        @LocalServerPort
+        int port;
+        @Autowired
+        UserRepository userRepository;
+        @Autowired
+        ConversationRepository conversationRepository;
+        @Autowired
+        ConversationParticipantRepository participantRepository;
+        @Autowired
+        ChatChangeClock changeClock;
+        @Autowired
+        TokenService tokenService;
+        @Autowired
+        PlatformTransactionManager transactionManager;
+
+        private record SimUser(String token, UUID conversationId) {}
+
+        void runScenario(String mode) throws Exception {
+            List<SimUser> users = createUsers();
+            // Uma thread de cliente por usuário: o lado que mede não pode ser o gargalo
+            ExecutorService clients = Executors.newFixedThreadPool(USERS);
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            try {
+                warmUp(users, clients, http);
+                int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+                ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+
+                Result stomp = stompPhase(users, clients, http);
+                Result rest = httpPhase(users, clients, http);
+
+                int peak = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+                report(mode, "STOMP mensagem->eco", stomp);
+                report(mode, "GET /api/chat/inbox", rest);
+                System.out.printf("[BENCH] %-10s threads de plataforma: %d antes, pico %d (inclui %d do cliente)%n",
+                        mode, threadsBefore, peak, USERS);
+
+                assertEquals(0, stomp.errors(), "mensagens sem eco");
+                assertEquals(0, rest.errors(), "requisições com erro");
+            } finally {
+                clients.shutdownNow();
+            }
+        }
+
+        private List<SimUser> createUsers() {
+            List<SimUser> users = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i += 2) {
+                UserEntity aluno = user(RoleEnum.ALUNO);
+                UserEntity professor = user(RoleEnum.PROFESSOR);
+                UUID conversation = conversation(aluno, professor);
+                users.add(new SimUser(tokenService.generateToken(aluno), conversation));
+                if (users.size() < USERS) users.add(new SimUser(tokenService.generateToken(professor), conversation));
+            }
+            return users;
+        }
+
+        // Sem o INSERT ... ON CONFLICT do ChatService, que só roda no PostgreSQL
+        private UUID conversation(UserEntity a, UserEntity b) {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                ConversationEntity c = new ConversationEntity();
+                c.setPairKey(ConversationEntity.pairKey(a.getUserId(), b.getUserId()));
+                c = conversationRepository.save(c);
+                for (UserEntity u : new UserEntity[]{a, b}) {
+                    ConversationParticipantEntity p = new ConversationParticipantEntity();
+                    p.setId(new ConversationParticipantId(c.getIdConversation(), u.getUserId()));
+                    p.setConversation(c);
+                    p.setUser(u);
+                    participantRepository.save(p);
+                }
+                participantRepository.touchConversation(c.getIdConversation(), changeClock.stamp());
+                return c.getIdConversation();
+            });
+        }
+
+        private UserEntity user(RoleEnum role) {
+            UserEntity user = new UserEntity();
+            String name = role.name().toLowerCase() + "-" + UUID.randomUUID();
+            user.setUsername(name);
+            user.setEmail(name + "@faeterj.test");
+            user.setPassword("x");
+            user.setRoleEnum(role);
+            return userRepository.save(user);
+        }
+
+        // Um ciclo curto com poucos usuários para o JIT e os pools não entrarem na medida
+        private void warmUp(List<SimUser> users, ExecutorService clients, HttpClient http) throws Exception {
+            List<SimUser> few = users.subList(0, Math.min(20, users.size()));
+            runAll(few, clients, user -> {
+                StompLoadClient stomp = open(http, user);
+                try {
+                    for (int i = 0; i < 5; i++) roundTrip(stomp, user, "aquece");
+                    for (int i = 0; i < 5; i++) inbox(http, user);
+                } finally {
+                    stomp.close();
+                }
+                return List.of();
+            });
+        }
+
+        private Result stompPhase(List<SimUser> users, ExecutorService clients, HttpClient http) throws Exception {
+            AtomicInteger errors = new AtomicInteger();
+            long start = System.nanoTime();
+            List<Long> latencies = runAll(users, clients, user -> {
+                StompLoadClient stomp = open(http, user);
+                List<Long> mine = new ArrayList<>(MESSAGES);
+                try {
+                    for (int i = 0; i < MESSAGES; i++) {
+                        long t0 = System.nanoTime();
+                        if (roundTrip(stomp, user, "carga")) mine.add(System.nanoTime() - t0);
+                        else errors.incrementAndGet();
+                    }
+                } finally {
+                    stomp.close();
+                }
+                return mine;
+            });
+            return new Result(latencies, System.nanoTime() - start, errors.get());
+        }
+
+        private Result httpPhase(List<SimUser> users, ExecutorService clients, HttpClient http) throws Exception {
+            AtomicInteger errors = new AtomicInteger();
+            long start = System.nanoTime();
+            List<Long> latencies = runAll(users, clients, user -> {
+                List<Long> mine = new ArrayList<>(REQUESTS);
+                for (int i = 0; i < REQUESTS; i++) {
+                    long t0 = System.nanoTime();
+                    if (inbox(http, user)) mine.add(System.nanoTime() - t0);
+                    else errors.incrementAndGet();
+                }
+                return mine;
+            });
+            return new Result(latencies, System.nanoTime() - start, errors.get());
+        }
+
+        private StompLoadClient open(HttpClient http, SimUser user) throws Exception {
+            StompLoadClient stomp = StompLoadClient.connect(http, URI.create("ws://localhost:" + port + "/ws"), user.token());
+            stomp.subscribe("sub-0", "/topic/conversations/" + user.conversationId());
+            // A assinatura só vale depois de processada: manda até ver o próprio eco
+            for (int i = 0; i < 10; i++) {
+                if (roundTrip(stomp, user, "assina")) return stomp;
+            }
+            throw new IllegalStateException("assinatura sem eco");
+        }
+
+        // Manda uma mensagem e espera ela voltar pelo tópico da conversa
+        private static boolean roundTrip(StompLoadClient stomp, SimUser user, String tag) throws InterruptedException {
+            String nonce = tag + "-" + UUID.randomUUID();
+            stomp.send("/app/chat.send", "{\"conversationId\":\"" + user.conversationId()
+                    + "\",\"content\":\"" + nonce + "\",\"type\":\"TEXT\"}");
+            long deadline = System.currentTimeMillis() + ECHO_TIMEOUT_MS;
+            for (long left = ECHO_TIMEOUT_MS; left > 0; left = deadline - System.currentTimeMillis()) {
+                StompLoadClient.Frame frame = stomp.next(left);
+                if (frame == null) return false;
+                if (frame.command().equals("ERROR")) throw new IllegalStateException("ERROR: " + frame.headers());
+                if (frame.command().equals("MESSAGE") && frame.body().contains(nonce)) return true;
+            }
+            return false;
+        }
+
+        private boolean inbox(HttpClient http, SimUser user) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/chat/inbox"))
+                    .header("Authorization", "Bearer " + user.token())
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        }
+
+        private interface UserTask {
+            List<Long> run(SimUser user) throws Exception;
+        }
+
+        private static List<Long> runAll(List<SimUser> users, ExecutorService clients, UserTask task) throws Exception {
+            CountDownLatch ready = new CountDownLatch(users.size());
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<List<Long>>> futures = new ArrayList<>(users.size());
+            for (SimUser user : users) {
+                futures.add(clients.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return task.run(user);
+                }));
+            }
+            ready.await();
+            go.countDown();
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> f : futures) all.addAll(f.get(10, TimeUnit.MINUTES));
+            return all;
+        }
+
+        private static void report(String mode, String phase, Result r) {
+            long[] sorted = r.latencies().stream().mapToLong(Long::longValue).sorted().toArray();
+            double seconds = r.elapsedNanos() / 1e9;
+            System.out.printf("[BENCH] %-10s %-22s %5d usuários %,9.0f op/s  p50 %7.2f ms  p99 %7.2f ms  máx %7.2f ms  erros %d%n",
+                    mode, phase, USERS, sorted.length / seconds,
+                    percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 100), r.errors());
+        }
+
+        private static double percentile(long[] sorted, int p) {
+            if (sorted.length == 0) return Double.NaN;
+            int at = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, at)] / 1e6;
+        }
+
+        private record Result(List<Long> latencies, long elapsedNanos, int errors) {}
+    }
+}